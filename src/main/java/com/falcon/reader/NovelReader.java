@@ -1,5 +1,6 @@
 package com.falcon.reader;
 
+import cn.hutool.core.util.StrUtil;
 import com.falcon.reader.entity.Chapter;
 import com.falcon.reader.entity.NovelRecord;
 import com.falcon.reader.model.*;
@@ -13,6 +14,7 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * 主控制器类，处理窗口初始化和事件
@@ -22,19 +24,40 @@ import java.util.List;
  */
 public class NovelReader implements MouseListener, MouseMotionListener, MouseWheelListener {
     private static final int SAVE_DEBOUNCE_DELAY_MS = 1000;
+    /** 退出时等待阅读记录写完的最长时间 */
+    private static final long EXIT_FLUSH_TIMEOUT_MS = 3000;
+    /** 窗口分页时在阅读位置之后预先生成的页数 */
+    private static final int WINDOW_FOLLOWING_PAGES = 32;
+    /** 全文搜索最多列出的命中数 */
+    private static final int MAX_SEARCH_HITS = 200;
 
     private int x, y;
     private JFrame frame;
     private String filePath;
     private int currentPage = 0;
-    private List<String> pages = new ArrayList<>();
-    private List<Integer> pageStartOffsets = new ArrayList<>();
+    private PageIndex pages = new PageIndex();
     private List<Chapter> chapters = new ArrayList<>();
     private int totalLength = 0;
+    private TextCheckpoints checkpoints = new TextCheckpoints();
+    private PageRenderer pageRenderer;
+    // 全书分页在后台逐步增长；追上阅读位置之前先显示阅读位置附近的窗口页（provisional）
+    private PageIndex loadedPages = new PageIndex();
+    private TextCheckpoints loadedCheckpoints = new TextCheckpoints();
+    private boolean provisional;
+    private boolean paginationComplete;
+    private int provisionalBasePage;
+    private NovelRecord encodingInfo;
     private ReadingData readingData;
     private HomeView homeView;
     private NovelView novelView;
-    private SwingWorker<PageResult, Void> pageWorker;
+    private SwingWorker<PageResult, PageResult> pageWorker;
+    private TextIndex textIndex;
+    /** 读取或建立 textIndex 时文件的大小、修改时间和编码 */
+    private NovelRecord textIndexInfo;
+    private SwingWorker<TextIndex, Void> indexWorker;
+    private String indexingFilePath;
+    /** 正在运行的 indexWorker 开始时文件的大小、修改时间和编码 */
+    private NovelRecord indexingInfo;
     private Timer saveTimer;
 
     /**
@@ -71,8 +94,8 @@ public class NovelReader implements MouseListener, MouseMotionListener, MouseWhe
         // 加载阅读记录
         readingData = ReadingRecord.loadRecord(frame);
         // 初始化主页视图
-        homeView = new HomeView(frame, this::openNovel, this::saveAndExit, readingData, data -> readingData = data,
-                this::showSettings);
+        homeView = new HomeView(frame, (path, offset) -> openNovel(path, offset), this::saveAndExit, readingData,
+                data -> readingData = data, this::showSettings);
         homeView.show();
 
         frame.setVisible(true);
@@ -85,7 +108,17 @@ public class NovelReader implements MouseListener, MouseMotionListener, MouseWhe
      * @date 2024/10/21
      */
     public void openNovel(String selectedFilePath) {
-        filePath = selectedFilePath;
+        openNovel(selectedFilePath, null);
+    }
+
+    /**
+     * 打开小说并跳转到指定位置
+     * @param selectedFilePath 小说文件路径
+     * @param offset 要显示的字符偏移，为 null 时恢复阅读记录中的位置
+     */
+    public void openNovel(String selectedFilePath, Integer offset) {
+        // 阅读记录以规范化路径为键，同一文件从不同路径打开时对应同一条记录
+        filePath = ReadingRecord.normalizePath(selectedFilePath);
         if (novelView == null) {
             novelView = new NovelView(frame, readingData.getConfig());
         }
@@ -101,6 +134,9 @@ public class NovelReader implements MouseListener, MouseMotionListener, MouseWhe
         } else {
             currentPage = 0;
         }
+        if (offset != null) {
+            targetOffset = offset;
+        }
 
         loadPagesAsync(filePath, currentPage, targetOffset);
     }
@@ -111,8 +147,8 @@ public class NovelReader implements MouseListener, MouseMotionListener, MouseWhe
      * @date 2024/10/21
      */
     private void showPage() {
-        if (currentPage >= 0 && currentPage < pages.size()) {
-            novelView.getLabel().setText(pages.get(currentPage));
+        if (pageRenderer != null && currentPage >= 0 && currentPage < pages.size()) {
+            novelView.getLabel().setText(pageRenderer.render(pages.start(currentPage), checkpoints));
         }
     }
 
@@ -120,25 +156,90 @@ public class NovelReader implements MouseListener, MouseMotionListener, MouseWhe
         loadPagesAsync(targetFilePath, targetPage, null);
     }
 
+    /**
+     * 异步分页并恢复阅读位置
+     * 先只计算阅读位置附近的窗口页并立即显示，再在同一后台线程中从头计算全书分页，
+     * 新增的页和章节分批追加，全书分页追上阅读位置后切换为全书页码。
+     * 文件、字体和显示区域都未变化时直接读取上次保存的分页缓存，跳过分页。
+     */
     private void loadPagesAsync(String targetFilePath, int targetPage, Integer targetOffset) {
         if (pageWorker != null && !pageWorker.isDone()) {
             pageWorker.cancel(true);
         }
 
-        pages = new ArrayList<>();
-        pageStartOffsets = new ArrayList<>();
+        // 全文索引与排版无关，只有换了文件才作废
+        if (textIndex != null && !textIndex.getFilePath().equals(targetFilePath)) {
+            textIndex = null;
+            textIndexInfo = null;
+        }
+        pages = new PageIndex();
+        loadedPages = new PageIndex();
         chapters = new ArrayList<>();
         totalLength = 0;
+        checkpoints = new TextCheckpoints();
+        loadedCheckpoints = new TextCheckpoints();
+        pageRenderer = null;
+        provisional = true;
+        paginationComplete = false;
+        encodingInfo = null;
         currentPage = Math.max(0, targetPage);
         novelView.getLabel().setText("<html>正在分页，请稍候...</html>");
-        FontMetrics fontMetrics = novelView.getLabel().getFontMetrics(novelView.getLabel().getFont());
+        Font font = novelView.getLabel().getFont();
+        FontMetrics fontMetrics = novelView.getLabel().getFontMetrics(font);
         int labelWidth = novelView.getLabel().getWidth();
         int labelHeight = novelView.getLabel().getHeight();
+        NovelRecord targetEncodingInfo = copyEncodingInfo(readingData.getRecords().get(targetFilePath));
+        // 旧记录只有页码没有偏移时无法定位窗口，等待全书分页完成后按页码恢复
+        boolean showWindow = targetOffset != null || currentPage == 0;
+        int windowOffset = targetOffset == null ? 0 : Math.max(0, targetOffset);
+
+        pageWorker = new SwingWorker<PageResult, PageResult>() {
+            private boolean windowReceived;
 
-        pageWorker = new SwingWorker<PageResult, Void>() {
             @Override
             protected PageResult doInBackground() {
-                return PageCalculator.calculate(targetFilePath, fontMetrics, labelWidth, labelHeight);
+                String encoding = EncodingCache.resolve(targetFilePath, targetEncodingInfo);
+                PageResult cached = PageCache.load(targetFilePath, targetEncodingInfo, font, labelWidth, labelHeight);
+                if (cached != null) {
+                    return cached;
+                }
+                PageResult window = new PageResult(new PageIndex(), new ArrayList<>());
+                if (showWindow) {
+                    Integer anchorOffset = targetEncodingInfo.getAnchorOffset();
+                    Long anchorByteOffset = targetEncodingInfo.getAnchorByteOffset();
+                    boolean hasAnchor = anchorOffset != null && anchorByteOffset != null;
+                    window = PageCalculator.calculateWindow(targetFilePath, encoding, hasAnchor ? anchorOffset : 0,
+                            hasAnchor ? anchorByteOffset : 0, windowOffset, fontMetrics, labelWidth, labelHeight,
+                            WINDOW_FOLLOWING_PAGES);
+                }
+                publish(window);
+                PageResult result = PageCalculator.calculateParallel(targetFilePath, encoding, fontMetrics, labelWidth,
+                        labelHeight, this::publish);
+                if (!isCancelled()) {
+                    PageCache.save(targetFilePath, targetEncodingInfo, font, labelWidth, labelHeight, result);
+                }
+                return result;
+            }
+
+            @Override
+            protected void process(List<PageResult> chunks) {
+                // 分页完成后才送达的进度由 done() 中的完整结果代替
+                if (isCancelled() || isDone() || !targetFilePath.equals(filePath)) {
+                    return;
+                }
+                for (PageResult chunk : chunks) {
+                    if (!windowReceived) {
+                        windowReceived = true;
+                        encodingInfo = targetEncodingInfo;
+                        if (!chunk.getPages().isEmpty()) {
+                            pageRenderer = new PageRenderer(targetFilePath, targetEncodingInfo.getEncoding(), fontMetrics,
+                                    labelWidth, labelHeight);
+                        }
+                        showWindow(chunk, targetPage, windowOffset);
+                    } else {
+                        appendLoadedPages(chunk);
+                    }
+                }
             }
 
             @Override
@@ -148,25 +249,48 @@ public class NovelReader implements MouseListener, MouseMotionListener, MouseWhe
                 }
                 try {
                     PageResult pageResult = get();
+                    Integer restoreOffset = provisional ? (pages.isEmpty() ? targetOffset : Integer.valueOf(getCurrentOffset())) : null;
                     pages = pageResult.getPages();
-                    pageStartOffsets = pageResult.getPageStartOffsets();
+                    loadedPages = pages;
                     chapters = pageResult.getChapters();
                     totalLength = pageResult.getTotalLength();
+                    checkpoints = pageResult.getCheckpoints();
+                    loadedCheckpoints = checkpoints;
+                    encodingInfo = targetEncodingInfo;
+                    NovelRecord record = readingData.getRecords().get(targetFilePath);
+                    if (record != null) {
+                        record.setEncoding(targetEncodingInfo.getEncoding());
+                        record.setFileSize(targetEncodingInfo.getFileSize());
+                        record.setFileModified(targetEncodingInfo.getFileModified());
+                    }
                     if (pages.isEmpty()) {
                         currentPage = 0;
+                        provisional = false;
                         novelView.getLabel().setText("<html>无法读取或显示该文件</html>");
                         return;
                     }
-                    currentPage = targetOffset == null ? Math.max(0, Math.min(targetPage, pages.size() - 1))
-                            : findPageByOffset(targetOffset);
+                    if (pageRenderer == null) {
+                        pageRenderer = new PageRenderer(targetFilePath, targetEncodingInfo.getEncoding(), fontMetrics,
+                                labelWidth, labelHeight);
+                    }
+                    if (provisional) {
+                        currentPage = restoreOffset == null ? Math.max(0, Math.min(targetPage, pages.size() - 1))
+                                : findPageByOffset(restoreOffset);
+                        provisional = false;
+                    } else {
+                        currentPage = Math.max(0, Math.min(currentPage, pages.size() - 1));
+                    }
+                    paginationComplete = true;
                     saveCurrentRecord();
                     showPage();
+                    loadTextIndexAsync(targetFilePath, copyEncodingInfo(targetEncodingInfo));
                 } catch (Exception ex) {
                     currentPage = 0;
-                    pages = new ArrayList<>();
-                    pageStartOffsets = new ArrayList<>();
+                    pages = new PageIndex();
+                    loadedPages = pages;
                     chapters = new ArrayList<>();
                     totalLength = 0;
+                    provisional = false;
                     novelView.getLabel().setText("<html>分页失败: " + ex.getMessage() + "</html>");
                 }
             }
@@ -174,6 +298,119 @@ public class NovelReader implements MouseListener, MouseMotionListener, MouseWhe
         pageWorker.execute();
     }
 
+    /**
+     * 在后台读取当前小说的全文索引，没有可用的缓存时从正文建立并保存。
+     * 分页完成、编码和文件信息确定后调用，同一文件已有索引或正在建立时不重复
+     */
+    private void loadTextIndexAsync(String targetFilePath, NovelRecord fileInfo) {
+        if (textIndex != null && textIndex.getFilePath().equals(targetFilePath)) {
+            if (isSameFile(textIndexInfo, fileInfo)) {
+                return;
+            }
+            // 文件在本次运行中被修改过，旧索引的偏移和检查点都已失效
+            textIndex = null;
+            textIndexInfo = null;
+        }
+        if (indexWorker != null && !indexWorker.isDone()) {
+            if (targetFilePath.equals(indexingFilePath) && isSameFile(indexingInfo, fileInfo)) {
+                return;
+            }
+            // 建立索引期间文件被修改过时，按新的文件信息重新建立
+            indexWorker.cancel(true);
+        }
+        indexingFilePath = targetFilePath;
+        indexingInfo = fileInfo;
+        indexWorker = new SwingWorker<TextIndex, Void>() {
+            @Override
+            protected TextIndex doInBackground() {
+                TextIndex index = TextIndex.load(targetFilePath, fileInfo);
+                if (index == null) {
+                    index = TextIndex.build(targetFilePath, fileInfo.getEncoding());
+                    if (index != null && !isCancelled()) {
+                        index.save(fileInfo);
+                    }
+                }
+                return index;
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled() || !targetFilePath.equals(filePath)) {
+                    return;
+                }
+                try {
+                    textIndex = get();
+                    textIndexInfo = textIndex == null ? null : fileInfo;
+                } catch (Exception ex) {
+                    ex.printStackTrace();
+                }
+            }
+        };
+        indexWorker.execute();
+    }
+
+    /**
+     * 在当前小说中查找关键字，命中位置按页起始偏移换算为页码后作为目录项列出
+     *
+     * @param bookPages 目录中使用的全书页
+     * @return 命中的目录项；全文索引尚未建立时返回 null
+     */
+    private List<Chapter> searchText(String keyword, PageIndex bookPages) {
+        // 重新打开的文件确认未被修改之前不使用已有的索引
+        if (textIndex == null || !textIndex.getFilePath().equals(filePath) || !isSameFile(textIndexInfo, encodingInfo)) {
+            return null;
+        }
+        List<Chapter> results = new ArrayList<>();
+        try {
+            for (TextIndex.Hit hit : textIndex.search(keyword, MAX_SEARCH_HITS)) {
+                // 全书分页尚未完成时，最后一页之后的命中还没有页码
+                if (provisional && hit.getOffset() >= bookPages.lastStart()) {
+                    break;
+                }
+                results.add(new Chapter(hit.getSnippet(), bookPages.findPage(hit.getOffset()), 0));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(frame, "搜索失败: " + e.getMessage(), "提示", JOptionPane.WARNING_MESSAGE);
+        }
+        return results;
+    }
+
+    /**
+     * 显示阅读位置附近的窗口页，全书分页追上之前在窗口内翻页
+     */
+    private void showWindow(PageResult window, int targetPage, int windowOffset) {
+        if (window.getPages().isEmpty()) {
+            return;
+        }
+        pages = window.getPages();
+        checkpoints = window.getCheckpoints();
+        currentPage = findPageByOffset(windowOffset);
+        provisionalBasePage = Math.max(0, targetPage - currentPage);
+        showPage();
+    }
+
+    /**
+     * 追加后台新分出的页和章节，全书分页越过当前阅读位置后从窗口页切换到全书页
+     */
+    private void appendLoadedPages(PageResult batch) {
+        loadedPages.addAll(batch.getPages());
+        loadedCheckpoints.addAll(batch.getCheckpoints());
+        chapters.addAll(batch.getChapters());
+        if (provisional && !pages.isEmpty() && loadedPages.lastStart() > getCurrentOffset()) {
+            switchToLoadedPages();
+        }
+    }
+
+    private void switchToLoadedPages() {
+        int offset = getCurrentOffset();
+        pages = loadedPages;
+        checkpoints = loadedCheckpoints;
+        provisional = false;
+        currentPage = findPageByOffset(offset);
+        showPage();
+    }
+
     /**
      * 展示设置对话框
      * @author zxy
@@ -198,7 +435,6 @@ public class NovelReader implements MouseListener, MouseMotionListener, MouseWhe
                         novelView.getLabel().setForeground(changes.color);
                     }
                     ReadingRecord.saveConfig(frame, settingsLabel);
-                    refreshReadingData();
                     if (readingVisible) {
                         loadPagesAsync(filePath, currentPage, getCurrentOffset());
                     }
@@ -237,11 +473,9 @@ public class NovelReader implements MouseListener, MouseMotionListener, MouseWhe
         // 如果小说视图可见，处理点击事件
         if (novelView != null && novelView.isVisible()) {
             if (e.getButton() == MouseEvent.BUTTON3) {
-                // 右键保存记录并返回主页
+                // 右键保存记录并返回主页，列表已随内存中的记录逐行更新
                 saveCurrentRecord();
-                refreshReadingData();
                 novelView.hide();
-                homeView.updateNovelList(readingData);  // 更新列表
                 homeView.show();
             } else if (e.getButton() == MouseEvent.BUTTON1) {
                 // 左键显示设置
@@ -302,55 +536,114 @@ public class NovelReader implements MouseListener, MouseMotionListener, MouseWhe
 
     private void saveCurrentRecordNow() {
         if (novelView != null && novelView.isVisible()) {
-            ReadingRecord.saveRecord(frame, novelView.getLabel(), filePath, currentPage, pages.size(),
-                    getCurrentOffset(), totalLength);
+            updateAnchor();
+            // 先更新内存中的记录，返回主页时直接使用；窗口页的页码按恢复时的页码推算，全书分页完成前不更新总页数
+            int page = provisional ? provisionalBasePage + currentPage : currentPage;
+            int offset = getCurrentOffset();
+            readingData.updateRecord(filePath, record -> {
+                record.setCurrentPage(page);
+                if (paginationComplete && pages.size() > 0) {
+                    record.setTotalPages(pages.size());
+                }
+                record.setCurrentOffset(offset);
+                if (totalLength > 0) {
+                    record.setTotalLength(totalLength);
+                }
+                if (encodingInfo != null && StrUtil.isNotBlank(encodingInfo.getEncoding())) {
+                    record.setEncoding(encodingInfo.getEncoding());
+                    record.setFileSize(encodingInfo.getFileSize());
+                    record.setFileModified(encodingInfo.getFileModified());
+                    record.setAnchorOffset(encodingInfo.getAnchorOffset());
+                    record.setAnchorByteOffset(encodingInfo.getAnchorByteOffset());
+                }
+            });
+            ReadingRecord.saveRecord(frame, novelView.getLabel(), readingData, filePath);
         }
     }
 
-    private int getCurrentOffset() {
-        if (pageStartOffsets == null || currentPage < 0 || currentPage >= pageStartOffsets.size()) {
-            return 0;
+    /**
+     * 记录当前页之前最近的检查点，下次打开时从该处开始计算窗口页
+     */
+    private void updateAnchor() {
+        if (encodingInfo == null) {
+            return;
         }
-        return pageStartOffsets.get(currentPage);
+        int index = pages.isEmpty() ? -1 : checkpoints.floor(getCurrentOffset());
+        encodingInfo.setAnchorOffset(index >= 0 ? checkpoints.offset(index) : null);
+        encodingInfo.setAnchorByteOffset(index >= 0 ? checkpoints.byteOffset(index) : null);
     }
 
-    private int findPageByOffset(int offset) {
-        if (pageStartOffsets == null || pageStartOffsets.isEmpty()) {
-            return Math.max(0, Math.min(currentPage, pages.size() - 1));
+    /**
+     * @return 两份文件信息的大小、修改时间和编码是否都相同
+     */
+    private static boolean isSameFile(NovelRecord first, NovelRecord second) {
+        return first != null && second != null
+                && Objects.equals(first.getFileSize(), second.getFileSize())
+                && Objects.equals(first.getFileModified(), second.getFileModified())
+                && Objects.equals(first.getEncoding(), second.getEncoding());
+    }
+
+    /**
+     * 复制记录中的编码缓存字段，供后台分页线程读取和回写，避免与界面线程共享同一条记录
+     */
+    private NovelRecord copyEncodingInfo(NovelRecord record) {
+        NovelRecord copy = new NovelRecord();
+        if (record != null) {
+            copy.setEncoding(record.getEncoding());
+            copy.setFileSize(record.getFileSize());
+            copy.setFileModified(record.getFileModified());
+            copy.setAnchorOffset(record.getAnchorOffset());
+            copy.setAnchorByteOffset(record.getAnchorByteOffset());
         }
+        return copy;
+    }
 
-        int safeOffset = Math.max(0, offset);
-        int pageIndex = 0;
-        for (int i = 0; i < pageStartOffsets.size(); i++) {
-            if (pageStartOffsets.get(i) <= safeOffset) {
-                pageIndex = i;
-            } else {
-                break;
-            }
+    private int getCurrentOffset() {
+        if (pages == null || currentPage < 0 || currentPage >= pages.size()) {
+            return 0;
         }
-        return Math.max(0, Math.min(pageIndex, pages.size() - 1));
+        return pages.start(currentPage);
     }
 
-    private void refreshReadingData() {
-        readingData = ReadingRecord.loadRecord(frame);
+    private int findPageByOffset(int offset) {
+        if (pages == null || pages.isEmpty()) {
+            return Math.max(0, currentPage);
+        }
+        return pages.findPage(Math.max(0, offset));
     }
 
     private void showChapters() {
-        if (pages.isEmpty()) {
+        // 显示窗口页时目录和页码使用已分出的全书页，选择后切换到全书页
+        PageIndex bookPages = provisional ? loadedPages : pages;
+        if (bookPages.isEmpty()) {
             return;
         }
-        new ChapterDialog(frame, chapters, novelView.getLabel().getFont(), pages.size(), currentPage, pageIndex -> {
-            currentPage = Math.max(0, Math.min(pageIndex, pages.size() - 1));
-            showPage();
-            saveCurrentRecord();
-        }).show();
+        int initialPage = provisional ? bookPages.size() - 1 : currentPage;
+        new ChapterDialog(frame, new ArrayList<>(chapters), novelView.getLabel().getFont(), bookPages.size(), initialPage,
+                pageIndex -> {
+                    if (provisional) {
+                        pages = loadedPages;
+                        checkpoints = loadedCheckpoints;
+                        provisional = false;
+                    }
+                    currentPage = Math.max(0, Math.min(pageIndex, pages.size() - 1));
+                    showPage();
+                    saveCurrentRecord();
+                }, keyword -> searchText(keyword, bookPages)).show();
     }
 
     private void saveAndExit() {
         saveCurrentRecord();
+        ReadingRecord.saveDirtyRecords(frame, getSettingsLabel(), readingData);
         if (pageWorker != null && !pageWorker.isDone()) {
             pageWorker.cancel(true);
         }
+        if (indexWorker != null && !indexWorker.isDone()) {
+            indexWorker.cancel(true);
+        }
+        if (!RecordWriter.flush(EXIT_FLUSH_TIMEOUT_MS)) {
+            System.err.println("阅读记录未能在退出前写完");
+        }
         frame.dispose();
         System.exit(0);
     }
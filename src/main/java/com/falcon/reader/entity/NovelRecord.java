@@ -18,4 +18,9 @@ public class NovelRecord {
     private Integer currentOffset;
     private Integer totalLength;
     private LocalDateTime lastReadingTime;
+    private String encoding;
+    private Long fileSize;
+    private Long fileModified;
+    private Integer anchorOffset;
+    private Long anchorByteOffset;
 }
@@ -30,13 +30,20 @@ public class NovelItem {
     }
 
     public NovelItem(String filePath, NovelRecord record){
+        this(filePath, record, Files.isRegularFile(Paths.get(filePath)));
+    }
+
+    /**
+     * @param fileExists 文件是否存在，由调用方提供时不再访问磁盘
+     */
+    public NovelItem(String filePath, NovelRecord record, boolean fileExists){
         Path path = Paths.get(filePath);
         Path parent = path.getParent();
 
         this.fullPath = filePath;
         this.fileName = path.getFileName() == null ? filePath : path.getFileName().toString();
         this.filePath = parent == null ? "" : parent.toString() + File.separator;
-        this.fileExists = Files.isRegularFile(path);
+        this.fileExists = fileExists;
         if (record != null) {
             this.currentPage = record.getCurrentPage();
             this.totalPages = record.getTotalPages();
@@ -1,114 +1,178 @@
 package com.falcon.reader.entity.novelItem;
 
 import javax.swing.*;
+import javax.swing.border.Border;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
+import java.util.Map;
 
 /**
  * 项列表配置
+ * 列表每绘制一行都会调用渲染器，这里只保留一个组件，每行只更新名称、颜色和进度后直接绘制，
+ * 字体、边框和画笔都是共享的常量，滚动时基本不产生新对象。
  * @author zxy
  * @date 2024/10/21
  */
-public class NovelItemRenderer extends DefaultListCellRenderer {
+public class NovelItemRenderer extends JComponent implements ListCellRenderer<NovelItem> {
     private static final Color NORMAL_NAME_COLOR = Color.WHITE;
     private static final Color NORMAL_PROGRESS_COLOR = new Color(180, 220, 180);
     private static final Color MISSING_NAME_COLOR = new Color(150, 150, 150);
     private static final Color MISSING_PROGRESS_COLOR = new Color(135, 135, 135);
-
-    @Override
-    public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected,
-            boolean cellHasFocus) {
-        NovelItem novelItem = (NovelItem)value;
-
-        JPanel panel = getPanelForItem(novelItem);
-        // 设置选中状态的背景颜色
-        if (isSelected) {
-            panel.setOpaque(true); // 设置透明
-            panel.setBackground(Color.GRAY); // 选中时的背景色
+    private static final Color RING_TRACK_COLOR = new Color(85, 95, 85);
+    private static final Color SELECTED_BACKGROUND = Color.GRAY;
+    private static final Font NAME_FONT = new Font("Serif", Font.PLAIN, 15);
+    private static final Font PROGRESS_FONT = new Font("Serif", Font.PLAIN, 12);
+    private static final Border BORDER = new EmptyBorder(6, 10, 6, 10);
+    private static final Stroke RING_STROKE = new BasicStroke(2, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+    private static final int RING_SIZE = 12;
+    private static final int RING_STROKE_WIDTH = 2;
+    /** 进度区域的宽度，进度文字与圆环的间距，名称与进度区域的间距 */
+    private static final int PROGRESS_WIDTH = 48;
+    private static final int PROGRESS_TEXT_GAP = 3;
+    private static final int NAME_GAP = 4;
+    private static final String UNKNOWN_PERCENT_TEXT = "--%";
+    private static final String[] PERCENT_TEXTS = new String[101];
+
+    static {
+        for (int i = 0; i < PERCENT_TEXTS.length; i++) {
+            PERCENT_TEXTS[i] = i + "%";
         }
+    }
 
-        return panel;
+    /** 与 JLabel 相同的文字抗锯齿设置 */
+    private final Map<?, ?> textHints = (Map<?, ?>) Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+    private final Insets insets = new Insets(0, 0, 0, 0);
+    private final Rectangle viewRect = new Rectangle();
+    private final Rectangle iconRect = new Rectangle();
+    private final Rectangle textRect = new Rectangle();
+    private FontMetrics nameMetrics;
+    private FontMetrics progressMetrics;
+
+    private String name;
+    private Integer percent;
+    private boolean fileExists;
+    private boolean selected;
+
+    public NovelItemRenderer() {
+        setBorder(BORDER);
+        setOpaque(false);
     }
 
-    public JPanel getPanelForItem(NovelItem novelItem) {
-        JPanel panel = new JPanel(new BorderLayout(4, 0));
-        panel.setBorder(new EmptyBorder(6, 10, 6, 10));
-        panel.setOpaque(false); // 设置透明
-        JLabel nameLabel = new JLabel(novelItem.getFileName());
-        JPanel progressPanel = createProgressPanel(novelItem);
-        nameLabel.setForeground(novelItem.isFileExists() ? NORMAL_NAME_COLOR : MISSING_NAME_COLOR);
-        nameLabel.setFont(new Font("Serif", Font.PLAIN, 15));
-        progressPanel.setPreferredSize(new Dimension(48, 16));
-        panel.add(progressPanel, BorderLayout.WEST);
-        panel.add(nameLabel, BorderLayout.CENTER);
-        return panel;
+    @Override
+    public Component getListCellRendererComponent(JList<? extends NovelItem> list, NovelItem value, int index,
+            boolean isSelected, boolean cellHasFocus) {
+        name = value.getFileName();
+        percent = value.getProgressPercent();
+        fileExists = value.isFileExists();
+        selected = isSelected;
+        return this;
     }
 
-    private JPanel createProgressPanel(NovelItem novelItem) {
-        JPanel progressPanel = new JPanel(new GridBagLayout());
-        progressPanel.setOpaque(false);
-        progressPanel.setBorder(new EmptyBorder(1, 0, 0, 0));
-
-        JLabel progressLabel = new JLabel(novelItem.getProgressPercentText());
-        progressLabel.setForeground(novelItem.isFileExists() ? NORMAL_PROGRESS_COLOR : MISSING_PROGRESS_COLOR);
-        progressLabel.setFont(new Font("Serif", Font.PLAIN, 12));
-        progressLabel.setBorder(new EmptyBorder(0, 3, 0, 0));
-
-        GridBagConstraints constraints = new GridBagConstraints();
-        constraints.gridx = 0;
-        constraints.gridy = 0;
-        constraints.anchor = GridBagConstraints.WEST;
-        constraints.insets = new Insets(0, 0, 0, 0);
-        progressPanel.add(new ProgressCircle(novelItem.getProgressPercent(),
-                novelItem.isFileExists() ? NORMAL_PROGRESS_COLOR : MISSING_PROGRESS_COLOR), constraints);
-
-        constraints.gridx = 1;
-        progressPanel.add(progressLabel, constraints);
-
-        constraints.gridx = 2;
-        constraints.weightx = 1;
-        progressPanel.add(Box.createHorizontalGlue(), constraints);
-        return progressPanel;
+    /**
+     * 名称不截断时需要的宽度，列表按它计算行宽；行高由列表的固定行高决定
+     */
+    @Override
+    public Dimension getPreferredSize() {
+        getInsets(insets);
+        int nameWidth = name == null ? 0 : getNameMetrics().stringWidth(name);
+        return new Dimension(insets.left + PROGRESS_WIDTH + NAME_GAP + nameWidth + insets.right,
+                insets.top + Math.max(RING_SIZE, getNameMetrics().getHeight()) + insets.bottom);
     }
 
-    public Dimension getPreferredSizeForItem(NovelItem novelItem) {
-        JPanel panel = getPanelForItem(novelItem);
-        return panel.getPreferredSize(); // 获取 JPanel 的首选尺寸
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g;
+        if (selected) {
+            g2.setColor(SELECTED_BACKGROUND);
+            g2.fillRect(0, 0, getWidth(), getHeight());
+        }
+        getInsets(insets);
+        int top = insets.top;
+        int height = getHeight() - insets.top - insets.bottom;
+        Color progressColor = fileExists ? NORMAL_PROGRESS_COLOR : MISSING_PROGRESS_COLOR;
+
+        paintRing(g2, insets.left, top + (height - RING_SIZE) / 2, progressColor);
+
+        if (textHints != null) {
+            g2.addRenderingHints(textHints);
+        }
+        FontMetrics metrics = getProgressMetrics();
+        g2.setFont(PROGRESS_FONT);
+        g2.setColor(progressColor);
+        g2.drawString(percent == null ? UNKNOWN_PERCENT_TEXT : PERCENT_TEXTS[Math.max(0, Math.min(100, percent))],
+                insets.left + RING_SIZE + PROGRESS_TEXT_GAP, top + (height - metrics.getHeight()) / 2 + metrics.getAscent());
+
+        // 名称过长时与 JLabel 一样以省略号结尾
+        metrics = getNameMetrics();
+        viewRect.setBounds(insets.left + PROGRESS_WIDTH + NAME_GAP, top,
+                Math.max(0, getWidth() - insets.left - PROGRESS_WIDTH - NAME_GAP - insets.right), height);
+        iconRect.setBounds(0, 0, 0, 0);
+        textRect.setBounds(0, 0, 0, 0);
+        String text = SwingUtilities.layoutCompoundLabel(this, metrics, name, null, SwingConstants.CENTER,
+                SwingConstants.LEADING, SwingConstants.CENTER, SwingConstants.TRAILING, viewRect, iconRect, textRect, 0);
+        g2.setFont(NAME_FONT);
+        g2.setColor(fileExists ? NORMAL_NAME_COLOR : MISSING_NAME_COLOR);
+        g2.drawString(text, textRect.x, textRect.y + metrics.getAscent());
+    }
+
+    private void paintRing(Graphics2D g2, int x, int y, Color progressColor) {
+        Object antialiasing = g2.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
+        Stroke stroke = g2.getStroke();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setStroke(RING_STROKE);
+
+        int size = RING_SIZE - RING_STROKE_WIDTH;
+        int offset = RING_STROKE_WIDTH / 2;
+        g2.setColor(RING_TRACK_COLOR);
+        g2.drawOval(x + offset, y + offset, size, size);
+        if (percent != null) {
+            int safePercent = Math.max(0, Math.min(100, percent));
+            g2.setColor(progressColor);
+            g2.drawArc(x + offset, y + offset, size, size, 90, -Math.round(safePercent * 360f / 100f));
+        }
+
+        g2.setStroke(stroke);
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialiasing);
     }
 
-    private static class ProgressCircle extends JComponent {
-        private static final int SIZE = 12;
-        private final Integer percent;
-        private final Color progressColor;
-
-        private ProgressCircle(Integer percent, Color progressColor) {
-            this.percent = percent;
-            this.progressColor = progressColor;
-            setPreferredSize(new Dimension(SIZE, SIZE));
-            setMinimumSize(new Dimension(SIZE, SIZE));
-            setMaximumSize(new Dimension(SIZE, SIZE));
+    private FontMetrics getNameMetrics() {
+        if (nameMetrics == null) {
+            nameMetrics = getFontMetrics(NAME_FONT);
         }
+        return nameMetrics;
+    }
 
-        @Override
-        protected void paintComponent(Graphics g) {
-            super.paintComponent(g);
-            Graphics2D g2 = (Graphics2D) g.create();
-            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-            int stroke = 2;
-            int size = SIZE - stroke;
-            int offset = stroke / 2;
-            g2.setStroke(new BasicStroke(stroke, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-            g2.setColor(new Color(85, 95, 85));
-            g2.drawOval(offset, offset, size, size);
-
-            if (percent != null) {
-                int safePercent = Math.max(0, Math.min(100, percent));
-                g2.setColor(progressColor);
-                g2.drawArc(offset, offset, size, size, 90, -Math.round(safePercent * 360f / 100f));
-            }
-
-            g2.dispose();
+    private FontMetrics getProgressMetrics() {
+        if (progressMetrics == null) {
+            progressMetrics = getFontMetrics(PROGRESS_FONT);
         }
+        return progressMetrics;
+    }
+
+    /**
+     * 渲染组件只用于绘制，跳过属性变化后的重新布局和重绘请求，与 {@link DefaultListCellRenderer} 相同
+     */
+    @Override
+    public void invalidate() {
+    }
+
+    @Override
+    public void validate() {
+    }
+
+    @Override
+    public void revalidate() {
+    }
+
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+    }
+
+    @Override
+    public void repaint(Rectangle r) {
+    }
+
+    @Override
+    public void repaint() {
     }
 }
@@ -10,9 +10,12 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Modal chapter list used to jump to detected chapter pages.
+ * When a search function is supplied, a search field above the list replaces the chapters with full-text hits;
+ * clearing the field brings the chapters back.
  */
 public class ChapterDialog {
     private final JFrame frame;
@@ -21,14 +24,25 @@ public class ChapterDialog {
     private final int maxPages;
     private final int initialPage;
     private final Consumer<Integer> jumpCallback;
+    private final Function<String, List<Chapter>> searchFunction;
 
     public ChapterDialog(JFrame frame, List<Chapter> chapters, Font font, int maxPages, int initialPage, Consumer<Integer> jumpCallback) {
+        this(frame, chapters, font, maxPages, initialPage, jumpCallback, null);
+    }
+
+    /**
+     * @param searchFunction returns the hits for a keyword as entries pointing at their pages,
+     *                       or null while the full-text index is not ready yet
+     */
+    public ChapterDialog(JFrame frame, List<Chapter> chapters, Font font, int maxPages, int initialPage,
+                         Consumer<Integer> jumpCallback, Function<String, List<Chapter>> searchFunction) {
         this.frame = frame;
         this.chapters = chapters;
         this.font = font;
         this.maxPages = maxPages;
         this.initialPage = initialPage;
         this.jumpCallback = jumpCallback;
+        this.searchFunction = searchFunction;
     }
 
     public void show() {
@@ -65,7 +79,7 @@ public class ChapterDialog {
         chapterList.addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
                 Chapter chapter = chapterList.getSelectedValue();
-                if (chapter != null && !chapters.isEmpty()) {
+                if (chapter != null) {
                     pageField.setText(String.valueOf(chapter.getPageIndex() + 1));
                 }
             }
@@ -79,7 +93,7 @@ public class ChapterDialog {
             public void mouseClicked(MouseEvent e) {
                 if (e.getClickCount() == 2) {
                     Chapter chapter = chapterList.getSelectedValue();
-                    if (chapter != null && !chapters.isEmpty()) {
+                    if (chapter != null) {
                         pageField.setText(String.valueOf(chapter.getPageIndex() + 1));
                     }
                     jumpToPage(pageField, dialog);
@@ -103,6 +117,35 @@ public class ChapterDialog {
         dialog.setLayout(new BorderLayout(8, 2));
         dialog.add(scrollPane, BorderLayout.CENTER);
         dialog.add(buttonPanel, BorderLayout.SOUTH);
+        if (searchFunction != null) {
+            JTextField searchField = new JTextField(16);
+            JButton searchButton = new JButton("搜索");
+            Runnable search = () -> {
+                String keyword = searchField.getText().trim();
+                List<Chapter> items = keyword.isEmpty() ? chapters : searchFunction.apply(keyword);
+                if (items == null) {
+                    JOptionPane.showMessageDialog(dialog, "全文索引正在建立，请稍后再试", "提示", JOptionPane.INFORMATION_MESSAGE);
+                    return;
+                }
+                listModel.clear();
+                items.forEach(listModel::addElement);
+                emptyChapterLabel.setText(keyword.isEmpty() ? "未识别到目录" : "未找到 “" + keyword + "”");
+                scrollPane.setViewportView(items.isEmpty() ? emptyChapterLabel : chapterList);
+                int index = keyword.isEmpty() ? findCurrentChapterIndex() : 0;
+                if (!items.isEmpty() && index >= 0) {
+                    chapterList.setSelectedIndex(index);
+                    chapterList.ensureIndexIsVisible(index);
+                }
+            };
+            searchField.addActionListener(e -> search.run());
+            searchButton.addActionListener(e -> search.run());
+
+            JPanel searchPanel = new JPanel(new BorderLayout(4, 0));
+            searchPanel.add(new JLabel("全文搜索:"), BorderLayout.WEST);
+            searchPanel.add(searchField, BorderLayout.CENTER);
+            searchPanel.add(searchButton, BorderLayout.EAST);
+            dialog.add(searchPanel, BorderLayout.NORTH);
+        }
         dialog.pack();
         dialog.setLocationRelativeTo(frame);
         if (currentChapterIndex >= 0) {
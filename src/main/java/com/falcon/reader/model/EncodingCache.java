@@ -0,0 +1,49 @@
+package com.falcon.reader.model;
+
+import cn.hutool.core.util.StrUtil;
+import com.falcon.reader.entity.NovelRecord;
+import com.falcon.reader.util.EncodingDetect;
+
+import java.io.File;
+import java.util.Objects;
+
+/**
+ * 小说文件编码缓存
+ * 检测到的编码随阅读记录一起保存，并以文件大小和最后修改时间作为文件标识：
+ * 文件未变化时直接使用缓存的编码，文件被修改或替换后自动重新检测，
+ * 同时清除记录中依赖文件内容的阅读位置锚点。
+ *
+ * @author zxy
+ * @date 2026/3/4 09:30
+ **/
+public class EncodingCache {
+
+    /**
+     * 获取小说文件的编码，命中缓存时跳过编码检测
+     *
+     * @param filePath 小说文件路径
+     * @param record   保存编码缓存的记录，重新检测后会写回编码、文件大小和修改时间并清除锚点；为空时总是检测
+     * @return 文件编码
+     */
+    public static String resolve(String filePath, NovelRecord record) {
+        File file = new File(filePath);
+        long fileSize = file.length();
+        long fileModified = file.lastModified();
+
+        if (record != null && StrUtil.isNotBlank(record.getEncoding())
+                && Objects.equals(record.getFileSize(), fileSize)
+                && Objects.equals(record.getFileModified(), fileModified)) {
+            return record.getEncoding();
+        }
+
+        String encoding = EncodingDetect.getJavaEncode(filePath);
+        if (record != null) {
+            record.setEncoding(encoding);
+            record.setFileSize(fileSize);
+            record.setFileModified(fileModified);
+            record.setAnchorOffset(null);
+            record.setAnchorByteOffset(null);
+        }
+        return encoding;
+    }
+}
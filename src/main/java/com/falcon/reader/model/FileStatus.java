@@ -0,0 +1,216 @@
+package com.falcon.reader.model;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 小说文件状态缓存
+ * 主页判断文件是否存在时只读缓存，不在事件分发线程上访问磁盘；没有缓存或已过期时交给后台线程池检查，
+ * 检查前按存在处理。书架位于网络驱动器或移动硬盘时，单次检查可能阻塞较长时间，线程数固定，不会无限增加。
+ * <p>
+ * 检查过的文件所在目录注册到 {@link WatchService}，目录中文件新增、删除或修改时立即重新检查；
+ * 不支持监视的文件系统只依赖过期后重新检查。
+ * 存在状态或文件大小变化后，在事件分发线程上把同一批变化的路径一起通知监听器。
+ *
+ * @author zxy
+ * @date 2026/3/18 14:30
+ **/
+public class FileStatus {
+    /** 缓存有效时间，过期后读取时仍返回旧状态，同时在后台重新检查 */
+    private static final long TTL_MILLIS = 60_000;
+    private static final int PROBE_THREADS = 4;
+
+    private static final ConcurrentMap<String, Status> cache = new ConcurrentHashMap<>();
+    /** 已提交尚未开始检查的路径，避免重复提交 */
+    private static final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService pool = Executors.newFixedThreadPool(PROBE_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "file-status-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final List<Consumer<Collection<String>>> listeners = new CopyOnWriteArrayList<>();
+    /** 等待通知的路径，与 flushScheduled 一起由自身加锁 */
+    private static final Set<String> changed = new LinkedHashSet<>();
+    private static boolean flushScheduled;
+    private static final Set<Path> watchedDirs = ConcurrentHashMap.newKeySet();
+    private static WatchService watchService;
+
+    /**
+     * 一次检查的结果
+     */
+    private static class Status {
+        private final boolean exists;
+        private final long size;
+        private final long checkedAt;
+
+        private Status(boolean exists, long size, long checkedAt) {
+            this.exists = exists;
+            this.size = size;
+            this.checkedAt = checkedAt;
+        }
+    }
+
+    /**
+     * 文件是否存在，只读缓存，不访问磁盘
+     *
+     * @param filePath 规范化后的小说文件路径
+     * @return 缓存的状态；尚未检查过时返回 true，检查发现文件不存在后再通知监听器
+     */
+    public static boolean exists(String filePath) {
+        Status status = cache.get(filePath);
+        if (status == null || System.currentTimeMillis() - status.checkedAt > TTL_MILLIS) {
+            probe(filePath);
+        }
+        return status == null || status.exists;
+    }
+
+    /**
+     * 不论缓存是否过期，在后台重新检查文件
+     */
+    public static void probe(String filePath) {
+        if (!queued.add(filePath)) {
+            return;
+        }
+        pool.execute(() -> {
+            // 开始检查前移出队列，检查期间目录再有变化时重新提交
+            queued.remove(filePath);
+            Path path;
+            try {
+                path = Paths.get(filePath);
+            } catch (InvalidPathException e) {
+                update(filePath, new Status(false, -1, System.currentTimeMillis()));
+                return;
+            }
+            update(filePath, read(path));
+            watch(path.getParent());
+        });
+    }
+
+    /**
+     * 添加状态变化监听器，在事件分发线程上调用，参数为同一批状态变化的路径
+     */
+    public static void addListener(Consumer<Collection<String>> listener) {
+        listeners.add(listener);
+    }
+
+    private static Status read(Path path) {
+        long now = System.currentTimeMillis();
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new Status(attributes.isRegularFile(), attributes.size(), now);
+        } catch (IOException e) {
+            return new Status(false, -1, now);
+        }
+    }
+
+    /**
+     * 保存检查结果；与之前看到的状态不同时记下等待通知。没有检查过的文件按存在显示，只有不存在时才需要通知
+     */
+    private static void update(String filePath, Status status) {
+        Status old = cache.put(filePath, status);
+        boolean modified = old == null ? !status.exists : old.exists != status.exists || old.size != status.size;
+        if (!modified) {
+            return;
+        }
+        synchronized (changed) {
+            changed.add(filePath);
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        SwingUtilities.invokeLater(FileStatus::flush);
+    }
+
+    private static void flush() {
+        List<String> paths;
+        synchronized (changed) {
+            paths = new ArrayList<>(changed);
+            changed.clear();
+            flushScheduled = false;
+        }
+        for (Consumer<Collection<String>> listener : listeners) {
+            listener.accept(paths);
+        }
+    }
+
+    /**
+     * 监视文件所在目录。目录不存在或达到系统的监视数量上限时不监视，下次检查时再尝试
+     */
+    private static void watch(Path dir) {
+        if (dir == null || watchedDirs.contains(dir)) {
+            return;
+        }
+        synchronized (watchedDirs) {
+            if (watchedDirs.contains(dir)) {
+                return;
+            }
+            try {
+                if (watchService == null) {
+                    watchService = FileSystems.getDefault().newWatchService();
+                    Thread thread = new Thread(FileStatus::watchLoop, "file-status-watch");
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+                dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                watchedDirs.add(dir);
+            } catch (IOException | UnsupportedOperationException | ProviderMismatchException e) {
+                // 只依赖过期后重新检查
+            }
+        }
+    }
+
+    private static void watchLoop() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    probeDirectory(dir);
+                } else {
+                    String filePath = dir.resolve((Path) event.context()).toString();
+                    if (cache.containsKey(filePath)) {
+                        probe(filePath);
+                    }
+                }
+            }
+            // 目录本身被删除或移动后监视失效，其中的文件都需要重新检查
+            if (!key.reset()) {
+                watchedDirs.remove(dir);
+                probeDirectory(dir);
+            }
+        }
+    }
+
+    private static void probeDirectory(Path dir) {
+        for (String filePath : cache.keySet()) {
+            try {
+                if (dir.equals(Paths.get(filePath).getParent())) {
+                    probe(filePath);
+                }
+            } catch (InvalidPathException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.falcon.reader.model;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.util.Arrays;
+
+/**
+ * 字符宽度表
+ * 按字体预先保存 0~0xFFFF 每个字符的像素宽度，分页和渲染的换行循环只做数组查找，不再逐字符调用 {@link FontMetrics#charWidth(char)}。
+ * 大部分字符在第一次用到时才测量；CJK 标点、汉字和全角字符在创建时批量测量，
+ * 其中宽度与“中”相同的字符标记为等宽字符，连续的等宽字符可直接按宽度算出一行能放下几个。
+ * <p>
+ * 表在多个分页线程间共享，同一字符重复测量得到的宽度相同，并发填充不影响结果。
+ *
+ * @author zxy
+ * @date 2026/3/10 09:40
+ **/
+public final class GlyphWidths {
+    private static final int UNKNOWN = -1;
+    /** 最近使用的宽度表，分页和渲染通常使用同一字体 */
+    private static volatile GlyphWidths last;
+
+    private final FontMetrics fm;
+    private final Font font;
+    private final FontRenderContext frc;
+    private final int[] widths = new int[Character.MAX_VALUE + 1];
+    private final boolean[] monospace = new boolean[Character.MAX_VALUE + 1];
+    private final int monospaceWidth;
+
+    private GlyphWidths(FontMetrics fm) {
+        this.fm = fm;
+        this.font = fm.getFont();
+        this.frc = fm.getFontRenderContext();
+        Arrays.fill(widths, UNKNOWN);
+        this.monospaceWidth = fm.charWidth('中');
+        if (monospaceWidth > 0) {
+            markMonospace(0x3000, 0x9FFF); // CJK 标点、假名、注音及汉字
+            markMonospace(0xFF00, 0xFFEF); // 全角字符
+        }
+    }
+
+    /**
+     * 获取字体度量对应的宽度表，字体和渲染上下文与上次相同时复用上次的表
+     *
+     * @param fm 字体度量
+     * @return 宽度表
+     */
+    public static GlyphWidths of(FontMetrics fm) {
+        GlyphWidths widths = last;
+        if (widths == null || !widths.font.equals(fm.getFont()) || !widths.frc.equals(fm.getFontRenderContext())) {
+            widths = new GlyphWidths(fm);
+            last = widths;
+        }
+        return widths;
+    }
+
+    private void markMonospace(int first, int end) {
+        for (int c = first; c <= end; c++) {
+            int width = fm.charWidth((char) c);
+            widths[c] = width;
+            monospace[c] = width == monospaceWidth;
+        }
+    }
+
+    /**
+     * @return 字符的像素宽度，与 {@link FontMetrics#charWidth(char)} 相同
+     */
+    public int width(char c) {
+        int width = widths[c];
+        if (width == UNKNOWN) {
+            width = fm.charWidth(c);
+            widths[c] = width;
+        }
+        return width;
+    }
+
+    /**
+     * @return 字符是否为宽度等于 {@link #monospaceWidth()} 的全角字符
+     */
+    public boolean isMonospace(char c) {
+        return monospace[c];
+    }
+
+    /**
+     * @return 全角等宽字符的宽度
+     */
+    public int monospaceWidth() {
+        return monospaceWidth;
+    }
+}
@@ -0,0 +1,406 @@
+package com.falcon.reader.model;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONObject;
+import com.falcon.reader.entity.NovelRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.*;
+import java.text.Collator;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 以嵌入式 H2 数据库（bookmark.mv.db）保存阅读记录
+ * 每本小说一行，以规范化路径为主键，保存进度只更新这一行，不再重写整个书架。
+ * 除阅读进度外每行还保存按中文排序的文件名排序键和阅读进度分组（未读、阅读中、已读），
+ * 并在最后阅读时间、排序键及其与分组的组合上建立索引，主页的排序和分组直接按索引查询。
+ * 第一次创建数据库时导入 bookmark.json 中已有的记录，之后不再读写 bookmark.json。
+ * 多个阅读器进程通过 H2 的自动服务模式共用数据库，保存进度时锁定这本小说的一行，已保存的进度更晚时不覆盖。
+ *
+ * @author zxy
+ * @date 2026/3/16 10:40
+ **/
+public class H2RecordStore implements RecordStore {
+
+    /** 数据库文件名，存在时启动即使用数据库 */
+    static final String DATABASE_FILE = "bookmark.mv.db";
+    /** 第一个打开数据库的进程同时在本机端口上提供服务，之后启动的阅读器通过它访问同一个数据库 */
+    private static final String URL = "jdbc:h2:./bookmark;AUTO_SERVER=TRUE";
+    /** 多个阅读器同时启动时，另一个进程可能正在创建数据库或启动服务，打开失败时重试 */
+    private static final int CONNECT_ATTEMPTS = 10;
+    private static final long CONNECT_RETRY_MILLIS = 500;
+    private static final String CONFIG = "config";
+    private static final int IMPORT_BATCH = 1000;
+    private static final String COLUMNS = "path, name_key, state, current_page, total_pages, current_offset, total_length, "
+            + "last_reading_time, encoding, file_size, file_modified, anchor_offset, anchor_byte_offset";
+    private static final String MERGE_NOVEL = "MERGE INTO novel (" + COLUMNS + ") KEY (path) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_NOVEL = "INSERT INTO novel (" + COLUMNS + ") "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    /** 主键冲突的 SQLSTATE */
+    private static final String DUPLICATE_KEY = "23505";
+
+    private Connection connection;
+    /** 与主页按名称排序相同的比较规则，排序键按字节比较的结果与 {@link Collator#compare} 一致 */
+    private final Collator collator = Collator.getInstance(Locale.CHINA);
+    /** 数据库中保存的窗口和文本显示配置 */
+    private String savedConfig;
+
+    public H2RecordStore() throws IOException {
+        connection = connect();
+        try {
+            createTables();
+            if (!hasConfig()) {
+                importJson();
+            }
+            createIndexes();
+        } catch (SQLException e) {
+            try {
+                connection.close();
+            } catch (SQLException closeEx) {
+                e.addSuppressed(closeEx);
+            }
+            throw new IOException("初始化阅读记录数据库失败: " + e.getMessage(), e);
+        }
+    }
+
+    private static Connection connect() throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return DriverManager.getConnection(URL);
+            } catch (SQLException e) {
+                if (attempt >= CONNECT_ATTEMPTS) {
+                    throw new IOException("打开阅读记录数据库失败: " + e.getMessage(), e);
+                }
+            }
+            try {
+                Thread.sleep(CONNECT_RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("打开阅读记录数据库失败: 已中断", e);
+            }
+        }
+    }
+
+    private void createTables() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS settings (name VARCHAR PRIMARY KEY, val VARCHAR NOT NULL)");
+            statement.execute("CREATE TABLE IF NOT EXISTS novel (path VARCHAR PRIMARY KEY, "
+                    + "name_key VARBINARY NOT NULL, state VARCHAR(16) NOT NULL, current_page INT, total_pages INT, "
+                    + "current_offset INT, total_length INT, last_reading_time TIMESTAMP, encoding VARCHAR, "
+                    + "file_size BIGINT, file_modified BIGINT, anchor_offset INT, anchor_byte_offset BIGINT)");
+        }
+    }
+
+    /**
+     * 索引在导入之后创建，一次性建立索引比导入时逐行维护快
+     */
+    private void createIndexes() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE INDEX IF NOT EXISTS novel_time ON novel (last_reading_time)");
+            statement.execute("CREATE INDEX IF NOT EXISTS novel_name ON novel (name_key)");
+            statement.execute("CREATE INDEX IF NOT EXISTS novel_state_time ON novel (state, last_reading_time)");
+            statement.execute("CREATE INDEX IF NOT EXISTS novel_state_name ON novel (state, name_key)");
+        }
+    }
+
+    private boolean hasConfig() throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT 1 FROM settings WHERE name = ?")) {
+            statement.setString(1, CONFIG);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        }
+    }
+
+    /**
+     * 把 bookmark.json 中的记录和配置导入新建的数据库。记录分批写入，配置行最后写入，
+     * 导入中断时没有配置行，下次启动重新导入，已写入的记录按路径覆盖
+     */
+    private void importJson() throws SQLException {
+        Map<String, NovelRecord> records = new HashMap<>();
+        JSONObject config;
+        try {
+            config = new JsonRecordStore().load(records);
+        } catch (IOException e) {
+            throw new SQLException("导入 " + JsonRecordStore.BOOKMARK_FILE + " 失败: " + e.getMessage(), e);
+        }
+        try (PreparedStatement statement = connection.prepareStatement(MERGE_NOVEL)) {
+            int count = 0;
+            for (NovelRecord record : records.values()) {
+                bind(statement, record);
+                statement.addBatch();
+                if (++count % IMPORT_BATCH == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+        writeConfig(config);
+    }
+
+    @Override
+    public synchronized JSONObject load(Map<String, NovelRecord> records) throws IOException {
+        return execute(() -> {
+            records.clear();
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT " + COLUMNS + " FROM novel")) {
+                while (resultSet.next()) {
+                    NovelRecord record = read(resultSet);
+                    records.put(record.getFilePath(), record);
+                }
+            }
+            JSONObject config = readConfig();
+            savedConfig = config.toString();
+            return config;
+        });
+    }
+
+    @Override
+    public synchronized void saveRecord(JSONObject config, String filePath, int currentPage, Integer totalPages,
+            Integer currentOffset, Integer totalLength, NovelRecord encodingInfo, LocalDateTime lastReadingTime)
+            throws IOException {
+        execute(() -> inTransaction(() -> {
+            // 锁定这一行，其他进程同时保存这本小说时等待本次提交；新增的小说没有行可锁，插入时主键冲突说明其他进程已新增
+            NovelRecord record = find(filePath);
+            boolean created = record == null;
+            if (created) {
+                record = new NovelRecord();
+                record.setFilePath(filePath);
+            }
+            if (record.getLastReadingTime() == null || !lastReadingTime.isBefore(record.getLastReadingTime())) {
+                record.setCurrentPage(currentPage);
+                if (totalPages != null && totalPages > 0) {
+                    record.setTotalPages(totalPages);
+                }
+                if (currentOffset != null && currentOffset >= 0) {
+                    record.setCurrentOffset(currentOffset);
+                }
+                if (totalLength != null && totalLength > 0) {
+                    record.setTotalLength(totalLength);
+                }
+                setEncodingInfo(record, encodingInfo);
+                record.setLastReadingTime(lastReadingTime);
+                write(record, created ? INSERT_NOVEL : MERGE_NOVEL);
+            }
+            // 配置没有变化时只更新这本小说的一行
+            if (!config.toString().equals(savedConfig)) {
+                writeConfig(config);
+            }
+            return null;
+        }));
+    }
+
+    private static void setEncodingInfo(NovelRecord record, NovelRecord encodingInfo) {
+        if (encodingInfo == null || StrUtil.isBlank(encodingInfo.getEncoding())) {
+            return;
+        }
+        record.setEncoding(encodingInfo.getEncoding());
+        record.setFileSize(encodingInfo.getFileSize());
+        record.setFileModified(encodingInfo.getFileModified());
+        if (encodingInfo.getAnchorOffset() != null && encodingInfo.getAnchorByteOffset() != null) {
+            record.setAnchorOffset(encodingInfo.getAnchorOffset());
+            record.setAnchorByteOffset(encodingInfo.getAnchorByteOffset());
+        } else {
+            record.setAnchorOffset(null);
+            record.setAnchorByteOffset(null);
+        }
+    }
+
+    @Override
+    public synchronized void saveConfig(JSONObject config) throws IOException {
+        execute(() -> inTransaction(() -> {
+            writeConfig(config);
+            return null;
+        }));
+    }
+
+    @Override
+    public synchronized void removeRecord(String filePath) throws IOException {
+        execute(() -> {
+            try (PreparedStatement statement = connection.prepareStatement("DELETE FROM novel WHERE path = ?")) {
+                statement.setString(1, filePath);
+                statement.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public synchronized boolean moveRecord(String oldFilePath, String newFilePath) throws IOException {
+        return execute(() -> inTransaction(() -> {
+            NovelRecord record = find(oldFilePath);
+            if (record == null) {
+                return false;
+            }
+            record.setFilePath(newFilePath);
+            try (PreparedStatement statement = connection.prepareStatement("DELETE FROM novel WHERE path = ?")) {
+                statement.setString(1, oldFilePath);
+                statement.executeUpdate();
+            }
+            write(record, MERGE_NOVEL);
+            return true;
+        }));
+    }
+
+    @Override
+    public boolean supportsQuery() {
+        return true;
+    }
+
+    @Override
+    public synchronized List<String> query(HomeView.SortMode sortMode, HomeView.GroupMode groupMode) throws IOException {
+        boolean byState = groupMode == HomeView.GroupMode.UNREAD || groupMode == HomeView.GroupMode.READING
+                || groupMode == HomeView.GroupMode.FINISHED;
+        String sql = "SELECT path FROM novel" + (byState ? " WHERE state = ?" : "")
+                + (sortMode == HomeView.SortMode.NAME ? " ORDER BY name_key, path"
+                : " ORDER BY last_reading_time DESC NULLS LAST, path");
+        return execute(() -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                if (byState) {
+                    statement.setString(1, groupMode.name());
+                }
+                List<String> paths = new ArrayList<>();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        paths.add(resultSet.getString(1));
+                    }
+                }
+                return paths;
+            }
+        });
+    }
+
+    /**
+     * 执行一次数据库操作，以下两种情况重试一次：
+     * 提供服务的阅读器退出后连接失效，重新连接（由本进程接替提供服务）；新增小说时与其他进程的插入冲突
+     */
+    private <T> T execute(SqlAction<T> action) throws IOException {
+        try {
+            try {
+                return action.run();
+            } catch (SQLNonTransientConnectionException e) {
+                reconnect();
+            } catch (SQLException e) {
+                if (!DUPLICATE_KEY.equals(e.getSQLState())) {
+                    throw e;
+                }
+            }
+            return action.run();
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private void reconnect() throws IOException {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+        connection = connect();
+    }
+
+    /**
+     * 在一个事务中执行，失败时回滚；此时无法确定配置是否已保存，下次保存时重新写入
+     */
+    private <T> T inTransaction(SqlAction<T> action) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            T result = action.run();
+            connection.commit();
+            connection.setAutoCommit(true);
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            savedConfig = null;
+            try {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            } catch (SQLException rollbackEx) {
+                e.addSuppressed(rollbackEx);
+            }
+            throw e;
+        }
+    }
+
+    private NovelRecord find(String filePath) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT " + COLUMNS + " FROM novel WHERE path = ? FOR UPDATE")) {
+            statement.setString(1, filePath);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? read(resultSet) : null;
+            }
+        }
+    }
+
+    private void write(NovelRecord record, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            bind(statement, record);
+            statement.executeUpdate();
+        }
+    }
+
+    private void bind(PreparedStatement statement, NovelRecord record) throws SQLException {
+        statement.setString(1, record.getFilePath());
+        statement.setBytes(2, collator.getCollationKey(getFileName(record.getFilePath())).toByteArray());
+        statement.setString(3, HomeView.GroupMode.progressOf(record).name());
+        statement.setObject(4, record.getCurrentPage(), Types.INTEGER);
+        statement.setObject(5, record.getTotalPages(), Types.INTEGER);
+        statement.setObject(6, record.getCurrentOffset(), Types.INTEGER);
+        statement.setObject(7, record.getTotalLength(), Types.INTEGER);
+        statement.setObject(8, record.getLastReadingTime(), Types.TIMESTAMP);
+        statement.setString(9, record.getEncoding());
+        statement.setObject(10, record.getFileSize(), Types.BIGINT);
+        statement.setObject(11, record.getFileModified(), Types.BIGINT);
+        statement.setObject(12, record.getAnchorOffset(), Types.INTEGER);
+        statement.setObject(13, record.getAnchorByteOffset(), Types.BIGINT);
+    }
+
+    private static NovelRecord read(ResultSet resultSet) throws SQLException {
+        NovelRecord record = new NovelRecord();
+        record.setFilePath(resultSet.getString("path"));
+        record.setCurrentPage(resultSet.getObject("current_page", Integer.class));
+        record.setTotalPages(resultSet.getObject("total_pages", Integer.class));
+        record.setCurrentOffset(resultSet.getObject("current_offset", Integer.class));
+        record.setTotalLength(resultSet.getObject("total_length", Integer.class));
+        record.setLastReadingTime(resultSet.getObject("last_reading_time", LocalDateTime.class));
+        record.setEncoding(resultSet.getString("encoding"));
+        record.setFileSize(resultSet.getObject("file_size", Long.class));
+        record.setFileModified(resultSet.getObject("file_modified", Long.class));
+        record.setAnchorOffset(resultSet.getObject("anchor_offset", Integer.class));
+        record.setAnchorByteOffset(resultSet.getObject("anchor_byte_offset", Long.class));
+        return record;
+    }
+
+    private JSONObject readConfig() throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT val FROM settings WHERE name = ?")) {
+            statement.setString(1, CONFIG);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? new JSONObject(resultSet.getString(1)) : new JSONObject();
+            }
+        }
+    }
+
+    private void writeConfig(JSONObject config) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "MERGE INTO settings (name, val) KEY (name) VALUES (?, ?)")) {
+            statement.setString(1, CONFIG);
+            statement.setString(2, config.toString());
+            statement.executeUpdate();
+        }
+        savedConfig = config.toString();
+    }
+
+    private static String getFileName(String filePath) {
+        return filePath.substring(filePath.lastIndexOf(File.separatorChar) + 1);
+    }
+
+    private interface SqlAction<T> {
+        T run() throws SQLException;
+    }
+}
@@ -1,6 +1,5 @@
 package com.falcon.reader.model;
 
-import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.util.StrUtil;
 import com.falcon.reader.entity.novelItem.NovelItem;
 import com.falcon.reader.entity.novelItem.NovelItemRenderer;
@@ -15,15 +14,16 @@ import javax.swing.plaf.basic.BasicMenuUI;
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
-import java.text.Collator;
-import java.time.LocalDateTime;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 /**
@@ -36,22 +36,94 @@ public class HomeView {
     private static final int SEARCH_X = 70;
     private static final int SEARCH_WIDTH = 100;
     private static final String SELECTED_MENU_ITEM_PROPERTY = "selectedMenuItem";
+    /** 一批文件状态变化超过这个数量时重新生成列表，比逐行查找位置快 */
+    private static final int FILE_STATUS_REFRESH_THRESHOLD = 64;
+    /** 停止输入这么久之后才按新的关键字过滤 */
+    private static final int SEARCH_DEBOUNCE_DELAY_MS = 150;
+    /** 按内容搜索时每本书最多列出的命中位置 */
+    private static final int MAX_CONTENT_HITS = 10;
+    /** 建立内容索引期间，最多每隔这么久重新搜索一次 */
+    private static final int CONTENT_REFRESH_DELAY_MS = 500;
+    /** 匹配的记录不到全部记录的这么多分之一时，直接排序匹配的记录，不再遍历全部记录 */
+    private static final int SPARSE_MATCH_RATIO = 16;
 
     private JFrame frame;
     private JButton openButton;
     private JButton menuButton;
     private JButton closeButton;
-    private JTextField searchField;
+    private SearchField searchField;
+    private Timer searchTimer;
+    private SearchIndex searchIndex;
+    private RecordOrder recordOrder;
+    /** 按内容而不是文件名搜索 */
+    private boolean contentSearch;
+    /** 按内容搜索的关键字，去掉首尾空白 */
+    private String contentKeyword = "";
+    /** 包含关键字的书和命中位置，搜索尚未完成时为 null */
+    private Map<String, List<TextIndex.Hit>> contentHits;
+    /** 每次按内容搜索加一，较早搜索的结果不再显示 */
+    private long contentGeneration;
+    private Timer contentRefreshTimer;
     private JLabel groupHintLabel;
     private JScrollPane scrollPane;
+    private JList<NovelItem> novelList;
+    private DefaultListModel<NovelItem> listModel = new DefaultListModel<>();
+    /** 当前列表按文件名搜索时使用的关键字，列表来自按内容搜索时为 null */
+    private String listKeyword;
     private JLabel emptyResultLabel;
-    private Consumer<String> openNovelCallback;
+    private BiConsumer<String, Integer> openNovelCallback;
     private Consumer<ReadingData> readingDataChangeCallback;
     private Runnable settingsCallback;
     private Runnable closeCallback;
     private ReadingData readingData;
     private SortMode sortMode = SortMode.LAST_READING_TIME;
     private GroupMode groupMode = GroupMode.ALL;
+    /** 每次重新查询加一，较早查询的结果不再显示 */
+    private long queryGeneration;
+    /** 每次按记录变化修改列表加一，查询期间列表有修改时重新查询 */
+    private long listVersion;
+    private final RecordListener recordListener = new RecordListener() {
+        @Override
+        public void recordAdded(String filePath, NovelRecord record) {
+            onEventDispatchThread(() -> {
+                searchIndex.add(filePath);
+                recordOrder.put(filePath, record);
+                refreshLibraryIndex();
+                showRecord(filePath);
+            });
+        }
+
+        @Override
+        public void recordUpdated(String filePath, NovelRecord record) {
+            onEventDispatchThread(() -> {
+                recordOrder.put(filePath, record);
+                showRecord(filePath);
+            });
+        }
+
+        @Override
+        public void recordRemoved(String filePath) {
+            onEventDispatchThread(() -> {
+                searchIndex.remove(filePath);
+                recordOrder.remove(filePath);
+                refreshLibraryIndex();
+                removeRow(filePath);
+            });
+        }
+
+        @Override
+        public void recordRelocated(String oldFilePath, String newFilePath, NovelRecord record) {
+            onEventDispatchThread(() -> {
+                searchIndex.remove(oldFilePath);
+                searchIndex.add(newFilePath);
+                recordOrder.remove(oldFilePath);
+                recordOrder.put(newFilePath, record);
+                refreshLibraryIndex();
+                removeRow(oldFilePath);
+                showRecord(newFilePath);
+            });
+        }
+    };
 
     /**
      * 构造函数，初始化主页视图
@@ -71,12 +143,26 @@ public class HomeView {
 
     public HomeView(JFrame frame, Consumer<String> openNovelCallback, Runnable closeCallback, ReadingData readingData,
             Consumer<ReadingData> readingDataChangeCallback, Runnable settingsCallback) {
+        this(frame, (path, offset) -> openNovelCallback.accept(path), closeCallback, readingData,
+                readingDataChangeCallback, settingsCallback);
+    }
+
+    /**
+     * @param openNovelCallback 打开小说回调函数，第二个参数为要显示的字符偏移，为 null 时恢复阅读记录中的位置
+     */
+    public HomeView(JFrame frame, BiConsumer<String, Integer> openNovelCallback, Runnable closeCallback,
+            ReadingData readingData, Consumer<ReadingData> readingDataChangeCallback, Runnable settingsCallback) {
         this.frame = frame;
         this.openNovelCallback = openNovelCallback;
         this.closeCallback = closeCallback;
         this.readingData = readingData;
         this.readingDataChangeCallback = readingDataChangeCallback;
         this.settingsCallback = settingsCallback;
+        readingData.addRecordListener(recordListener);
+        searchIndex = new SearchIndex(readingData.getRecords().keySet());
+        recordOrder = new RecordOrder(readingData.getRecords());
+        FileStatus.addListener(this::showFileStatus);
+        LibraryIndex.addListener(this::showLibraryIndexProgress);
         initComponents();
     }
 
@@ -97,7 +183,7 @@ public class HomeView {
                 String selectedPath = fileChooser.getSelectedFile().getAbsolutePath();
                 // 检查文件路径是否有效且为txt格式
                 if (StrUtil.isNotBlank(selectedPath) && selectedPath.toLowerCase().endsWith(".txt")) {
-                    openNovelCallback.accept(selectedPath);
+                    openNovelCallback.accept(selectedPath, null);
                 } else {
                     // 显示错误消息
                     JOptionPane.showMessageDialog(frame, "无效的文件！", "错误", JOptionPane.ERROR_MESSAGE);
@@ -108,20 +194,25 @@ public class HomeView {
 
         searchField = new SearchField("搜索文件名");
         searchField.setBounds(SEARCH_X, 10, SEARCH_WIDTH, 35);
+        // 连续输入时只在停顿后过滤一次
+        searchTimer = new Timer(SEARCH_DEBOUNCE_DELAY_MS, e -> applySearch());
+        searchTimer.setRepeats(false);
+        contentRefreshTimer = new Timer(CONTENT_REFRESH_DELAY_MS, e -> searchContent());
+        contentRefreshTimer.setRepeats(false);
         searchField.getDocument().addDocumentListener(new DocumentListener() {
             @Override
             public void insertUpdate(DocumentEvent e) {
-                updateNovelList(readingData);
+                searchTimer.restart();
             }
 
             @Override
             public void removeUpdate(DocumentEvent e) {
-                updateNovelList(readingData);
+                searchTimer.restart();
             }
 
             @Override
             public void changedUpdate(DocumentEvent e) {
-                updateNovelList(readingData);
+                searchTimer.restart();
             }
         });
         frame.add(searchField);
@@ -142,6 +233,8 @@ public class HomeView {
         closeButton.addActionListener(e -> closeCallback.run());
         frame.add(closeButton);
 
+        createNovelList();
+
         frame.addComponentListener(new java.awt.event.ComponentAdapter() {
             @Override
             public void componentResized(java.awt.event.ComponentEvent e) {
@@ -154,115 +247,408 @@ public class HomeView {
     }
 
     /**
-     * 更新小说列表，根据提供的配置和记录对刷新列表内容
-     * @param readingData
-     * @author zxy
+     * 创建小说列表组件，之后只替换或修改列表模型，不再重建组件
      */
-    public void updateNovelList(ReadingData readingData) {
-        // 如果滚动面板已存在，先移除它
-        if (scrollPane != null) {
-            frame.remove(scrollPane);
-        }
-        if (emptyResultLabel != null) {
-            frame.remove(emptyResultLabel);
-            emptyResultLabel = null;
-        }
-        this.readingData = readingData;
-
-        DefaultListModel<NovelItem> listModel = new DefaultListModel<>();
-        // 将阅读记录转换为NovelItem并添加到模型中
-        if (CollectionUtil.isNotEmpty(readingData.getRecords())) {
-            List<Map.Entry<String, NovelRecord>> records = new ArrayList<>();
-            readingData.getRecords().forEach((path, record) -> {
-                if (matchesGroup(path, record) && matchesSearch(path)) {
-                    records.add(new java.util.AbstractMap.SimpleEntry<>(path, record));
-                }
-            });
-            sortRecords(records);
-            records.forEach(entry -> listModel.addElement(new NovelItem(entry.getKey(), entry.getValue())));
-        }
-
-        if ((isSearchActive() || groupMode != GroupMode.ALL) && listModel.isEmpty()) {
-            emptyResultLabel = createEmptyResultLabel();
-            updateBounds();
-            frame.add(emptyResultLabel);
-            frame.revalidate();
-            frame.repaint();
-            return;
-        }
-
-        // 创建小说列表组件
-        JList<NovelItem> list = new JList<>(listModel);
-        list.setCellRenderer(new NovelItemRenderer());
-        list.setFont(new Font("Serif", Font.PLAIN, 16));
-        list.setBackground(new Color(0, 0, 0, 0));
-        list.setForeground(Color.WHITE);
-        list.setOpaque(false);
-        list.setFixedCellHeight(36);  // 示例高度，根据 renderer 调整
-        list.addMouseMotionListener(new java.awt.event.MouseMotionAdapter() {
+    private void createNovelList() {
+        novelList = new JList<>(listModel);
+        novelList.setCellRenderer(new NovelItemRenderer());
+        novelList.setFont(new Font("Serif", Font.PLAIN, 16));
+        novelList.setBackground(new Color(0, 0, 0, 0));
+        novelList.setForeground(Color.WHITE);
+        novelList.setOpaque(false);
+        novelList.setFixedCellHeight(36);  // 示例高度，根据 renderer 调整
+        novelList.addMouseMotionListener(new java.awt.event.MouseMotionAdapter() {
             @Override
             public void mouseMoved(java.awt.event.MouseEvent e) {
-                int index = list.locationToIndex(e.getPoint());
-                if (index != -1 && list.getCellBounds(index, index).contains(e.getPoint())) {
-                    list.setToolTipText(listModel.get(index).getFullPath());
+                int index = novelList.locationToIndex(e.getPoint());
+                if (index != -1 && novelList.getCellBounds(index, index).contains(e.getPoint())) {
+                    novelList.setToolTipText(listModel.get(index).getFullPath());
                 } else {
-                    list.setToolTipText(null);
+                    novelList.setToolTipText(null);
                 }
             }
         });
         // 添加鼠标监听器处理点击事件
-        list.addMouseListener(new java.awt.event.MouseAdapter() {
+        novelList.addMouseListener(new java.awt.event.MouseAdapter() {
             @Override
             public void mouseClicked(java.awt.event.MouseEvent e) {
-                int index = list.locationToIndex(e.getPoint());
-                if (index != -1 && list.getCellBounds(index, index).contains(e.getPoint())) {
+                int index = novelList.locationToIndex(e.getPoint());
+                if (index != -1 && novelList.getCellBounds(index, index).contains(e.getPoint())) {
                     NovelItem item = listModel.get(index);
                     String path = item.getFullPath();
                     if (e.getButton() == java.awt.event.MouseEvent.BUTTON1) {
-                        // 左键点击打开小说
-                        if (Files.isRegularFile(Paths.get(path))) {
-                            openNovelCallback.accept(path);
+                        // 左键点击打开小说，按内容搜索时先列出命中位置
+                        if (contentSearch && contentHits != null && contentHits.containsKey(path)) {
+                            showContentHits(novelList, e.getX(), e.getY(), path);
                         } else {
-                            JOptionPane.showMessageDialog(frame, "文件不存在，可能已被移动或删除。", "无法打开", JOptionPane.WARNING_MESSAGE);
-                            updateNovelList(readingData);
+                            openNovel(path, null);
                         }
                     } else if (e.getButton() == java.awt.event.MouseEvent.BUTTON3) {
-                        showNovelMenu(list, e.getX(), e.getY(), item);
+                        showNovelMenu(novelList, e.getX(), e.getY(), item);
                     }
                 }
             }
         });
 
         // 创建滚动面板并配置样式
-        scrollPane = new JScrollPane(list);
+        scrollPane = new JScrollPane(novelList);
         scrollPane.setOpaque(false);
         scrollPane.getViewport().setOpaque(false);
         scrollPane.setBorder(null);
-        updateBounds();
+        scrollPane.setVisible(false);
 
         // 设置滚动条透明度
         UIUtils.setScrollbarTransparency(scrollPane.getVerticalScrollBar(), 4, scrollPane.getVerticalScrollBar().getHeight());
         UIUtils.setScrollbarTransparency(scrollPane.getHorizontalScrollBar(), scrollPane.getHorizontalScrollBar().getWidth(), 4);
 
+        emptyResultLabel = createEmptyResultLabel();
+        emptyResultLabel.setVisible(false);
+        updateBounds();
         frame.add(scrollPane);
-        frame.revalidate();
-        frame.repaint();
+        frame.add(emptyResultLabel);
     }
 
-    private boolean matchesSearch(String filePath) {
-        if (searchField == null || StrUtil.isBlank(searchField.getText())) {
-            return true;
+    /**
+     * 重新生成小说列表，排序方式、分组或搜索关键字变化时调用；单条记录的变化由 {@link RecordListener} 逐行更新
+     * @param readingData
+     * @author zxy
+     */
+    public void updateNovelList(ReadingData readingData) {
+        if (this.readingData != readingData) {
+            this.readingData.removeRecordListener(recordListener);
+            readingData.addRecordListener(recordListener);
+            this.readingData = readingData;
+            String keyword = searchIndex.getKeyword();
+            searchIndex = new SearchIndex(readingData.getRecords().keySet());
+            searchIndex.setKeyword(keyword);
+            recordOrder = new RecordOrder(readingData.getRecords());
+        }
+        long generation = ++queryGeneration;
+        long version = listVersion;
+        // 存储能按排序方式和分组直接查询时，不再遍历并排序全部记录
+        boolean queried = ReadingRecord.queryRecords(frame, sortMode, groupMode, paths -> {
+            if (generation != queryGeneration) {
+                return;
+            }
+            // 查询期间已逐行修改过列表，查询结果可能不包含这些修改
+            if (version != listVersion) {
+                updateNovelList(this.readingData);
+                return;
+            }
+            showNovelList(paths != null ? paths : scanRecords());
+        });
+        if (!queried) {
+            showNovelList(scanRecords());
         }
+    }
 
-        String keyword = searchField.getText().trim().toLowerCase(Locale.ROOT);
-        String normalizedPath = filePath.toLowerCase(Locale.ROOT);
-        Path path = Paths.get(filePath);
-        String fileName = path.getFileName() == null ? filePath : path.getFileName().toString();
-        return fileName.toLowerCase(Locale.ROOT).contains(keyword) || normalizedPath.contains(keyword);
+    /**
+     * 按保存的顺序遍历内存中的记录并按阅读进度分组；匹配搜索关键字的记录很少时只排序这些记录
+     */
+    private List<String> scanRecords() {
+        Map<String, NovelRecord> records = readingData.getRecords();
+        Set<String> matches = getSearchMatches();
+        List<String> paths = new ArrayList<>();
+        if (matches != null && matches.size() * SPARSE_MATCH_RATIO < records.size()) {
+            for (String path : matches) {
+                NovelRecord record = records.get(path);
+                if (record != null && matchesGroup(record)) {
+                    paths.add(path);
+                }
+            }
+            paths.sort((first, second) -> recordOrder.compare(sortMode, first, second));
+            return paths;
+        }
+        for (String path : recordOrder.paths(sortMode)) {
+            NovelRecord record = records.get(path);
+            if (record != null && matchesGroup(record) && (matches == null || matches.contains(path))) {
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * 按排好序的路径显示小说列表，文件是否存在和搜索关键字在这里过滤
+     */
+    private void showNovelList(List<String> paths) {
+        DefaultListModel<NovelItem> model = new DefaultListModel<>();
+        // 将阅读记录转换为NovelItem并添加到模型中
+        for (String path : paths) {
+            NovelRecord record = readingData.getRecords().get(path);
+            if (record != null && matchesFile(path) && matchesSearch(path)) {
+                model.addElement(new NovelItem(path, record, FileStatus.exists(path)));
+            }
+        }
+        // 整体替换模型只通知列表一次，逐条添加会为每一行发出事件
+        listModel = model;
+        listKeyword = contentSearch ? null : searchIndex.getKeyword();
+        novelList.setModel(model);
+        updateListVisibility();
+    }
+
+    /**
+     * 按一条记录的当前状态更新它所在的行：不再符合分组或搜索条件时删除，位置不变时只重绘这一行，否则移动到新位置
+     */
+    private void showRecord(String filePath) {
+        listVersion++;
+        NovelRecord record = readingData.getRecords().get(filePath);
+        int index = indexOf(filePath);
+        if (record == null || !matchesGroup(record) || !matchesFile(filePath) || !matchesSearch(filePath)) {
+            if (index >= 0) {
+                listModel.remove(index);
+            }
+        } else {
+            NovelItem item = new NovelItem(filePath, record, FileStatus.exists(filePath));
+            if (index >= 0 && isInOrder(index, item)) {
+                listModel.set(index, item);
+            } else {
+                if (index >= 0) {
+                    listModel.remove(index);
+                }
+                listModel.add(insertionIndex(item), item);
+            }
+        }
+        updateListVisibility();
+    }
+
+    /**
+     * 后台检查发现文件出现或消失，更新对应的行或按文件分组重新过滤
+     */
+    private void showFileStatus(Collection<String> paths) {
+        // 文件大小变化时内容索引需要重新建立
+        refreshLibraryIndex();
+        if (paths.size() > FILE_STATUS_REFRESH_THRESHOLD) {
+            updateNovelList(readingData);
+            return;
+        }
+        for (String path : paths) {
+            if (readingData.getRecords().containsKey(path)) {
+                showRecord(path);
+            }
+        }
+    }
+
+    private void removeRow(String filePath) {
+        listVersion++;
+        int index = indexOf(filePath);
+        if (index >= 0) {
+            listModel.remove(index);
+        }
+        updateListVisibility();
+    }
+
+    private int indexOf(String filePath) {
+        for (int i = 0; i < listModel.size(); i++) {
+            if (listModel.get(i).getFullPath().equals(filePath)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isInOrder(int index, NovelItem item) {
+        return (index == 0 || compareItems(listModel.get(index - 1), item) <= 0)
+                && (index == listModel.size() - 1 || compareItems(item, listModel.get(index + 1)) <= 0);
+    }
+
+    /**
+     * 二分查找新行在已排序列表中的位置
+     */
+    private int insertionIndex(NovelItem item) {
+        int low = 0;
+        int high = listModel.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareItems(listModel.get(middle), item) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 与 {@link #scanRecords()} 相同的顺序，名称或时间相同时按路径排序
+     */
+    private int compareItems(NovelItem first, NovelItem second) {
+        return recordOrder.compare(sortMode, first.getFullPath(), second.getFullPath());
+    }
+
+    /**
+     * 有分组或搜索条件且列表为空时显示提示，主页隐藏时两者都保持隐藏
+     */
+    private void updateListVisibility() {
+        boolean visible = openButton.isVisible();
+        boolean empty = (isSearchActive() || groupMode != GroupMode.ALL) && listModel.isEmpty();
+        emptyResultLabel.setText(getEmptyResultText());
+        emptyResultLabel.setVisible(visible && empty);
+        scrollPane.setVisible(visible && !empty);
+    }
+
+    private static void onEventDispatchThread(Runnable runnable) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            runnable.run();
+        } else {
+            SwingUtilities.invokeLater(runnable);
+        }
+    }
+
+    /**
+     * 按搜索框中的关键字过滤。继续输入时结果只会变少，当前列表是按上一个文件名关键字生成的时，
+     * 直接删除其中不匹配的行，不再重新查询和排序
+     */
+    private void applySearch() {
+        if (contentSearch) {
+            searchContent();
+            return;
+        }
+        String previous = searchIndex.getKeyword();
+        if (!searchIndex.setKeyword(searchField.getText()) || !previous.equals(listKeyword)) {
+            updateNovelList(readingData);
+            return;
+        }
+        listKeyword = searchIndex.getKeyword();
+        DefaultListModel<NovelItem> model = new DefaultListModel<>();
+        for (int i = 0; i < listModel.size(); i++) {
+            NovelItem item = listModel.get(i);
+            if (searchIndex.matches(item.getFullPath())) {
+                model.addElement(item);
+            }
+        }
+        if (model.size() != listModel.size()) {
+            listModel = model;
+            novelList.setModel(model);
+        }
+        updateListVisibility();
+    }
+
+    private boolean matchesSearch(String filePath) {
+        if (contentSearch) {
+            return contentKeyword.isEmpty() || contentHits != null && contentHits.containsKey(filePath);
+        }
+        return searchIndex.matches(filePath);
     }
 
     private boolean isSearchActive() {
-        return searchField != null && StrUtil.isNotBlank(searchField.getText());
+        return contentSearch ? !contentKeyword.isEmpty() : !searchIndex.getKeyword().isEmpty();
+    }
+
+    /**
+     * @return 匹配当前关键字的路径，没有关键字时为 null
+     */
+    private Set<String> getSearchMatches() {
+        if (!contentSearch) {
+            return searchIndex.getMatches();
+        }
+        if (contentKeyword.isEmpty()) {
+            return null;
+        }
+        return contentHits == null ? Collections.emptySet() : contentHits.keySet();
+    }
+
+    /**
+     * 切换按文件名或按内容搜索，切换到按内容搜索时检查书架并在后台为新增或修改过的书建立索引
+     */
+    private void setContentSearch(boolean contentSearch) {
+        this.contentSearch = contentSearch;
+        searchField.setPlaceholder(contentSearch ? "搜索内容" : "搜索文件名");
+        contentKeyword = "";
+        contentHits = null;
+        contentGeneration++;
+        refreshLibraryIndex();
+        // 当前列表是另一种搜索的结果，不能在其中过滤，总是重新生成
+        if (contentSearch) {
+            searchContent();
+        } else {
+            searchIndex.setKeyword(searchField.getText());
+            updateNovelList(readingData);
+        }
+    }
+
+    private void refreshLibraryIndex() {
+        if (contentSearch) {
+            LibraryIndex.refresh(readingData.getRecords());
+        }
+    }
+
+    /**
+     * 在后台按内容搜索，完成后重新生成列表。关键字不到两个字符时不搜索，只显示提示
+     */
+    private void searchContent() {
+        contentRefreshTimer.stop();
+        String keyword = searchField.getText().trim();
+        long generation = ++contentGeneration;
+        if (keyword.length() < 2) {
+            contentKeyword = keyword;
+            contentHits = null;
+            updateNovelList(readingData);
+            return;
+        }
+        new SwingWorker<Map<String, List<TextIndex.Hit>>, Void>() {
+            @Override
+            protected Map<String, List<TextIndex.Hit>> doInBackground() throws IOException {
+                return LibraryIndex.search(keyword, MAX_CONTENT_HITS);
+            }
+
+            @Override
+            protected void done() {
+                if (generation != contentGeneration) {
+                    return;
+                }
+                try {
+                    contentHits = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                    contentHits = Collections.emptyMap();
+                }
+                contentKeyword = keyword;
+                updateNovelList(readingData);
+            }
+        }.execute();
+    }
+
+    /**
+     * 有书建立完内容索引时重新搜索，同一段时间内的多次变化只搜索一次
+     */
+    private void showLibraryIndexProgress() {
+        if (!contentSearch) {
+            return;
+        }
+        if (contentKeyword.length() < 2) {
+            updateListVisibility();
+        } else if (!contentRefreshTimer.isRunning()) {
+            contentRefreshTimer.start();
+        }
+    }
+
+    private void openNovel(String path, Integer offset) {
+        if (Files.isRegularFile(Paths.get(path))) {
+            openNovelCallback.accept(path, offset);
+        } else {
+            JOptionPane.showMessageDialog(frame, "文件不存在，可能已被移动或删除。", "无法打开", JOptionPane.WARNING_MESSAGE);
+            FileStatus.probe(path);
+        }
+    }
+
+    /**
+     * 列出书中包含关键字的位置，选择后打开小说并跳转到该处
+     */
+    private void showContentHits(JList<NovelItem> list, int x, int y, String path) {
+        JPopupMenu menu = new JPopupMenu();
+        JMenuItem openItem = new JMenuItem("打开");
+        compactMenuItem(openItem);
+        openItem.addActionListener(e -> openNovel(path, null));
+        menu.add(openItem);
+        menu.addSeparator();
+        for (TextIndex.Hit hit : contentHits.get(path)) {
+            JMenuItem hitItem = new JMenuItem(hit.getSnippet());
+            compactMenuItem(hitItem);
+            hitItem.addActionListener(e -> openNovel(path, hit.getOffset()));
+            menu.add(hitItem);
+        }
+        menu.show(list, x, y);
     }
 
     private JLabel createEmptyResultLabel() {
@@ -274,6 +660,12 @@ public class HomeView {
     }
 
     private String getEmptyResultText() {
+        if (contentSearch && isSearchActive()) {
+            if (contentKeyword.length() < 2) {
+                return "请输入至少两个字";
+            }
+            return LibraryIndex.getPendingCount() > 0 ? "正在建立内容索引…" : "没有包含该内容的书籍";
+        }
         if (isSearchActive()) {
             return "没有匹配的书籍";
         }
@@ -311,6 +703,7 @@ public class HomeView {
         JMenuItem filterReadingItem = new JMenuItem("阅读中");
         JMenuItem filterFinishedItem = new JMenuItem("已读");
         JMenuItem filterMissingItem = new JMenuItem("失效");
+        JMenuItem contentSearchItem = new JMenuItem("搜索内容");
         compactSubMenu(sortMenu);
         compactSubMenu(filterMenu);
         compactMenuItem(settingsItem);
@@ -321,6 +714,7 @@ public class HomeView {
         compactMenuItem(filterReadingItem);
         compactMenuItem(filterFinishedItem);
         compactMenuItem(filterMissingItem);
+        compactMenuItem(contentSearchItem);
         markSelected(sortByNameItem, sortMode == SortMode.NAME);
         markSelected(sortByTimeItem, sortMode == SortMode.LAST_READING_TIME);
         markSelected(filterAllItem, groupMode == GroupMode.ALL);
@@ -328,6 +722,7 @@ public class HomeView {
         markSelected(filterReadingItem, groupMode == GroupMode.READING);
         markSelected(filterFinishedItem, groupMode == GroupMode.FINISHED);
         markSelected(filterMissingItem, groupMode == GroupMode.MISSING);
+        markSelected(contentSearchItem, contentSearch);
         settingsItem.addActionListener(e -> {
             if (settingsCallback != null) {
                 settingsCallback.run();
@@ -340,6 +735,7 @@ public class HomeView {
         filterReadingItem.addActionListener(e -> applyGroup(GroupMode.READING));
         filterFinishedItem.addActionListener(e -> applyGroup(GroupMode.FINISHED));
         filterMissingItem.addActionListener(e -> applyGroup(GroupMode.MISSING));
+        contentSearchItem.addActionListener(e -> setContentSearch(!contentSearch));
 
         sortMenu.add(sortByNameItem);
         sortMenu.add(sortByTimeItem);
@@ -350,6 +746,7 @@ public class HomeView {
         filterMenu.add(filterMissingItem);
         menu.add(sortMenu);
         menu.add(filterMenu);
+        menu.add(contentSearchItem);
         menu.addSeparator();
         menu.add(settingsItem);
         menu.show(menuButton, 0, menuButton.getHeight());
@@ -551,76 +948,30 @@ public class HomeView {
         return System.getProperty("os.name", "").toLowerCase().contains("win");
     }
 
-    private void sortRecords(List<Map.Entry<String, NovelRecord>> records) {
-        if (sortMode == SortMode.NAME) {
-            Collator collator = Collator.getInstance(Locale.CHINA);
-            records.sort((first, second) -> collator.compare(getFileName(first.getKey()), getFileName(second.getKey())));
-            return;
-        }
-
-        records.sort((first, second) -> compareLastReadingTime(first.getValue(), second.getValue()));
+    private boolean matchesGroup(NovelRecord record) {
+        return groupMode == GroupMode.ALL || groupMode == GroupMode.MISSING || GroupMode.progressOf(record) == groupMode;
     }
 
-    private int compareLastReadingTime(NovelRecord first, NovelRecord second) {
-        LocalDateTime firstTime = first == null ? null : first.getLastReadingTime();
-        LocalDateTime secondTime = second == null ? null : second.getLastReadingTime();
-        if (firstTime == null && secondTime == null) {
-            return 0;
-        }
-        if (firstTime == null) {
-            return 1;
-        }
-        if (secondTime == null) {
-            return -1;
-        }
-        return secondTime.compareTo(firstTime);
-    }
-
-    private String getFileName(String filePath) {
-        Path path = Paths.get(filePath);
-        return path.getFileName() == null ? filePath : path.getFileName().toString();
-    }
-
-    private boolean matchesGroup(String path, NovelRecord record) {
+    private boolean matchesFile(String path) {
         switch (groupMode) {
             case UNREAD:
-                return Files.isRegularFile(Paths.get(path)) && isUnread(record);
             case READING:
-                return Files.isRegularFile(Paths.get(path)) && !isUnread(record) && !isFinished(record);
             case FINISHED:
-                return Files.isRegularFile(Paths.get(path)) && isFinished(record);
+                return FileStatus.exists(path);
             case MISSING:
-                return !Files.isRegularFile(Paths.get(path));
+                return !FileStatus.exists(path);
             case ALL:
             default:
                 return true;
         }
     }
 
-    private boolean isFinished(NovelRecord record) {
-        if (record != null && record.getCurrentOffset() != null && record.getTotalLength() != null
-                && record.getTotalLength() > 0 && record.getCurrentOffset() >= record.getTotalLength()) {
-            return true;
-        }
-        if (record == null || record.getCurrentPage() == null || record.getTotalPages() == null || record.getTotalPages() <= 0) {
-            return false;
-        }
-        return record.getCurrentPage() + 1 >= record.getTotalPages();
-    }
-
-    private boolean isUnread(NovelRecord record) {
-        if (record != null && record.getCurrentOffset() != null) {
-            return record.getCurrentOffset() <= 0;
-        }
-        return record == null || record.getCurrentPage() == null || record.getCurrentPage() <= 0;
-    }
-
-    private enum SortMode {
+    enum SortMode {
         NAME,
         LAST_READING_TIME
     }
 
-    private enum GroupMode {
+    enum GroupMode {
         ALL("全部"),
         UNREAD("未读"),
         READING("阅读中"),
@@ -636,16 +987,43 @@ public class HomeView {
         private String getDisplayName() {
             return displayName;
         }
+
+        /**
+         * @return 记录按阅读进度所在的分组：未读、阅读中或已读
+         */
+        static GroupMode progressOf(NovelRecord record) {
+            if (isUnread(record)) {
+                return UNREAD;
+            }
+            return isFinished(record) ? FINISHED : READING;
+        }
+
+        private static boolean isFinished(NovelRecord record) {
+            if (record != null && record.getCurrentOffset() != null && record.getTotalLength() != null
+                    && record.getTotalLength() > 0 && record.getCurrentOffset() >= record.getTotalLength()) {
+                return true;
+            }
+            if (record == null || record.getCurrentPage() == null || record.getTotalPages() == null || record.getTotalPages() <= 0) {
+                return false;
+            }
+            return record.getCurrentPage() + 1 >= record.getTotalPages();
+        }
+
+        private static boolean isUnread(NovelRecord record) {
+            if (record != null && record.getCurrentOffset() != null) {
+                return record.getCurrentOffset() <= 0;
+            }
+            return record == null || record.getCurrentPage() == null || record.getCurrentPage() <= 0;
+        }
     }
 
     private static class SearchField extends JTextField {
         private static final int CLEAR_HIT_SIZE = 24;
-        private final String placeholder;
+        private String placeholder;
         private boolean focused = false;
 
         private SearchField(String placeholder) {
-            this.placeholder = placeholder;
-            setToolTipText(placeholder);
+            setPlaceholder(placeholder);
             setForeground(Color.WHITE);
             setCaretColor(Color.WHITE);
             setFont(new Font("Serif", Font.PLAIN, 14));
@@ -686,6 +1064,12 @@ public class HomeView {
             });
         }
 
+        private void setPlaceholder(String placeholder) {
+            this.placeholder = placeholder;
+            setToolTipText(placeholder);
+            repaint();
+        }
+
         private boolean isClearHit(int x, int y) {
             return StrUtil.isNotBlank(getText()) && x >= getWidth() - CLEAR_HIT_SIZE && y >= 0 && y <= getHeight();
         }
@@ -732,7 +1116,7 @@ public class HomeView {
         }
 
         String oldPath = item.getFullPath();
-        String newPath = fileChooser.getSelectedFile().getAbsolutePath();
+        String newPath = ReadingRecord.normalizePath(fileChooser.getSelectedFile().getAbsolutePath());
         if (StrUtil.isBlank(newPath) || !newPath.toLowerCase().endsWith(".txt")) {
             JOptionPane.showMessageDialog(frame, "无效的文件！", "错误", JOptionPane.ERROR_MESSAGE);
             return;
@@ -749,24 +1133,25 @@ public class HomeView {
             return;
         }
 
-        boolean relocated = ReadingRecord.relocateRecord(frame, oldPath, newPath);
-        if (relocated) {
-            readingData = ReadingRecord.loadRecord(frame);
-            notifyReadingDataChanged();
-            updateNovelList(readingData);
-        } else {
+        if (!readingData.relocateRecord(oldPath, newPath)) {
             JOptionPane.showMessageDialog(frame, "未找到可更新的阅读记录。", "重新定位失败", JOptionPane.WARNING_MESSAGE);
+            return;
         }
+        ReadingRecord.relocateRecord(frame, oldPath, newPath);
+        PageCache.relocate(oldPath, newPath);
+        TextIndex.relocate(oldPath, newPath);
+        notifyReadingDataChanged();
     }
 
     private void deleteNovel(NovelItem item) {
         String path = item.getFullPath();
         int confirm = JOptionPane.showConfirmDialog(frame, "是否删除 “" + item.getFileName() + "” ？", "删除记录", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
-            readingData.getRecords().remove(path);
+            readingData.removeRecord(path);
             ReadingRecord.deleteRecord(frame, path);
+            PageCache.delete(path);
+            TextIndex.delete(path);
             notifyReadingDataChanged();
-            updateNovelList(readingData);
         }
     }
 
@@ -817,12 +1202,7 @@ public class HomeView {
         closeButton.setVisible(true);
         searchField.setVisible(true);
         groupHintLabel.setVisible(groupMode != GroupMode.ALL);
-        if (scrollPane != null) {
-            scrollPane.setVisible(true);
-        }
-        if (emptyResultLabel != null) {
-            emptyResultLabel.setVisible(true);
-        }
+        updateListVisibility();
     }
 
     /**
@@ -836,11 +1216,7 @@ public class HomeView {
         closeButton.setVisible(false);
         searchField.setVisible(false);
         groupHintLabel.setVisible(false);
-        if (scrollPane != null) {
-            scrollPane.setVisible(false);
-        }
-        if (emptyResultLabel != null) {
-            emptyResultLabel.setVisible(false);
-        }
+        scrollPane.setVisible(false);
+        emptyResultLabel.setVisible(false);
     }
 }
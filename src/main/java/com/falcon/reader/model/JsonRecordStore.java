@@ -0,0 +1,360 @@
+package com.falcon.reader.model;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import com.falcon.reader.entity.NovelRecord;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 以 bookmark.json 保存阅读记录
+ * bookmark.json 是完整快照，其中 novels 是以规范化路径为键的对象，查找、更新、删除和重新定位单本小说都按键直接访问；
+ * 旧版本保存的 novels 数组在第一次读取时转换为对象并写回。
+ * 翻页时的阅读进度优先追加到 {@link ProgressJournal}，读取快照时重放日志，每次完整写入快照后清空日志；
+ * 快照通过 {@link SnapshotFile} 原子写入，并在 {@link RecordTable} 中保存二进制副本供启动时读取。
+ * <p>
+ * 同时运行的多个阅读器进程共用这些文件：每次读写都持有 bookmark.lock 上的文件锁，在锁内重新读取快照和日志后修改再写回，
+ * 只修改被保存的那一本小说，其他进程保存的小说不会被覆盖。同一本小说以最后阅读时间较晚的进度为准。
+ * 其他进程完整写入过快照时，本进程的日志索引和已打开的日志文件都已过期，下一次保存改为完整读写快照。
+ *
+ * @author zxy
+ * @date 2026/3/16 09:30
+ **/
+public class JsonRecordStore implements RecordStore {
+
+    /** 存储所有阅读记录及配置的JSON文件名 */
+    static final String BOOKMARK_FILE = "bookmark.json";
+    /** 多个进程读写阅读记录时加锁的文件 */
+    private static final Path LOCK_FILE = Paths.get("bookmark.lock");
+    /** 配置中参与比较的字段，配置变化时翻页也需完整写入快照 */
+    private static final String[] CONFIG_KEYS = {"width", "height", "locationX", "locationY", "font", "fontSize",
+            "fontStyle", "labelForeground"};
+
+    /** 文件锁所在的文件，同一进程内的所有实例共用 */
+    private static FileChannel lockChannel;
+    private static boolean lockUnsupported;
+
+    private final Path path = Paths.get(BOOKMARK_FILE);
+    /** 快照中保存的窗口和文本显示配置 */
+    private String savedConfig;
+    /** 本实例最后一次读取或写入的快照版本，与磁盘上的不同说明其他进程完整写入过快照 */
+    private String snapshotVersion;
+
+    @Override
+    public JSONObject load(Map<String, NovelRecord> records) throws IOException {
+        return locked(() -> readRecords(records));
+    }
+
+    private JSONObject readRecords(Map<String, NovelRecord> records) throws IOException {
+        // 仅当记录文件存在时才执行加载
+        if (!SnapshotFile.exists(path)) {
+            return new JSONObject();
+        }
+
+        // 二进制副本与快照一致时直接读取副本，再重放进度日志
+        RecordTable table = RecordTable.load(path);
+        if (table != null) {
+            ProgressJournal.replay(table.getRecords());
+            records.putAll(table.getRecords());
+            savedConfig = signature(table.getConfig());
+            snapshotVersion = version();
+            return table.getConfig();
+        }
+
+        JSONObject jsonObject = readSnapshot();
+        // 加载所有小说阅读记录，键即规范化后的路径
+        JSONObject novels = getNovels(jsonObject);
+        for (String filePath : novels.keySet()) {
+            NovelRecord novelRecord = BeanUtil.toBean(novels.getJSONObject(filePath), NovelRecord.class);
+            novelRecord.setFilePath(filePath);
+            records.put(filePath, novelRecord);
+        }
+        // 下次启动读取二进制副本；快照已被其他进程改写时副本会与快照内容不符，不再生成
+        String version = snapshotVersion;
+        RecordWriter.submit("table", () -> locked(() -> {
+            if (version.equals(version())) {
+                RecordTable.save(path, jsonObject);
+            }
+            return null;
+        }), null, null);
+        JSONObject config = new JSONObject();
+        for (String key : jsonObject.keySet()) {
+            if (!"novels".equals(key)) {
+                config.set(key, jsonObject.get(key));
+            }
+        }
+        return config;
+    }
+
+    @Override
+    public void saveRecord(JSONObject config, String filePath, int currentPage, Integer totalPages, Integer currentOffset,
+            Integer totalLength, NovelRecord encodingInfo, LocalDateTime lastReadingTime) throws IOException {
+        locked(() -> {
+            writeRecord(config, filePath, currentPage, totalPages, currentOffset, totalLength, encodingInfo,
+                    lastReadingTime);
+            return null;
+        });
+    }
+
+    private void writeRecord(JSONObject config, String filePath, int currentPage, Integer totalPages,
+            Integer currentOffset, Integer totalLength, NovelRecord encodingInfo, LocalDateTime lastReadingTime)
+            throws IOException {
+        // 已有记录的进度更新只追加到日志，日志过长时继续完整写入快照进行压缩
+        if (signature(config).equals(savedConfig) && SnapshotFile.exists(path)
+                && ProgressJournal.append(filePath, currentPage, totalPages, currentOffset, totalLength, encodingInfo,
+                lastReadingTime)
+                && !ProgressJournal.needsCompaction()) {
+            // 刷盘任务排在队尾，已在队列中的其他进度写完后一起刷盘
+            RecordWriter.submit("sync", ProgressJournal::sync, null, null);
+            return;
+        }
+
+        // 如果记录文件不存在，则从空的JSON对象开始
+        JSONObject jsonObject = SnapshotFile.exists(path) ? readSnapshot() : new JSONObject();
+        JSONObject novels = getNovels(jsonObject);
+
+        // 按路径直接取出已有记录，没有则新增一条；其他进程已保存了更晚的进度时保留其进度
+        JSONObject novel = novels.getJSONObject(filePath);
+        if (novel == null) {
+            novel = new JSONObject();
+            novel.set("filePath", filePath);
+            novels.set(filePath, novel);
+        }
+        LocalDateTime savedTime = novel.get("lastReadingTime", LocalDateTime.class);
+        if (savedTime == null || !lastReadingTime.isBefore(savedTime)) {
+            novel.set("currentPage", currentPage);
+            if (totalPages != null && totalPages > 0) {
+                novel.set("totalPages", totalPages);
+            }
+            if (currentOffset != null && currentOffset >= 0) {
+                novel.set("currentOffset", currentOffset);
+            }
+            if (totalLength != null && totalLength > 0) {
+                novel.set("totalLength", totalLength);
+            }
+            setEncodingInfo(novel, encodingInfo);
+            novel.set("lastReadingTime", lastReadingTime);
+        }
+
+        // 保存窗口配置和文本显示配置
+        jsonObject.putAll(config);
+
+        // 将JSON对象写入文件
+        writeSnapshot(jsonObject);
+    }
+
+    private static void setEncodingInfo(JSONObject novel, NovelRecord encodingInfo) {
+        if (encodingInfo == null || StrUtil.isBlank(encodingInfo.getEncoding())) {
+            return;
+        }
+        novel.set("encoding", encodingInfo.getEncoding());
+        novel.set("fileSize", encodingInfo.getFileSize());
+        novel.set("fileModified", encodingInfo.getFileModified());
+        if (encodingInfo.getAnchorOffset() != null && encodingInfo.getAnchorByteOffset() != null) {
+            novel.set("anchorOffset", encodingInfo.getAnchorOffset());
+            novel.set("anchorByteOffset", encodingInfo.getAnchorByteOffset());
+        } else {
+            novel.remove("anchorOffset");
+            novel.remove("anchorByteOffset");
+        }
+    }
+
+    @Override
+    public void saveConfig(JSONObject config) throws IOException {
+        locked(() -> {
+            JSONObject jsonObject = SnapshotFile.exists(path) ? readSnapshot() : new JSONObject();
+            jsonObject.putAll(config);
+            writeSnapshot(jsonObject);
+            return null;
+        });
+    }
+
+    @Override
+    public void removeRecord(String filePath) throws IOException {
+        locked(() -> {
+            deleteRecord(filePath);
+            return null;
+        });
+    }
+
+    private void deleteRecord(String filePath) throws IOException {
+        // 如果记录文件不存在，则从空的JSON对象开始（实际上不会包含任何记录）
+        JSONObject jsonObject = SnapshotFile.exists(path) ? readSnapshot() : new JSONObject();
+
+        // 按路径删除记录，没有该记录时不需要写回
+        if (getNovels(jsonObject).remove(filePath) == null) {
+            return;
+        }
+
+        // 将更新后的JSON写回文件
+        writeSnapshot(jsonObject);
+    }
+
+    @Override
+    public boolean moveRecord(String oldFilePath, String newFilePath) throws IOException {
+        return locked(() -> renameRecord(oldFilePath, newFilePath));
+    }
+
+    private boolean renameRecord(String oldFilePath, String newFilePath) throws IOException {
+        if (!SnapshotFile.exists(path)) {
+            return false;
+        }
+
+        JSONObject jsonObject = readSnapshot();
+        JSONObject novels = getNovels(jsonObject);
+        JSONObject novel = (JSONObject) novels.remove(oldFilePath);
+        if (novel == null) {
+            return false;
+        }
+        novel.set("filePath", newFilePath);
+        novels.set(newFilePath, novel);
+
+        writeSnapshot(jsonObject);
+        return true;
+    }
+
+    /**
+     * 读取快照并重放进度日志，旧版本的记录数组转换为按路径索引的对象后立即写回
+     */
+    private JSONObject readSnapshot() throws IOException {
+        JSONObject jsonObject = SnapshotFile.read(path);
+        savedConfig = signature(jsonObject);
+        snapshotVersion = version();
+        Object novels = jsonObject.get("novels");
+        if (novels instanceof JSONArray) {
+            // 日志按旧记录中的原始路径写入，先按原始路径建立索引重放日志，再规范化路径
+            JSONObject byPath = new JSONObject();
+            for (Object object : (JSONArray) novels) {
+                JSONObject novel = (JSONObject) object;
+                if (StrUtil.isNotBlank(novel.getStr("filePath"))) {
+                    byPath.set(novel.getStr("filePath"), novel);
+                }
+            }
+            ProgressJournal.replay(byPath);
+            jsonObject.set("novels", normalizeKeys(byPath));
+            writeSnapshot(jsonObject);
+            return jsonObject;
+        }
+        ProgressJournal.replay(getNovels(jsonObject));
+        return jsonObject;
+    }
+
+    /**
+     * 按规范化路径重新建立索引，多条记录对应同一文件时保留最后阅读时间较晚的一条
+     */
+    private static JSONObject normalizeKeys(JSONObject byPath) {
+        JSONObject novels = new JSONObject();
+        for (String filePath : byPath.keySet()) {
+            JSONObject novel = byPath.getJSONObject(filePath);
+            String key = ReadingRecord.normalizePath(filePath);
+            JSONObject existing = novels.getJSONObject(key);
+            if (existing != null && !isNewer(novel, existing)) {
+                continue;
+            }
+            novel.set("filePath", key);
+            novels.set(key, novel);
+        }
+        return novels;
+    }
+
+    private static boolean isNewer(JSONObject novel, JSONObject other) {
+        LocalDateTime time = novel.get("lastReadingTime", LocalDateTime.class);
+        LocalDateTime otherTime = other.get("lastReadingTime", LocalDateTime.class);
+        return time != null && (otherTime == null || time.isAfter(otherTime));
+    }
+
+    /**
+     * 取出快照中按路径索引的小说记录，不存在时创建
+     */
+    private static JSONObject getNovels(JSONObject jsonObject) {
+        JSONObject novels = jsonObject.getJSONObject("novels");
+        if (novels == null) {
+            novels = new JSONObject();
+            jsonObject.set("novels", novels);
+        }
+        return novels;
+    }
+
+    /**
+     * 原子地完整写入快照，写入成功后清空进度日志并更新二进制副本
+     */
+    private void writeSnapshot(JSONObject jsonObject) throws IOException {
+        SnapshotFile.write(path, jsonObject);
+        ProgressJournal.reset(getNovels(jsonObject));
+        savedConfig = signature(jsonObject);
+        snapshotVersion = version();
+        RecordTable.save(path, jsonObject);
+    }
+
+    /**
+     * 持有文件锁执行读写，同一时间只有一个进程中的一个线程在读写阅读记录
+     */
+    private <T> T locked(LockedAction<T> action) throws IOException {
+        synchronized (JsonRecordStore.class) {
+            FileLock lock = lock();
+            try {
+                if (!version().equals(snapshotVersion)) {
+                    // 快照已被其他进程改写，日志可能已被删除重建，本次改为完整读写快照
+                    ProgressJournal.reopen();
+                    savedConfig = null;
+                }
+                return action.run();
+            } finally {
+                if (lock != null) {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return 文件锁；文件系统不支持文件锁时返回 null，只在进程内互斥
+     */
+    private static FileLock lock() throws IOException {
+        if (lockUnsupported) {
+            return null;
+        }
+        try {
+            if (lockChannel == null) {
+                lockChannel = FileChannel.open(LOCK_FILE, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            }
+            return lockChannel.lock();
+        } catch (UnsupportedOperationException | IOException e) {
+            e.printStackTrace();
+            lockUnsupported = true;
+            return null;
+        }
+    }
+
+    /**
+     * @return 快照文件的大小、修改时间和校验和；快照不存在时返回空字符串
+     */
+    private String version() throws IOException {
+        if (!Files.exists(path)) {
+            return "";
+        }
+        return Files.size(path) + ":" + Files.getLastModifiedTime(path).toMillis() + ":" + SnapshotFile.checksum(path);
+    }
+
+    private static String signature(JSONObject jsonObject) {
+        StringBuilder signature = new StringBuilder();
+        for (String key : CONFIG_KEYS) {
+            signature.append(jsonObject.getStr(key)).append(',');
+        }
+        return signature.toString();
+    }
+
+    private interface LockedAction<T> {
+        T run() throws IOException;
+    }
+}
@@ -0,0 +1,870 @@
+package com.falcon.reader.model;
+
+import com.falcon.reader.entity.NovelRecord;
+
+import javax.swing.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 书架全文索引
+ * 为书架中的全部小说建立字符二元组倒排表，用于查找哪些书提到了某个词以及在书中的位置。
+ * 索引由 cache/library 下的若干段组成，每段包含若干本书（文档）：段内按二元组排序，
+ * 每个二元组的列表依次记录文档编号的差值、该文档偏移列表的字节数和按差值写成变长整数的偏移，格式与 {@link TextIndex} 相同。
+ * 段写完后不再修改，内存中只保存文档信息和每 {@link #KEY_BLOCK} 个二元组取一个的稀疏目录，
+ * 查找时按目录定位后按位置读出需要的二元组和偏移列表，段的大小不影响内存占用。
+ * <p>
+ * 检查书架时按文件大小和修改时间判断是否需要重新建立，新增或修改过的书在固定数量的后台线程中建立索引
+ * （打开过的书直接使用已保存的单书索引），每本书写成一个新段。同一路径只有与当前文件一致的一份文档有效，
+ * 旧文档和已移出书架的书在合并时去掉；段数超过 {@link #MERGE_FACTOR} 时把最小的几段按二元组顺序流式合并为一段。
+ * 段的登记、检查和合并都在协调线程上依次执行，查找可在任意后台线程进行。
+ *
+ * @author zxy
+ * @date 2026/3/20 15:10
+ **/
+public class LibraryIndex {
+    private static final Path INDEX_DIR = Paths.get("cache", "library");
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x4C494258; // "LIBX"
+    private static final int VERSION = 1;
+    /** 段文件开头固定部分的长度：魔数、版本、二元组数、文档数、三个区域的位置和文件长度 */
+    private static final int PREAMBLE_SIZE = 4 * 4 + 8 * 4;
+    private static final int INDEX_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    /** 段数超过这个值时合并最小的几段 */
+    private static final int MERGE_FACTOR = 8;
+    /** 合并后的段不超过这个大小，段内偏移列表的位置用 int 保存 */
+    private static final long MAX_MERGED_BYTES = 1L << 30;
+    /** 稀疏目录的间隔，查找一个二元组时读取一个间隔内的二元组 */
+    private static final int KEY_BLOCK = 128;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService pool = Executors.newFixedThreadPool(INDEX_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "library-index-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private static final ExecutorService coordinator = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "library-index");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private static final List<Segment> segments = new CopyOnWriteArrayList<>();
+    /** 每个路径当前有效的文档 */
+    private static final ConcurrentMap<String, Document> liveDocuments = new ConcurrentHashMap<>();
+    /** 排队或正在建立索引的路径 */
+    private static final Set<String> indexing = ConcurrentHashMap.newKeySet();
+    private static final AtomicLong nextGeneration = new AtomicLong();
+    /** 合并的次数，查找期间发生合并时重新查找 */
+    private static final AtomicLong mergeCount = new AtomicLong();
+    private static final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private static final AtomicBoolean notifyScheduled = new AtomicBoolean();
+    /** 最近一次检查时书架中的路径，只在协调线程上访问 */
+    private static Set<String> shelf = Collections.emptySet();
+    /** 只在协调线程上访问 */
+    private static boolean loaded;
+
+    /**
+     * 段中的一本书
+     */
+    private static class Document {
+        private final String filePath;
+        private final long fileSize;
+        private final long fileModified;
+        private final String encoding;
+        private final TextCheckpoints checkpoints;
+
+        private Document(String filePath, long fileSize, long fileModified, String encoding, TextCheckpoints checkpoints) {
+            this.filePath = filePath;
+            this.fileSize = fileSize;
+            this.fileModified = fileModified;
+            this.encoding = encoding;
+            this.checkpoints = checkpoints;
+        }
+
+        private boolean isLive() {
+            return liveDocuments.get(filePath) == this;
+        }
+    }
+
+    /**
+     * 一个段文件，只保存文档信息和稀疏目录
+     */
+    private static class Segment {
+        private final Path path;
+        private final long generation;
+        private final List<Document> documents;
+        private final int keyCount;
+        private final long keysPosition;
+        private final long startsPosition;
+        private final long postingsPosition;
+        private final long length;
+        /** 第 i 项为第 i * KEY_BLOCK 个二元组 */
+        private final int[] sampledKeys;
+
+        private Segment(Path path, long generation, List<Document> documents, int keyCount, long keysPosition,
+                long startsPosition, long postingsPosition, long length, int[] sampledKeys) {
+            this.path = path;
+            this.generation = generation;
+            this.documents = documents;
+            this.keyCount = keyCount;
+            this.keysPosition = keysPosition;
+            this.startsPosition = startsPosition;
+            this.postingsPosition = postingsPosition;
+            this.length = length;
+            this.sampledKeys = sampledKeys;
+        }
+
+        /**
+         * 读取一个二元组的列表
+         *
+         * @return 列表的全部字节；段中没有该二元组时返回 null
+         */
+        private byte[] readPostings(FileChannel channel, int key) throws IOException {
+            int block = Arrays.binarySearch(sampledKeys, key);
+            if (block < 0) {
+                block = -block - 2;
+                if (block < 0) {
+                    return null;
+                }
+            }
+            int from = block * KEY_BLOCK;
+            int count = Math.min(KEY_BLOCK, keyCount - from);
+            ByteBuffer keys = read(channel, keysPosition + 4L * from, 4 * count);
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int value = keys.getInt(middle * 4);
+                if (value < key) {
+                    low = middle + 1;
+                } else if (value > key) {
+                    high = middle - 1;
+                } else {
+                    ByteBuffer starts = read(channel, startsPosition + 4L * (from + middle), 8);
+                    int start = starts.getInt(0);
+                    return read(channel, postingsPosition + start, starts.getInt(4) - start).array();
+                }
+            }
+            return null;
+        }
+
+        private int liveCount() {
+            int count = 0;
+            for (Document document : documents) {
+                if (document.isLive()) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * 逐条读取二元组列表中各文档的偏移列表
+     */
+    private static class Cursor {
+        private final byte[] bytes;
+        private int position;
+        private int documentId;
+        private int start;
+        private int end;
+
+        private Cursor(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * @return 读到下一条返回 true，已到列表末尾返回 false
+         */
+        private boolean next() {
+            if (position >= bytes.length) {
+                return false;
+            }
+            documentId += readVarInt();
+            int length = readVarInt();
+            start = position;
+            end = position + length;
+            position = end;
+            return true;
+        }
+
+        /**
+         * 前进到指定文档的偏移列表
+         *
+         * @return 列表中有该文档时返回 true
+         */
+        private boolean seek(int target) {
+            while ((end == 0 || documentId < target) && next()) {
+                // 文档编号升序
+            }
+            return end != 0 && documentId == target;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+
+    /**
+     * 检查书架中的书，新增或修改过的书在后台建立索引，已移出书架的书不再出现在结果中
+     *
+     * @param records 阅读记录，其中缓存的编码在文件未变化时直接使用
+     */
+    public static void refresh(Map<String, NovelRecord> records) {
+        // 在调用线程上复制编码缓存字段，后台线程不读取界面线程上的记录
+        Map<String, NovelRecord> snapshot = new HashMap<>(records.size() * 2);
+        records.forEach((filePath, record) -> {
+            NovelRecord copy = new NovelRecord();
+            if (record != null) {
+                copy.setEncoding(record.getEncoding());
+                copy.setFileSize(record.getFileSize());
+                copy.setFileModified(record.getFileModified());
+            }
+            snapshot.put(filePath, copy);
+        });
+        coordinator.execute(() -> scan(snapshot));
+    }
+
+    /**
+     * @return 排队或正在建立索引的书数，为 0 时书架中的书都已可以查找
+     */
+    public static int getPendingCount() {
+        return indexing.size();
+    }
+
+    /**
+     * 添加监听器，有书建立完索引或索引进度变化时在事件分发线程上调用
+     */
+    public static void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 在书架的全部书中查找关键字，查找期间段被合并时以新的段重新查找
+     *
+     * @param keyword        关键字，不区分大小写，至少两个字符
+     * @param maxHitsPerBook 每本书最多返回的命中数
+     * @return 书的路径到命中位置的映射，命中按偏移升序并带有摘要
+     * @throws IOException 读取索引失败
+     */
+    public static Map<String, List<TextIndex.Hit>> search(String keyword, int maxHitsPerBook) throws IOException {
+        if (keyword == null || keyword.length() < 2 || maxHitsPerBook <= 0) {
+            return Collections.emptyMap();
+        }
+        int[] bigrams = new int[keyword.length() - 1];
+        for (int i = 0; i < bigrams.length; i++) {
+            bigrams[i] = TextIndex.bigram(keyword.charAt(i), keyword.charAt(i + 1));
+        }
+        Map<Document, int[]> found = new LinkedHashMap<>();
+        // 合并时先切换有效文档再删除旧段，期间取到的段列表可能漏掉新段中的书或读到已删除的段
+        for (int attempt = 0; ; attempt++) {
+            found.clear();
+            long merges = mergeCount.get();
+            try {
+                for (Segment segment : segments) {
+                    try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+                        searchSegment(segment, channel, bigrams, keyword.length(), maxHitsPerBook, found);
+                    }
+                }
+                if (merges == mergeCount.get() || attempt >= 2) {
+                    break;
+                }
+            } catch (NoSuchFileException e) {
+                if (attempt >= 2) {
+                    throw e;
+                }
+            }
+        }
+
+        Map<String, List<TextIndex.Hit>> results = new LinkedHashMap<>();
+        for (Map.Entry<Document, int[]> entry : found.entrySet()) {
+            Document document = entry.getKey();
+            int[] offsets = entry.getValue();
+            try {
+                List<TextIndex.Hit> hits = TextIndex.snippets(document.filePath, Charset.forName(document.encoding),
+                        document.checkpoints, offsets, offsets.length, keyword.length());
+                if (!hits.isEmpty()) {
+                    results.put(document.filePath, hits);
+                }
+            } catch (IOException e) {
+                // 文件在建立索引后被删除，下次检查书架时去掉
+                e.printStackTrace();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 在一个段中查找：逐个取最少的列表中的有效文档，在其他列表中找到同一文档后按位置核对
+     */
+    private static void searchSegment(Segment segment, FileChannel channel, int[] bigrams, int length, int maxHits,
+            Map<Document, int[]> found) throws IOException {
+        Cursor[] cursors = new Cursor[bigrams.length];
+        int rarest = 0;
+        for (int i = 0; i < bigrams.length; i++) {
+            byte[] postings = segment.readPostings(channel, bigrams[i]);
+            if (postings == null) {
+                return;
+            }
+            cursors[i] = new Cursor(postings);
+            if (postings.length < cursors[rarest].bytes.length) {
+                rarest = i;
+            }
+        }
+        Cursor driver = cursors[rarest];
+        while (driver.next()) {
+            Document document = segment.documents.get(driver.documentId);
+            if (!document.isLive()) {
+                continue;
+            }
+            int[] candidates = TextIndex.decode(driver.bytes, driver.start, driver.end, Integer.MAX_VALUE);
+            int count = TextIndex.shift(candidates, candidates.length, rarest);
+            for (int i = 0; i < cursors.length && count > 0; i++) {
+                if (i == rarest) {
+                    continue;
+                }
+                Cursor cursor = cursors[i];
+                count = cursor.seek(driver.documentId)
+                        ? TextIndex.retain(candidates, count, cursor.bytes, cursor.start, cursor.end, i) : 0;
+            }
+            count = TextIndex.removeOverlaps(candidates, count, length, maxHits);
+            if (count > 0) {
+                found.put(document, Arrays.copyOf(candidates, count));
+            }
+        }
+    }
+
+    private static void scan(Map<String, NovelRecord> records) {
+        ensureLoaded();
+        shelf = records.keySet();
+        liveDocuments.keySet().removeIf(filePath -> !shelf.contains(filePath));
+        for (Map.Entry<String, NovelRecord> entry : records.entrySet()) {
+            String filePath = entry.getKey();
+            // 与 EncodingCache 相同的方式读取大小和修改时间，两边的比较才一致
+            File file = new File(filePath);
+            Document live = liveDocuments.get(filePath);
+            if (!file.isFile()) {
+                liveDocuments.remove(filePath);
+            } else if (live == null || live.fileSize != file.length() || live.fileModified != file.lastModified()) {
+                liveDocuments.remove(filePath);
+                if (indexing.add(filePath)) {
+                    pool.execute(() -> index(filePath, entry.getValue()));
+                }
+            }
+        }
+        mergeSegments();
+        notifyListeners();
+    }
+
+    /**
+     * 为一本书建立索引并写成一个新段，在协调线程上登记
+     */
+    private static void index(String filePath, NovelRecord record) {
+        try {
+            String encoding = EncodingCache.resolve(filePath, record);
+            TextIndex textIndex = TextIndex.load(filePath, record);
+            if (textIndex == null) {
+                textIndex = TextIndex.build(filePath, encoding);
+            }
+            if (textIndex != null) {
+                Document document = new Document(filePath, record.getFileSize(), record.getFileModified(), encoding,
+                        textIndex.getCheckpoints());
+                Segment segment = writeSegment(document, textIndex);
+                coordinator.execute(() -> register(segment));
+                return;
+            }
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+        }
+        indexing.remove(filePath);
+        notifyListeners();
+    }
+
+    private static void register(Segment segment) {
+        segments.add(segment);
+        for (Document document : segment.documents) {
+            // 建立索引期间移出书架的书不再登记，段在下面的合并中删除
+            if (shelf.contains(document.filePath)) {
+                liveDocuments.put(document.filePath, document);
+            }
+            indexing.remove(document.filePath);
+        }
+        mergeSegments();
+        notifyListeners();
+    }
+
+    /**
+     * 删除没有有效文档的段，有效文档不到一半的段重写为只有有效文档的段；
+     * 段数超过 {@link #MERGE_FACTOR} 时把最小的几段合并为一段
+     */
+    private static void mergeSegments() {
+        for (Segment segment : segments) {
+            int live = segment.liveCount();
+            if (live == 0) {
+                segments.remove(segment);
+                deleteQuietly(segment.path);
+            } else if (live * 2 <= segment.documents.size() && !replace(Collections.singletonList(segment))) {
+                return;
+            }
+        }
+        while (segments.size() > MERGE_FACTOR) {
+            List<Segment> candidates = new ArrayList<>(segments);
+            candidates.sort(Comparator.comparingLong(segment -> segment.length));
+            List<Segment> selected = new ArrayList<>();
+            long total = 0;
+            for (Segment segment : candidates) {
+                if (selected.size() == MERGE_FACTOR || total + segment.length > MAX_MERGED_BYTES) {
+                    break;
+                }
+                selected.add(segment);
+                total += segment.length;
+            }
+            if (selected.size() < 2 || !replace(selected)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 把几段合并为一段并替换它们
+     *
+     * @return 合并失败时返回 false，原来的段不变
+     */
+    private static boolean replace(List<Segment> selected) {
+        Segment merged;
+        try {
+            merged = merge(selected);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        // 先加入新段并切换有效文档，再移除旧段，查找期间同一本书只有一份有效文档
+        segments.add(merged);
+        for (Document document : merged.documents) {
+            liveDocuments.put(document.filePath, document);
+        }
+        segments.removeAll(selected);
+        mergeCount.incrementAndGet();
+        for (Segment segment : selected) {
+            deleteQuietly(segment.path);
+        }
+        return true;
+    }
+
+    /**
+     * 按二元组顺序同时读取各段，只保留有效文档并重新编号。偏移列表先写入临时文件，二元组和位置保存在内存中
+     */
+    private static Segment merge(List<Segment> inputs) throws IOException {
+        List<Document> documents = new ArrayList<>();
+        int[][] documentIds = new int[inputs.size()][];
+        for (int i = 0; i < inputs.size(); i++) {
+            List<Document> inputDocuments = inputs.get(i).documents;
+            documentIds[i] = new int[inputDocuments.size()];
+            for (int j = 0; j < inputDocuments.size(); j++) {
+                Document document = inputDocuments.get(j);
+                documentIds[i][j] = document.isLive() ? documents.size() : -1;
+                if (document.isLive()) {
+                    documents.add(new Document(document.filePath, document.fileSize, document.fileModified,
+                            document.encoding, document.checkpoints));
+                }
+            }
+        }
+
+        long generation = nextGeneration.getAndIncrement();
+        Path postingsFile = INDEX_DIR.resolve(generation + ".postings" + TEMP_SUFFIX);
+        IntList keys = new IntList();
+        IntList starts = new IntList();
+        List<SegmentReader> readers = new ArrayList<>();
+        try {
+            for (Segment input : inputs) {
+                readers.add(new SegmentReader(input));
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(postingsFile)))) {
+                while (true) {
+                    boolean found = false;
+                    int key = 0;
+                    for (SegmentReader reader : readers) {
+                        if (reader.hasKey() && (!found || reader.key < key)) {
+                            key = reader.key;
+                            found = true;
+                        }
+                    }
+                    if (!found) {
+                        break;
+                    }
+                    int start = out.size();
+                    int previous = 0;
+                    for (int i = 0; i < readers.size(); i++) {
+                        SegmentReader reader = readers.get(i);
+                        if (!reader.hasKey() || reader.key != key) {
+                            continue;
+                        }
+                        Cursor cursor = new Cursor(reader.readPostings());
+                        while (cursor.next()) {
+                            int id = documentIds[i][cursor.documentId];
+                            if (id >= 0) {
+                                PageCache.writeVarLong(out, id - previous);
+                                PageCache.writeVarLong(out, cursor.end - cursor.start);
+                                out.write(cursor.bytes, cursor.start, cursor.end - cursor.start);
+                                previous = id;
+                            }
+                        }
+                        reader.nextKey();
+                    }
+                    if (out.size() > start) {
+                        keys.add(key);
+                        starts.add(start);
+                    }
+                }
+                starts.add(out.size());
+            }
+            return writeSegment(generation, documents, keys.values, starts.values, keys.size,
+                    out -> Files.copy(postingsFile, out));
+        } finally {
+            for (SegmentReader reader : readers) {
+                reader.close();
+            }
+            deleteQuietly(postingsFile);
+        }
+    }
+
+    /**
+     * 把单书索引写成只有一个文档的段，每个二元组的列表前加上文档编号 0 和字节数
+     */
+    private static Segment writeSegment(Document document, TextIndex textIndex) throws IOException {
+        int[] keys = textIndex.getKeys();
+        int[] postingStarts = textIndex.getPostingStarts();
+        byte[] postings = textIndex.getPostings();
+        int[] starts = new int[keys.length + 1];
+        for (int i = 0; i < keys.length; i++) {
+            int length = postingStarts[i + 1] - postingStarts[i];
+            starts[i + 1] = starts[i] + 1 + varIntSize(length) + length;
+        }
+        return writeSegment(nextGeneration.getAndIncrement(), Collections.singletonList(document), keys, starts,
+                keys.length, out -> {
+                    DataOutputStream data = new DataOutputStream(out);
+                    for (int i = 0; i < keys.length; i++) {
+                        int length = postingStarts[i + 1] - postingStarts[i];
+                        data.writeByte(0);
+                        PageCache.writeVarLong(data, length);
+                        data.write(postings, postingStarts[i], length);
+                    }
+                    data.flush();
+                });
+    }
+
+    /**
+     * 写入偏移列表区域
+     */
+    private interface PostingsWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * 写入一个段，先写入临时文件再改名，写入中断时不会留下不完整的段
+     *
+     * @param starts 各二元组列表在偏移列表区域中的起始位置，最后一项为区域长度
+     */
+    private static Segment writeSegment(long generation, List<Document> documents, int[] keys, int[] starts,
+            int keyCount, PostingsWriter postings) throws IOException {
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        for (Document document : documents) {
+            header.writeUTF(document.filePath);
+            header.writeLong(document.fileSize);
+            header.writeLong(document.fileModified);
+            header.writeUTF(document.encoding);
+            TextCheckpoints checkpoints = document.checkpoints;
+            header.writeInt(checkpoints.size());
+            int previous = 0;
+            long previousByte = 0;
+            for (int i = 0; i < checkpoints.size(); i++) {
+                PageCache.writeVarLong(header, checkpoints.offset(i) - previous);
+                PageCache.writeVarLong(header, checkpoints.byteOffset(i) - previousByte);
+                previous = checkpoints.offset(i);
+                previousByte = checkpoints.byteOffset(i);
+            }
+        }
+        int[] sampledKeys = new int[(keyCount + KEY_BLOCK - 1) / KEY_BLOCK];
+        for (int i = 0; i < sampledKeys.length; i++) {
+            sampledKeys[i] = keys[i * KEY_BLOCK];
+            header.writeInt(sampledKeys[i]);
+        }
+        header.flush();
+
+        long keysPosition = PREAMBLE_SIZE + headerBytes.size();
+        long startsPosition = keysPosition + 4L * keyCount;
+        long postingsPosition = startsPosition + 4L * (keyCount + 1);
+        long length = postingsPosition + starts[keyCount];
+
+        Files.createDirectories(INDEX_DIR);
+        Path path = INDEX_DIR.resolve(generation + SEGMENT_SUFFIX);
+        Path temp = path.resolveSibling(path.getFileName() + TEMP_SUFFIX);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(keyCount);
+                out.writeInt(documents.size());
+                out.writeLong(keysPosition);
+                out.writeLong(startsPosition);
+                out.writeLong(postingsPosition);
+                out.writeLong(length);
+                headerBytes.writeTo(out);
+                for (int i = 0; i < keyCount; i++) {
+                    out.writeInt(keys[i]);
+                }
+                for (int i = 0; i <= keyCount; i++) {
+                    out.writeInt(starts[i]);
+                }
+                postings.writeTo(out);
+            }
+            if (Files.size(temp) != length) {
+                throw new IOException("索引段长度不符: " + temp);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            deleteQuietly(temp);
+        }
+        return new Segment(path, generation, documents, keyCount, keysPosition, startsPosition, postingsPosition, length,
+                sampledKeys);
+    }
+
+    private static Segment readSegment(Path path, long generation) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("索引段格式不符: " + path);
+            }
+            int keyCount = in.readInt();
+            int documentCount = in.readInt();
+            long keysPosition = in.readLong();
+            long startsPosition = in.readLong();
+            long postingsPosition = in.readLong();
+            long length = in.readLong();
+            if (length != Files.size(path)) {
+                throw new IOException("索引段长度不符: " + path);
+            }
+            List<Document> documents = new ArrayList<>(documentCount);
+            for (int i = 0; i < documentCount; i++) {
+                String filePath = in.readUTF();
+                long fileSize = in.readLong();
+                long fileModified = in.readLong();
+                String encoding = in.readUTF();
+                int checkpointCount = in.readInt();
+                TextCheckpoints checkpoints = new TextCheckpoints();
+                int offset = 0;
+                long byteOffset = 0;
+                for (int j = 0; j < checkpointCount; j++) {
+                    offset += PageCache.readVarInt(in);
+                    byteOffset += PageCache.readVarLong(in);
+                    checkpoints.add(offset, byteOffset);
+                }
+                documents.add(new Document(filePath, fileSize, fileModified, encoding, checkpoints));
+            }
+            int[] sampledKeys = new int[(keyCount + KEY_BLOCK - 1) / KEY_BLOCK];
+            for (int i = 0; i < sampledKeys.length; i++) {
+                sampledKeys[i] = in.readInt();
+            }
+            return new Segment(path, generation, documents, keyCount, keysPosition, startsPosition, postingsPosition,
+                    length, sampledKeys);
+        }
+    }
+
+    /**
+     * 第一次检查书架时读取已有的段；同一路径出现在多个段中时以最新的段为准，随后的检查再与当前文件比较
+     */
+    private static void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        List<Segment> found = new ArrayList<>();
+        long maxGeneration = -1;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(INDEX_DIR)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    deleteQuietly(path);
+                    continue;
+                }
+                if (!name.endsWith(SEGMENT_SUFFIX)) {
+                    continue;
+                }
+                try {
+                    long generation = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                    maxGeneration = Math.max(maxGeneration, generation);
+                    found.add(readSegment(path, generation));
+                } catch (IOException | RuntimeException e) {
+                    e.printStackTrace();
+                    deleteQuietly(path);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // 还没有建立过索引
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        found.sort(Comparator.comparingLong(segment -> segment.generation));
+        for (Segment segment : found) {
+            for (Document document : segment.documents) {
+                liveDocuments.put(document.filePath, document);
+            }
+        }
+        segments.addAll(found);
+        nextGeneration.set(maxGeneration + 1);
+    }
+
+    private static void notifyListeners() {
+        if (notifyScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                notifyScheduled.set(false);
+                for (Runnable listener : listeners) {
+                    listener.run();
+                }
+            });
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("索引段不完整");
+            }
+        }
+        return buffer;
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 合并时顺序读取一个段的二元组、位置和偏移列表
+     */
+    private static class SegmentReader implements Closeable {
+        private final Segment segment;
+        private final DataInputStream keys;
+        private final DataInputStream starts;
+        private final DataInputStream postings;
+        private int index;
+        private int key;
+        private int start;
+        private int end;
+        private byte[] buffer = new byte[1024];
+
+        private SegmentReader(Segment segment) throws IOException {
+            this.segment = segment;
+            this.keys = open(segment.keysPosition);
+            this.starts = open(segment.startsPosition);
+            this.postings = open(segment.postingsPosition);
+            this.end = starts.readInt();
+            read();
+        }
+
+        private DataInputStream open(long position) throws IOException {
+            FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ);
+            channel.position(position);
+            return new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+        }
+
+        private boolean hasKey() {
+            return index < segment.keyCount;
+        }
+
+        private void read() throws IOException {
+            if (hasKey()) {
+                key = keys.readInt();
+                start = end;
+                end = starts.readInt();
+            }
+        }
+
+        /**
+         * @return 当前二元组的列表，下一次读取时会被覆盖
+         */
+        private byte[] readPostings() throws IOException {
+            int length = end - start;
+            if (buffer.length < length) {
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+            }
+            postings.readFully(buffer, 0, length);
+            return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+        }
+
+        private void nextKey() throws IOException {
+            index++;
+            read();
+        }
+
+        @Override
+        public void close() {
+            for (Closeable stream : new Closeable[]{keys, starts, postings}) {
+                try {
+                    stream.close();
+                } catch (IOException ignored) {
+                    // 只读文件
+                }
+            }
+        }
+    }
+
+    /**
+     * 只增不减的 int 数组
+     */
+    private static class IntList {
+        private int[] values = new int[1024];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.falcon.reader.model;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 基于内存映射文件的文本来源
+ * 文件按 {@link #MAP_WINDOW} 大小分段映射，字节直接从映射区解码到可复用的字符缓冲区，
+ * 行切分在缓冲区上原地完成，不经过 InputStreamReader/BufferedReader，也不为每行创建 String。
+ * 无法解码的字节按 InputStreamReader 的方式替换为替换字符。
+ * <p>
+ * 对于换行符编码为单字节 0x0A 且该字节不会出现在多字节字符内部的编码（GBK、Big5、UTF-8、EUC 等），
+ * 以及按 2 字节对齐查找换行符的 UTF-16，每次解码的字节块都截止到某个换行符之后，因此块边界总是行首，
+ * 且其字节偏移精确可知，可通过 {@link #lineByteOffset()} 记录为检查点，之后从该字节偏移重新打开即可跳过前面的内容。
+ *
+ * @author zxy
+ * @date 2026/3/5 10:20
+ **/
+public class MappedTextSource implements TextSource {
+    /** 单次映射的最大字节数 */
+    private static final long MAP_WINDOW = 64L * 1024 * 1024;
+    /** 字符缓冲区初始大小，遇到超长行时自动扩容 */
+    private static final int CHAR_BUFFER_SIZE = 64 * 1024;
+    /** 按行对齐解码时每次解码的最大字节数 */
+    private static final int DECODE_CHUNK = 32 * 1024;
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final CharsetDecoder decoder;
+    private final long fileSize;
+    private final int newlineWidth;      // 换行符的字节数，0 表示不支持按行对齐
+    private final boolean littleEndian;  // UTF-16 的字节序
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long windowEnd;
+    private boolean endOfInput;
+
+    private char[] chars = new char[CHAR_BUFFER_SIZE];
+    private int limit;        // 缓冲区中已解码字符的末尾
+    private int scanPos;      // 下一次查找换行符的位置
+    private int lineStart;
+    private int lineEnd;
+    private int nextLineStart;
+    private long lineByteOffset;
+    private int boundaryIndex;  // 最近一个行对齐解码块在缓冲区中的起始下标，-1 表示没有
+    private long boundaryByte;  // 该解码块的起始字节偏移
+
+    public MappedTextSource(String filePath, String encoding) throws IOException {
+        this(filePath, Charset.forName(encoding));
+    }
+
+    public MappedTextSource(String filePath, Charset charset) throws IOException {
+        this(filePath, charset, 0);
+    }
+
+    /**
+     * 从指定字节偏移开始读取
+     *
+     * @param filePath  小说文件路径
+     * @param charset   文件编码
+     * @param startByte 起始字节偏移，必须是之前由 {@link #lineByteOffset()} 得到的行首；非 0 时要求编码支持按行对齐
+     * @throws IOException 文件无法打开
+     */
+    public MappedTextSource(String filePath, Charset charset, long startByte) throws IOException {
+        this.newlineWidth = newlineWidth(charset);
+        if (startByte != 0 && newlineWidth == 0) {
+            throw new IllegalArgumentException("编码 " + charset.name() + " 不支持从文件中间开始读取");
+        }
+        this.channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.littleEndian = newlineWidth == 2 && isLittleEndian(charset);
+        if (startByte != 0 && newlineWidth == 2) {
+            // 从文件中间开始时已读不到 BOM，按文件开头的 BOM 确定的字节序解码
+            charset = littleEndian ? StandardCharsets.UTF_16LE : StandardCharsets.UTF_16BE;
+        }
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.windowEnd = Math.min(startByte, fileSize);
+        this.endOfInput = windowEnd >= fileSize;
+        this.boundaryIndex = 0;
+        this.boundaryByte = windowEnd;
+    }
+
+    /**
+     * 判断编码能否按行对齐解码：UTF-16，或换行符编码为单字节 0x0A 的无状态编码（排除 ISO-2022 系列）
+     *
+     * @param charset 文件编码
+     * @return 能否从任意换行符之后开始独立解码
+     */
+    public static boolean isLineAligned(Charset charset) {
+        return newlineWidth(charset) > 0;
+    }
+
+    private static int newlineWidth(Charset charset) {
+        String name = charset.name();
+        if ("UTF-16".equals(name) || "UTF-16BE".equals(name) || "UTF-16LE".equals(name)) {
+            return 2;
+        }
+        if (!charset.canEncode() || name.contains("2022")) {
+            return 0;
+        }
+        try {
+            ByteBuffer newline = charset.newEncoder().encode(CharBuffer.wrap("\r\n"));
+            return newline.remaining() == 2 && newline.get(0) == '\r' && newline.get(1) == '\n' ? 1 : 0;
+        } catch (CharacterCodingException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * UTF-16LE 或以 FF FE 开头的 UTF-16 文件为小端，其余按 Java 的默认规则视为大端
+     */
+    private boolean isLittleEndian(Charset charset) throws IOException {
+        if (!"UTF-16".equals(charset.name())) {
+            return "UTF-16LE".equals(charset.name());
+        }
+        ByteBuffer bom = ByteBuffer.allocate(2);
+        while (bom.hasRemaining() && channel.read(bom, bom.position()) > 0) {
+            // 读取文件开头的 BOM
+        }
+        return bom.position() == 2 && (bom.get(0) & 0xFF) == 0xFF && (bom.get(1) & 0xFF) == 0xFE;
+    }
+
+    @Override
+    public boolean nextLine() throws IOException {
+        lineStart = nextLineStart;
+        lineByteOffset = lineStart == boundaryIndex ? boundaryByte : -1;
+        int i = Math.max(scanPos, lineStart);
+        while (true) {
+            char[] buf = chars;
+            int end = limit;
+            while (i < end && buf[i] != '\n' && buf[i] != '\r') {
+                i++;
+            }
+            if (i < end) {
+                if (buf[i] == '\n') {
+                    return endLine(i, i + 1);
+                }
+                // \r\n 视为一个换行；\r 位于缓冲区末尾时先补充数据再判断
+                if (i + 1 < end) {
+                    return endLine(i, buf[i + 1] == '\n' ? i + 2 : i + 1);
+                }
+                if (endOfInput) {
+                    return endLine(i, i + 1);
+                }
+            } else if (endOfInput) {
+                if (lineStart < end) {
+                    return endLine(end, end);
+                }
+                scanPos = end;
+                return false;
+            }
+            scanPos = i;
+            fill();
+            i = scanPos;
+        }
+    }
+
+    private boolean endLine(int end, int next) {
+        lineEnd = end;
+        nextLineStart = next;
+        scanPos = next;
+        return true;
+    }
+
+    @Override
+    public char[] buffer() {
+        return chars;
+    }
+
+    @Override
+    public int lineStart() {
+        return lineStart;
+    }
+
+    @Override
+    public int lineEnd() {
+        return lineEnd;
+    }
+
+    @Override
+    public long lineByteOffset() {
+        return lineByteOffset;
+    }
+
+    /**
+     * 丢弃已读完的行并继续解码，直到缓冲区中出现新字符或输入结束
+     */
+    private void fill() throws IOException {
+        if (lineStart > 0) {
+            int remaining = limit - lineStart;
+            System.arraycopy(chars, lineStart, chars, 0, remaining);
+            scanPos -= lineStart;
+            nextLineStart -= lineStart;
+            boundaryIndex = boundaryIndex >= lineStart ? boundaryIndex - lineStart : -1;
+            lineStart = 0;
+            limit = remaining;
+        }
+        if (limit == chars.length) {
+            chars = Arrays.copyOf(chars, chars.length * 2);
+        }
+
+        int before = limit;
+        while (limit == before && !endOfInput) {
+            if (window == null || !window.hasRemaining()) {
+                if (windowEnd >= fileSize) {
+                    flushDecoder();
+                    break;
+                }
+                mapWindow(windowEnd);
+            }
+            boolean lastWindow = windowEnd >= fileSize;
+            CharBuffer out = CharBuffer.wrap(chars, limit, chars.length - limit);
+            int cut = newlineWidth > 0 ? lineAlignedCut() : -1;
+            CoderResult result;
+            if (cut >= 0) {
+                int windowLimit = window.limit();
+                ((Buffer) window).limit(cut);
+                result = decoder.decode(window, out, false);
+                ((Buffer) window).limit(windowLimit);
+                limit = out.position();
+                if (window.position() == cut) {
+                    // 整块解码完成，块末尾是换行符，下一个字符就是行首
+                    boundaryIndex = limit;
+                    boundaryByte = windowStart + cut;
+                } else if (result.isOverflow() && limit == before) {
+                    // 剩余空间放不下下一个字符（例如只剩一格时遇到增补字符）
+                    chars = Arrays.copyOf(chars, chars.length * 2);
+                }
+                continue;
+            }
+            // 接下来一块中没有换行符（超长行）时映射区后面还有内容，只有真正的最后一块才表示输入结束，
+            // 否则解码器进入结束状态后不能再继续解码
+            boolean finalChunk = lastWindow && window.remaining() <= DECODE_CHUNK;
+            result = decoder.decode(window, out, finalChunk);
+            limit = out.position();
+            if (result.isUnderflow() && window.hasRemaining() && !lastWindow) {
+                // 映射区末尾只剩半个字符，从该字符开始重新映射
+                mapWindow(windowStart + window.position());
+            } else if (result.isUnderflow() && finalChunk && !window.hasRemaining()) {
+                flushDecoder();
+            } else if (result.isOverflow() && limit == before) {
+                chars = Arrays.copyOf(chars, chars.length * 2);
+            }
+        }
+    }
+
+    /**
+     * 在映射区剩余内容的前 {@link #DECODE_CHUNK} 字节中查找最后一个换行符
+     *
+     * @return 该换行符之后的位置；找不到或剩余内容已不足一块时返回 -1，按普通方式解码
+     */
+    private int lineAlignedCut() {
+        int from = window.position();
+        int to = from + DECODE_CHUNK;
+        if (to >= window.limit()) {
+            return -1;
+        }
+        if (newlineWidth == 1) {
+            for (int i = to - 1; i >= from; i--) {
+                if (window.get(i) == '\n') {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+        // UTF-16：只在文件偏移为偶数的位置查找 00 0A（大端）或 0A 00（小端）
+        int high = littleEndian ? 1 : 0;
+        for (int i = (to - 2) - (int) ((windowStart + to) & 1); i >= from; i -= 2) {
+            if (window.get(i + high) == 0 && window.get(i + 1 - high) == '\n') {
+                return i + 2;
+            }
+        }
+        return -1;
+    }
+
+    private void mapWindow(long start) throws IOException {
+        long length = Math.min(MAP_WINDOW, fileSize - start);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        windowStart = start;
+        windowEnd = start + length;
+    }
+
+    private void flushDecoder() {
+        CharBuffer out = CharBuffer.wrap(chars, limit, chars.length - limit);
+        // 最后一次解码可能没有标记输入结束，flush 之前先补上
+        decoder.decode(EMPTY, out, true);
+        decoder.flush(out);
+        limit = out.position();
+        endOfInput = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,233 @@
+package com.falcon.reader.model;
+
+import cn.hutool.crypto.SecureUtil;
+import com.falcon.reader.entity.Chapter;
+import com.falcon.reader.entity.NovelRecord;
+
+import java.awt.*;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 分页结果的磁盘缓存
+ * 每本小说一个二进制缓存文件（文件名为路径的 SHA-1），只保留最近一次的布局，保存页起始偏移、文本检查点和章节；
+ * 文件头记录文件大小、修改时间、编码以及字体名称、样式、字号和显示区域宽高，
+ * 全部一致时才视为命中，否则按未命中处理，重新分页后覆盖。
+ * <p>
+ * 偏移按与前一项的差值写成变长整数，校验和不符或格式错误的缓存同样视为未命中。
+ *
+ * @author zxy
+ * @date 2026/3/8 14:20
+ **/
+public class PageCache {
+    /** 缓存目录，与阅读记录文件同在工作目录下 */
+    static final Path CACHE_DIR = Paths.get("cache", "pages");
+    private static final int MAGIC = 0x50474543; // "PGEC"
+    private static final int VERSION = 1;
+
+    /**
+     * 读取分页缓存
+     *
+     * @param filePath 小说文件路径
+     * @param fileInfo 文件编码、大小和修改时间
+     * @param font     显示字体
+     * @param width    可用宽度
+     * @param height   可用高度
+     * @return 缓存的分页结果；未命中、缓存损坏或读取失败时返回 null
+     */
+    public static PageResult load(String filePath, NovelRecord fileInfo, Font font, int width, int height) {
+        Path path = cacheFile(filePath);
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(path)), crc))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION
+                    || !Objects.equals(fileInfo.getFileSize(), in.readLong())
+                    || !Objects.equals(fileInfo.getFileModified(), in.readLong())
+                    || !Objects.equals(fileInfo.getEncoding(), in.readUTF())
+                    || !font.getName().equals(in.readUTF())
+                    || font.getStyle() != in.readInt()
+                    || font.getSize() != in.readInt()
+                    || width != in.readInt()
+                    || height != in.readInt()) {
+                return null;
+            }
+
+            int totalLength = in.readInt();
+            int pageCount = in.readInt();
+            PageIndex pages = new PageIndex(pageCount);
+            int offset = 0;
+            for (int i = 0; i < pageCount; i++) {
+                offset += readVarInt(in);
+                pages.add(offset);
+            }
+
+            int checkpointCount = in.readInt();
+            TextCheckpoints checkpoints = new TextCheckpoints();
+            offset = 0;
+            long byteOffset = 0;
+            for (int i = 0; i < checkpointCount; i++) {
+                offset += readVarInt(in);
+                byteOffset += readVarLong(in);
+                checkpoints.add(offset, byteOffset);
+            }
+
+            int chapterCount = in.readInt();
+            List<Chapter> chapters = new ArrayList<>(chapterCount);
+            for (int i = 0; i < chapterCount; i++) {
+                chapters.add(new Chapter(in.readUTF(), readVarInt(in), readVarInt(in)));
+            }
+
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                return null;
+            }
+            return new PageResult(pages, chapters, totalLength, checkpoints);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * 保存分页缓存，先写入临时文件再替换，写入失败时不影响已有缓存
+     *
+     * @param filePath 小说文件路径
+     * @param fileInfo 文件编码、大小和修改时间
+     * @param font     显示字体
+     * @param width    可用宽度
+     * @param height   可用高度
+     * @param result   完整的分页结果
+     */
+    public static void save(String filePath, NovelRecord fileInfo, Font font, int width, int height, PageResult result) {
+        if (fileInfo.getEncoding() == null || fileInfo.getFileSize() == null || fileInfo.getFileModified() == null
+                || result.getPages().isEmpty()) {
+            return;
+        }
+        Path path = cacheFile(filePath);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(CACHE_DIR);
+            CRC32 crc = new CRC32();
+            try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)), crc))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(fileInfo.getFileSize());
+                out.writeLong(fileInfo.getFileModified());
+                out.writeUTF(fileInfo.getEncoding());
+                out.writeUTF(font.getName());
+                out.writeInt(font.getStyle());
+                out.writeInt(font.getSize());
+                out.writeInt(width);
+                out.writeInt(height);
+
+                out.writeInt(result.getTotalLength());
+                PageIndex pages = result.getPages();
+                out.writeInt(pages.size());
+                int previous = 0;
+                for (int i = 0; i < pages.size(); i++) {
+                    writeVarLong(out, pages.start(i) - previous);
+                    previous = pages.start(i);
+                }
+
+                TextCheckpoints checkpoints = result.getCheckpoints();
+                out.writeInt(checkpoints.size());
+                previous = 0;
+                long previousByte = 0;
+                for (int i = 0; i < checkpoints.size(); i++) {
+                    writeVarLong(out, checkpoints.offset(i) - previous);
+                    writeVarLong(out, checkpoints.byteOffset(i) - previousByte);
+                    previous = checkpoints.offset(i);
+                    previousByte = checkpoints.byteOffset(i);
+                }
+
+                out.writeInt(result.getChapters().size());
+                for (Chapter chapter : result.getChapters()) {
+                    out.writeUTF(chapter.getTitle());
+                    writeVarLong(out, chapter.getPageIndex());
+                    writeVarLong(out, chapter.getLineNumber());
+                }
+
+                out.writeLong(crc.getValue());
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            e.printStackTrace();
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // 临时文件留待下次覆盖
+            }
+        }
+    }
+
+    /**
+     * 删除小说的分页缓存
+     *
+     * @param filePath 小说文件路径
+     */
+    public static void delete(String filePath) {
+        try {
+            Files.deleteIfExists(cacheFile(filePath));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 小说文件重新定位后移动分页缓存，文件内容未变时新路径仍可命中
+     *
+     * @param oldFilePath 原小说文件路径
+     * @param newFilePath 新小说文件路径
+     */
+    public static void relocate(String oldFilePath, String newFilePath) {
+        try {
+            Path oldPath = cacheFile(oldFilePath);
+            if (Files.exists(oldPath)) {
+                Files.move(oldPath, cacheFile(newFilePath), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static Path cacheFile(String filePath) {
+        return CACHE_DIR.resolve(SecureUtil.sha1(filePath) + ".pages");
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("分页缓存格式错误");
+    }
+
+    static int readVarInt(DataInputStream in) throws IOException {
+        return (int) readVarLong(in);
+    }
+}
@@ -4,17 +4,21 @@ import com.falcon.reader.entity.Chapter;
 import com.falcon.reader.util.EncodingDetect;
 import javax.swing.*;
 import java.awt.*;
-import java.io.BufferedReader;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 /**
- * 分页计算器，负责计算小说文本的分页内容
- * 采用像素宽度精确换行，最大化利用显示区域且绝不溢出
+ * 分页计算器，负责计算小说文本的分页位置
+ * 采用像素宽度精确换行，最大化利用显示区域且绝不溢出；
+ * 分页结果只保存每页的起始偏移，页面内容由 {@link PageRenderer} 按同样的规则在显示时生成
  *
  * @author zxy
  * @date 2026/2/12 15:24
@@ -23,6 +27,12 @@ public class PageCalculator {
     private static final Pattern CHAPTER_PATTERN = Pattern.compile(
             "^\\s*(第\\s*[一二三四五六七八九十百千万零〇两0-9０-９]+\\s*[章节回卷部集].*|卷\\s*[一二三四五六七八九十百千万零〇两0-9０-９]+.*|Chapter\\s+\\d+.*)\\s*$",
             Pattern.CASE_INSENSITIVE);
+    /** 后台分页时每新增多少页向调用方报告一次 */
+    private static final int PROGRESS_PAGES = 200;
+    /** 窗口分页时从目标位置向前回溯的字符数，用于生成目标页之前的若干页 */
+    private static final int WINDOW_LOOKBACK = TextCheckpoints.INTERVAL;
+    /** 并行分页时每个分段至少包含的字符数，分段总在行尾切开 */
+    private static final int SEGMENT_CHARS = 256 * 1024;
 
     /**
      * 计算小说文件的页内容，根据标签尺寸和字体进行像素级精确分页
@@ -31,203 +41,631 @@ public class PageCalculator {
      * 2. 按行读取原始文本，将每行按可用宽度切割成多个显示行
      * 3. 根据标签高度和行高计算每页最多容纳的行数
      * 4. 将切割后的显示行组装成 HTML 格式的页面
+     * 会一次生成全部页面，阅读时应使用 {@link #calculate} 得到页索引并按需渲染。
      *
      * @param filePath 小说文件路径
      * @param label    显示内容的标签，用于获取字体信息和显示区域尺寸
      * @return 分页内容列表，每个元素是一页完整的 HTML 字符串；如果无法分页或发生异常则返回空列表
      */
     public static List<String> calculatePages(String filePath, JLabel label) {
-        return calculate(filePath, label.getFontMetrics(label.getFont()), label.getWidth(), label.getHeight()).getPages();
+        return calculatePages(filePath, label.getFontMetrics(label.getFont()), label.getWidth(), label.getHeight());
     }
 
     public static List<String> calculatePages(String filePath, FontMetrics fm, int availableWidth, int availableHeight) {
-        return calculate(filePath, fm, availableWidth, availableHeight).getPages();
+        String encoding = EncodingDetect.getJavaEncode(filePath);
+        PageResult result = calculate(filePath, encoding, fm, availableWidth, availableHeight);
+        PageRenderer renderer = new PageRenderer(filePath, encoding, fm, availableWidth, availableHeight);
+        List<String> pages = new ArrayList<>(result.getPages().size());
+        for (int i = 0; i < result.getPages().size(); i++) {
+            pages.add(renderer.render(result.getPages().start(i), result.getCheckpoints()));
+        }
+        return pages;
     }
 
     public static PageResult calculate(String filePath, FontMetrics fm, int availableWidth, int availableHeight) {
-        List<String> pages = new ArrayList<>();
-        List<Chapter> chapters = new ArrayList<>();
-        List<Integer> pageStartOffsets = new ArrayList<>();
+        return calculate(filePath, EncodingDetect.getJavaEncode(filePath), fm, availableWidth, availableHeight);
+    }
 
-        // 精确行高 = 上升 + 下降 + 行间距 + 2像素补偿（防止文字紧贴边缘）
-        int lineHeight = fm.getAscent() + fm.getDescent() + fm.getLeading() + 2;
+    /**
+     * 使用已知编码计算分页，跳过编码检测（编码通常来自 {@link EncodingCache}）
+     *
+     * @param filePath        小说文件路径
+     * @param encoding        文件编码
+     * @param fm              字体度量
+     * @param availableWidth  可用宽度
+     * @param availableHeight 可用高度
+     * @return 分页结果
+     */
+    public static PageResult calculate(String filePath, String encoding, FontMetrics fm, int availableWidth, int availableHeight) {
+        return calculate(filePath, encoding, fm, availableWidth, availableHeight, null);
+    }
 
-        // 每页最多容纳的行数 = 标签高度 / 行高（向下取整）
-        int maxLines = availableHeight / lineHeight;
+    /**
+     * 使用已知编码计算全书分页，并在分页过程中分批报告新增的页面
+     * 分页线程被中断时提前结束并返回空结果。
+     *
+     * @param filePath        小说文件路径
+     * @param encoding        文件编码
+     * @param fm              字体度量
+     * @param availableWidth  可用宽度
+     * @param availableHeight 可用高度
+     * @param progress        进度回调，每次收到自上次回调以来新增的页起始偏移、章节（页码均为全书页码）和检查点；为空时不报告
+     * @return 分页结果，附带可用于从文件中间开始读取的文本检查点
+     */
+    public static PageResult calculate(String filePath, String encoding, FontMetrics fm, int availableWidth, int availableHeight,
+            Consumer<PageResult> progress) {
+        int maxLines = maxLines(fm, availableHeight);
 
         // 边界保护：如果显示区域宽度或高度不足，直接返回空列表，避免后续除零或无限循环
         if (availableWidth <= 0 || maxLines <= 0) {
-            return new PageResult(pages, chapters, pageStartOffsets, 0);
+            return emptyResult();
         }
 
-        // 2. 逐页生成：使用 BufferedReader 按行读取原始文件，并动态切分为显示行
-        int totalLength = 0;
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(new FileInputStream(filePath),
-                        EncodingDetect.getJavaEncode(filePath)))) {
-
-            List<String> currentPageLines = new ArrayList<>(maxLines + 2); // 当前页已积累的显示行
-            int currentLines = 0;                                          // 当前页已占用的行数
-            int currentPageStartOffset = 0;
+        // 逐页生成：通过内存映射的文本来源按行读取，直接在字符缓冲区上切分显示行
+        Paginator paginator = new Paginator(fm, availableWidth, maxLines);
+        TextCheckpoints checkpoints = new TextCheckpoints();
+        Progress reporter = new Progress(progress);
+        try (TextSource source = new MappedTextSource(filePath, encoding)) {
             int lineNumber = 0;
+            while (source.nextLine()) {
+                lineNumber++;
+                if ((lineNumber & 0x3FF) == 0 && Thread.currentThread().isInterrupted()) {
+                    return emptyResult();
+                }
+                if (source.lineByteOffset() >= 0) {
+                    checkpoints.add(paginator.totalLength, source.lineByteOffset());
+                }
+                paginator.addLine(source.buffer(), source.lineStart(), source.lineEnd(), lineNumber, true);
+                reporter.report(paginator, checkpoints, PROGRESS_PAGES);
+            }
+            reporter.report(paginator, checkpoints, 0);
+        } catch (IOException | IllegalArgumentException e) {
+            e.printStackTrace();
+            return emptyResult(); // 异常时返回空结果，调用方自行处理
+        }
 
-            String line;
-            while ((line = reader.readLine()) != null) {
+        return new PageResult(paginator.pages, paginator.chapters, paginator.totalLength, checkpoints);
+    }
+
+    /**
+     * 并行计算全书分页，结果（页起始偏移、章节和检查点）与 {@link #calculate} 完全相同
+     * 实现原理：
+     * 1. 当前线程顺序解码并按行切分文本，每积累 {@link #SEGMENT_CHARS} 个字符就在行尾切出一个分段；
+     * 换行本身就是显示行的硬边界，一行的折行结果只取决于该行内容，因此各分段可以独立测量
+     * 2. 分段提交到 ForkJoinPool，在各工作线程上测量每个显示行的起始偏移并识别章节标题
+     * 3. 按分段顺序取回测量结果，顺序累加显示行数，按每页行数确定页起始偏移和章节页码
+     * 同时在途的分段数量有上限，内存占用与文件大小无关。单核机器上直接使用顺序分页。
+     *
+     * @param filePath        小说文件路径
+     * @param encoding        文件编码
+     * @param fm              字体度量
+     * @param availableWidth  可用宽度
+     * @param availableHeight 可用高度
+     * @param progress        进度回调，同 {@link #calculate(String, String, FontMetrics, int, int, Consumer)}
+     * @return 分页结果，附带文本检查点；分页线程被中断时返回空结果
+     */
+    public static PageResult calculateParallel(String filePath, String encoding, FontMetrics fm, int availableWidth,
+            int availableHeight, Consumer<PageResult> progress) {
+        if (Runtime.getRuntime().availableProcessors() < 2) {
+            return calculate(filePath, encoding, fm, availableWidth, availableHeight, progress);
+        }
+        return calculateParallel(filePath, encoding, fm, availableWidth, availableHeight, progress, ForkJoinPool.commonPool());
+    }
+
+    static PageResult calculateParallel(String filePath, String encoding, FontMetrics fm, int availableWidth,
+            int availableHeight, Consumer<PageResult> progress, ForkJoinPool pool) {
+        int maxLines = maxLines(fm, availableHeight);
+        if (availableWidth <= 0 || maxLines <= 0) {
+            return emptyResult();
+        }
+
+        Paginator paginator = new Paginator(fm, availableWidth, maxLines);
+        TextCheckpoints checkpoints = new TextCheckpoints();
+        Progress reporter = new Progress(progress);
+        ArrayDeque<Segment> pending = new ArrayDeque<>();
+        int maxPending = pool.getParallelism() * 2 + 1;
+        try (TextSource source = new MappedTextSource(filePath, encoding)) {
+            int lineNumber = 0;
+            int offset = 0;
+            Segment segment = new Segment(paginator.widths, availableWidth, 1);
+            while (source.nextLine()) {
                 lineNumber++;
-                int lineStartOffset = totalLength;
-                // 空行处理
-                if (line.isEmpty()) {
-                    // 如果当前页已满，先保存当前页，再清空缓存
-                    if (currentLines >= maxLines) {
-                        pages.add(buildPage(currentPageLines));
-                        pageStartOffsets.add(currentPageStartOffset);
-                        currentPageLines.clear();
-                        currentLines = 0;
-                    }
-                    if (currentPageLines.isEmpty()) {
-                        currentPageStartOffset = lineStartOffset;
-                    }
-                    // 空行用一个空字符串占位，后续 buildPage 时会转为 <br/>
-                    currentPageLines.add("");
-                    currentLines++;
-                    totalLength++;
-                    continue;
+                if ((lineNumber & 0x3FF) == 0 && Thread.currentThread().isInterrupted()) {
+                    cancelAll(pending);
+                    return emptyResult();
+                }
+                if (source.lineByteOffset() >= 0) {
+                    checkpoints.add(offset, source.lineByteOffset());
                 }
+                segment.addLine(source.buffer(), source.lineStart(), source.lineEnd());
+                offset += source.lineEnd() - source.lineStart() + 1;
 
-                // 非空行处理：按像素宽度切分
-                int index = 0; // 当前处理到的字符位置
-                boolean chapterLine = isChapterTitle(line);
-                while (index < line.length()) {
-                    // 页满则保存当前页，重置缓存
-                    if (currentLines >= maxLines) {
-                        pages.add(buildPage(currentPageLines));
-                        pageStartOffsets.add(currentPageStartOffset);
-                        currentPageLines.clear();
-                        currentLines = 0;
-                    }
-                    if (currentPageLines.isEmpty()) {
-                        currentPageStartOffset = lineStartOffset + index;
+                if (segment.length >= SEGMENT_CHARS) {
+                    pool.execute(segment);
+                    pending.add(segment);
+                    segment = new Segment(paginator.widths, availableWidth, lineNumber + 1);
+                    // 按顺序拼接已完成的分段；在途分段过多时等待最早的分段
+                    while (!pending.isEmpty() && (pending.size() > maxPending || pending.peek().isDone())) {
+                        Segment measured = pending.poll();
+                        measured.join();
+                        paginator.addSegment(measured);
+                        reporter.report(paginator, checkpoints, PROGRESS_PAGES);
                     }
+                }
+            }
 
-                    if (index == 0 && chapterLine) {
-                        addChapterIfAbsent(chapters, line.trim(), pages.size(), lineNumber);
-                    }
+            if (segment.lineCount > 0) {
+                pool.execute(segment);
+                pending.add(segment);
+            }
+            while (!pending.isEmpty()) {
+                Segment measured = pending.poll();
+                measured.join();
+                paginator.addSegment(measured);
+                reporter.report(paginator, checkpoints, PROGRESS_PAGES);
+            }
+            reporter.report(paginator, checkpoints, 0);
+        } catch (IOException | RuntimeException e) {
+            cancelAll(pending);
+            e.printStackTrace();
+            return emptyResult();
+        }
+
+        return new PageResult(paginator.pages, paginator.chapters, paginator.totalLength, checkpoints);
+    }
+
+    private static void cancelAll(ArrayDeque<Segment> pending) {
+        for (Segment segment : pending) {
+            segment.cancel(false);
+        }
+        pending.clear();
+    }
+
+    /**
+     * 只计算目标位置附近的若干页，用于在全书分页完成前尽快显示阅读位置
+     * 实现原理：
+     * 1. 从锚点（不超过目标偏移的某个行首及其字节偏移）开始读取，找到目标偏移所在的行，
+     * 并选取目标之前约 {@link #WINDOW_LOOKBACK} 个字符处的行作为窗口起点
+     * 2. 从窗口起点测量到目标所在的显示行，得到其间的显示行数
+     * 3. 以目标显示行为页首对齐，从窗口起点生成目标之前的完整页、目标页及其后 followingPages 页
+     * 目标偏移是同一布局下保存的页起始偏移时，窗口中的页与全书分页的对应页完全相同。
+     * 耗时只与锚点到窗口末尾的距离有关，与文件大小无关；没有有效锚点时从文件开头查找。
+     *
+     * @param filePath         小说文件路径
+     * @param encoding         文件编码
+     * @param anchorOffset     锚点字符偏移，无锚点时传 0
+     * @param anchorByteOffset 锚点字节偏移，无锚点时传 0
+     * @param targetOffset     目标字符偏移，通常为保存的当前页起始偏移
+     * @param fm               字体度量
+     * @param availableWidth   可用宽度
+     * @param availableHeight  可用高度
+     * @param followingPages   目标页之后最多生成的页数
+     * @return 窗口内的页索引（不含章节，总长度为 0），附带窗口使用的锚点；目标超出文件末尾时返回空结果
+     */
+    public static PageResult calculateWindow(String filePath, String encoding, int anchorOffset, long anchorByteOffset,
+            int targetOffset, FontMetrics fm, int availableWidth, int availableHeight, int followingPages) {
+        int maxLines = maxLines(fm, availableHeight);
+        if (availableWidth <= 0 || maxLines <= 0) {
+            return emptyResult();
+        }
+
+        try {
+            Charset charset = Charset.forName(encoding);
+            if (anchorOffset < 0 || anchorByteOffset < 0 || anchorOffset > targetOffset
+                    || !MappedTextSource.isLineAligned(charset)) {
+                anchorOffset = 0;
+                anchorByteOffset = 0;
+            }
 
-                    // 贪心算法：从 index 开始，累加字符宽度直到达到可用宽度
-                    int start = index;
-                    int end = index;
-                    int lineWidth = 0; // 当前已累加的像素宽度
-
-                    while (end < line.length()) {
-                        char c = line.charAt(end);
-                        int charWidth = fm.charWidth(c);
-                        // 如果加上下一个字符不超过可用宽度，则加入本行
-                        if (lineWidth + charWidth <= availableWidth) {
-                            lineWidth += charWidth;
-                            end++;
-                        } else {
-                            break; // 已超宽，结束本行
+            // 1. 定位目标所在行，窗口起点取目标之前约 WINDOW_LOOKBACK 个字符处的行首
+            int baseOffset = anchorOffset;       // baseByte 对应的字符偏移
+            long baseByte = anchorByteOffset;    // 重新打开文件的字节偏移
+            int skipSourceLines = 0;             // 从 baseByte 开始需跳过的行数
+            int startOffset = anchorOffset;      // 窗口起点的字符偏移
+            boolean found = false;
+            try (MappedTextSource source = new MappedTextSource(filePath, charset, anchorByteOffset)) {
+                int offset = anchorOffset;
+                int lineIndex = 0;
+                int baseLineIndex = 0;
+                while (source.nextLine()) {
+                    int length = source.lineEnd() - source.lineStart();
+                    if (offset <= targetOffset - WINDOW_LOOKBACK) {
+                        if (source.lineByteOffset() >= 0) {
+                            baseOffset = offset;
+                            baseByte = source.lineByteOffset();
+                            baseLineIndex = lineIndex;
                         }
+                        startOffset = offset;
+                        skipSourceLines = lineIndex - baseLineIndex;
                     }
+                    if (offset + length >= targetOffset) {
+                        found = true;
+                        break;
+                    }
+                    offset += length + 1;
+                    lineIndex++;
+                }
+            }
+            if (!found) {
+                return emptyResult();
+            }
 
-                    // 极端情况：单个字符宽度已超过可用宽度，强制放入（避免死循环）
+            // 2. 测量窗口起点到目标显示行之间的显示行数
+            int displayLines = 0;
+            GlyphWidths widths = GlyphWidths.of(fm);
+            try (MappedTextSource source = openAt(filePath, charset, baseByte, skipSourceLines)) {
+                int offset = startOffset;
+                while (source.nextLine()) {
+                    char[] line = source.buffer();
+                    int start = source.lineStart();
+                    int end = source.lineEnd();
+                    boolean targetLine = offset + end - start >= targetOffset;
                     if (start == end) {
-                        end = start + 1;
+                        if (targetLine) {
+                            break;
+                        }
+                        displayLines++;
                     }
-
-                    // 截取本显示行的文本
-                    String subLine = line.substring(start, end);
-                    currentPageLines.add(subLine);
-                    currentLines++;
-
-                    // 继续处理该行剩余的字符
-                    index = end;
+                    int index = start;
+                    while (index < end) {
+                        int next = displayLineEnd(widths, availableWidth, line, index, end);
+                        if (targetLine && offset + next - start > targetOffset) {
+                            break;
+                        }
+                        displayLines++;
+                        index = next;
+                    }
+                    if (targetLine) {
+                        break;
+                    }
+                    offset += end - start + 1;
                 }
-                totalLength += line.length() + 1;
             }
 
-            // 3. 处理最后剩余的内容（如果当前页还有未保存的行）
-            if (!currentPageLines.isEmpty()) {
-                pages.add(buildPage(currentPageLines));
-                pageStartOffsets.add(currentPageStartOffset);
+            // 3. 以目标显示行为页首对齐，生成窗口内的页面
+            Paginator paginator = new Paginator(fm, availableWidth, maxLines);
+            paginator.totalLength = startOffset;
+            paginator.skipLines = displayLines % maxLines;
+            int pageLimit = displayLines / maxLines + 1 + followingPages;
+            try (MappedTextSource source = openAt(filePath, charset, baseByte, skipSourceLines)) {
+                while (paginator.pages.size() < pageLimit && source.nextLine()) {
+                    paginator.addLine(source.buffer(), source.lineStart(), source.lineEnd(), 0, false);
+                }
             }
 
-        } catch (IOException e) {
+            TextCheckpoints checkpoints = new TextCheckpoints();
+            checkpoints.add(baseOffset, baseByte);
+            return new PageResult(paginator.pages, new ArrayList<>(), 0, checkpoints);
+        } catch (IOException | IllegalArgumentException e) {
             e.printStackTrace();
-            return new PageResult(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), 0); // 异常时返回空结果，调用方自行处理
+            return emptyResult();
         }
+    }
+
+    private static MappedTextSource openAt(String filePath, Charset charset, long startByte, int skipLines) throws IOException {
+        MappedTextSource source = new MappedTextSource(filePath, charset, startByte);
+        for (int i = 0; i < skipLines && source.nextLine(); i++) {
+            // 跳过窗口起点之前的行
+        }
+        return source;
+    }
+
+    static int maxLines(FontMetrics fm, int availableHeight) {
+        // 精确行高 = 上升 + 下降 + 行间距 + 2像素补偿（防止文字紧贴边缘）
+        int lineHeight = fm.getAscent() + fm.getDescent() + fm.getLeading() + 2;
+
+        // 每页最多容纳的行数 = 标签高度 / 行高（向下取整）
+        return availableHeight / lineHeight;
+    }
 
-        return new PageResult(pages, chapters, pageStartOffsets, totalLength);
+    private static PageResult emptyResult() {
+        return new PageResult(new PageIndex(), new ArrayList<>());
     }
 
     /**
-     * 将一页的显示行列表构建为完整的 HTML 字符串
-     * 每行内容后添加 <br/> 换行，空字符串转为纯 <br/> 标签
+     * 贪心算法：从 start 开始，累加字符宽度直到达到可用宽度
+     * 遇到连续的全角等宽字符时，直接按剩余宽度算出最多还能放下几个，只需确认这些字符都是等宽字符
      *
-     * @param lines 当前页的所有显示行（字符串列表）
-     * @return HTML 格式的页面内容
+     * @return 本显示行的结束下标（不含）；单个字符宽度已超过可用宽度时强制放入该字符（避免死循环）
      */
-    private static String buildPage(List<String> lines) {
-        if (lines.isEmpty()) {
-            return "<html></html>";
+    static int displayLineEnd(GlyphWidths widths, int availableWidth, char[] line, int start, int end) {
+        int monospaceWidth = widths.monospaceWidth();
+        int index = start;
+        int lineWidth = 0; // 当前已累加的像素宽度
+        while (index < end) {
+            if (widths.isMonospace(line[index])) {
+                int runEnd = Math.min(end, index + (availableWidth - lineWidth) / monospaceWidth);
+                int runStart = index;
+                while (index < runEnd && widths.isMonospace(line[index])) {
+                    index++;
+                }
+                if (index == runStart) {
+                    break; // 剩余宽度放不下一个全角字符
+                }
+                lineWidth += (index - runStart) * monospaceWidth;
+                continue;
+            }
+            int charWidth = widths.width(line[index]);
+            // 如果加上下一个字符不超过可用宽度，则加入本行
+            if (lineWidth + charWidth <= availableWidth) {
+                lineWidth += charWidth;
+                index++;
+            } else {
+                break; // 已超宽，结束本行
+            }
         }
+        return index == start ? start + 1 : index;
+    }
 
-        // 预估 StringBuilder 容量：基础长度 + 每行平均长度 + 换行标签长度
-        StringBuilder sb = new StringBuilder(1024 + lines.size() * 40);
-        sb.append("<html>");
+    /**
+     * 分页状态：把原始行切分为显示行，并按每页行数记录页起始偏移
+     */
+    private static final class Paginator {
+        private final GlyphWidths widths;
+        private final int availableWidth;
+        private final int maxLines;
+        private final PageIndex pages = new PageIndex();
+        private final List<Chapter> chapters = new ArrayList<>();
 
-        for (String content : lines) {
-            if (content.isEmpty()) {
-                sb.append("<br/>"); // 空行仅输出换行
-            } else {
-                sb.append(escapeHtml(content)).append("<br/>"); // 非空行：文本 + 换行
+        private int currentLines;  // 当前页已占用的行数
+        private int totalLength;   // 已处理文本的字符偏移
+        private int skipLines;     // 开头需丢弃的显示行数，用于窗口分页时对齐页首
+
+        private Paginator(FontMetrics fm, int availableWidth, int maxLines) {
+            this.widths = GlyphWidths.of(fm);
+            this.availableWidth = availableWidth;
+            this.maxLines = maxLines;
+        }
+
+        /**
+         * 添加一行原始文本
+         *
+         * @param line           字符缓冲区
+         * @param start          行在缓冲区中的起始下标
+         * @param end            行在缓冲区中的结束下标（不含）
+         * @param lineNumber     行号（从 1 开始），用于记录章节
+         * @param detectChapters 是否识别章节标题
+         */
+        private void addLine(char[] line, int start, int end, int lineNumber, boolean detectChapters) {
+            int lineStartOffset = totalLength;
+            // 空行处理：空行占一个显示行
+            if (start == end) {
+                if (skipLines > 0) {
+                    skipLines--;
+                } else {
+                    startDisplayLine(lineStartOffset);
+                }
+                totalLength++;
+                return;
+            }
+
+            // 非空行处理：按像素宽度切分
+            String chapterTitle = detectChapters ? chapterTitle(line, start, end) : null;
+            int index = start; // 当前处理到的字符位置
+            while (index < end) {
+                int next = displayLineEnd(widths, availableWidth, line, index, end);
+                if (skipLines > 0) {
+                    skipLines--;
+                } else {
+                    startDisplayLine(lineStartOffset + index - start);
+                    if (index == start && chapterTitle != null) {
+                        addChapterIfAbsent(chapterTitle, pages.size() - 1, lineNumber);
+                    }
+                }
+                // 继续处理该行剩余的字符
+                index = next;
             }
+            totalLength += end - start + 1;
         }
 
-        sb.append("</html>");
-        return sb.toString();
+        /**
+         * 添加一个已测量的分段，效果与逐行调用 {@link #addLine} 相同
+         */
+        private void addSegment(Segment segment) {
+            int base = totalLength;
+            for (int i = 0; i < segment.lineCount; i++) {
+                int first = segment.lineBreaks[i];
+                int last = segment.lineBreaks[i + 1];
+                for (int k = first; k < last; k++) {
+                    startDisplayLine(base + segment.breaks[k]);
+                    if (k == first && segment.titles[i] != null) {
+                        addChapterIfAbsent(segment.titles[i], pages.size() - 1, segment.firstLineNumber + i);
+                    }
+                }
+            }
+            totalLength += segment.length + segment.lineCount;
+        }
+
+        private void startDisplayLine(int offset) {
+            // 页满则开始新页，新页的起始偏移即本显示行的偏移
+            if (currentLines >= maxLines) {
+                currentLines = 0;
+            }
+            if (currentLines == 0) {
+                pages.add(offset);
+            }
+            currentLines++;
+        }
+
+        private void addChapterIfAbsent(String title, int pageIndex, int lineNumber) {
+            if (!chapters.isEmpty()) {
+                Chapter last = chapters.get(chapters.size() - 1);
+                if (last.getLineNumber() == lineNumber || last.getTitle().equals(title)) {
+                    return;
+                }
+            }
+            chapters.add(new Chapter(title, pageIndex, lineNumber));
+        }
     }
 
-    private static String escapeHtml(String text) {
-        StringBuilder escaped = new StringBuilder(text.length());
-        for (int i = 0; i < text.length(); i++) {
-            char c = text.charAt(i);
+    /**
+     * 并行分页的一个分段：若干连续的原始行，在工作线程上测量每个显示行的起始偏移
+     * 偏移相对于分段开头，并与全书偏移的规则一致（每行之后计 1 个换行符）
+     */
+    private static final class Segment extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final GlyphWidths widths;
+        private final int availableWidth;
+        private final int firstLineNumber;
+
+        private char[] text = new char[SEGMENT_CHARS + 1024];
+        private int length;                    // 分段内的字符数（不含换行符）
+        private int[] lineEnds = new int[4096];
+        private int lineCount;
+
+        private int[] breaks;                  // 各显示行的起始偏移
+        private int[] lineBreaks;              // 每行第一个显示行在 breaks 中的下标，最后一项为显示行总数
+        private String[] titles;               // 每行识别出的章节标题，不是标题时为 null
+
+        private Segment(GlyphWidths widths, int availableWidth, int firstLineNumber) {
+            this.widths = widths;
+            this.availableWidth = availableWidth;
+            this.firstLineNumber = firstLineNumber;
+        }
+
+        private void addLine(char[] line, int start, int end) {
+            int lineLength = end - start;
+            if (length + lineLength > text.length) {
+                text = Arrays.copyOf(text, Math.max(text.length * 2, length + lineLength));
+            }
+            if (lineCount == lineEnds.length) {
+                lineEnds = Arrays.copyOf(lineEnds, lineCount * 2);
+            }
+            System.arraycopy(line, start, text, length, lineLength);
+            length += lineLength;
+            lineEnds[lineCount++] = length;
+        }
+
+        @Override
+        protected void compute() {
+            int[] result = new int[lineCount * 2];
+            int count = 0;
+            lineBreaks = new int[lineCount + 1];
+            titles = new String[lineCount];
+            int start = 0;
+            for (int i = 0; i < lineCount; i++) {
+                int end = lineEnds[i];
+                int lineOffset = start + i;
+                lineBreaks[i] = count;
+                if (start == end) {
+                    if (count == result.length) {
+                        result = Arrays.copyOf(result, count * 2);
+                    }
+                    result[count++] = lineOffset;
+                } else {
+                    titles[i] = chapterTitle(text, start, end);
+                    int index = start;
+                    while (index < end) {
+                        if (count == result.length) {
+                            result = Arrays.copyOf(result, count * 2);
+                        }
+                        result[count++] = lineOffset + index - start;
+                        index = displayLineEnd(widths, availableWidth, text, index, end);
+                    }
+                }
+                start = end;
+            }
+            lineBreaks[lineCount] = count;
+            breaks = result;
+            text = null; // 测量完成后只保留偏移
+        }
+    }
+
+    /**
+     * 分页进度：记录已报告的位置，每新增足够的页就把增量交给回调
+     */
+    private static final class Progress {
+        private final Consumer<PageResult> callback;
+        private int pages;
+        private int chapters;
+        private int checkpoints;
+
+        private Progress(Consumer<PageResult> callback) {
+            this.callback = callback;
+        }
+
+        /**
+         * @param minPages 至少新增多少页才报告；为 0 时只要有新增的页、章节或检查点就报告，用于分页结束时
+         */
+        private void report(Paginator paginator, TextCheckpoints textCheckpoints, int minPages) {
+            int newPages = paginator.pages.size() - pages;
+            if (callback == null || newPages < minPages || newPages == 0 && chapters == paginator.chapters.size()
+                    && checkpoints == textCheckpoints.size()) {
+                return;
+            }
+            callback.accept(new PageResult(paginator.pages.copyFrom(pages),
+                    new ArrayList<>(paginator.chapters.subList(chapters, paginator.chapters.size())),
+                    paginator.totalLength, textCheckpoints.copyFrom(checkpoints)));
+            pages = paginator.pages.size();
+            chapters = paginator.chapters.size();
+            checkpoints = textCheckpoints.size();
+        }
+    }
+
+    /**
+     * 开始一个新页面的 HTML 内容
+     * 预估 StringBuilder 容量：基础长度 + 每行平均长度 + 换行标签长度
+     *
+     * @param maxLines 每页最多容纳的行数
+     * @return 已写入 &lt;html&gt; 的缓冲区
+     */
+    static StringBuilder newPage(int maxLines) {
+        return new StringBuilder(1024 + maxLines * 40).append("<html>");
+    }
+
+    static String finishPage(StringBuilder page) {
+        return page.append("</html>").toString();
+    }
+
+    static StringBuilder appendEscaped(StringBuilder sb, char[] text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text[i];
             switch (c) {
                 case '&':
-                    escaped.append("&amp;");
+                    sb.append("&amp;");
                     break;
                 case '<':
-                    escaped.append("&lt;");
+                    sb.append("&lt;");
                     break;
                 case '>':
-                    escaped.append("&gt;");
+                    sb.append("&gt;");
                     break;
                 case '"':
-                    escaped.append("&quot;");
+                    sb.append("&quot;");
                     break;
                 case '\'':
-                    escaped.append("&#39;");
+                    sb.append("&#39;");
                     break;
                 default:
-                    escaped.append(c);
+                    sb.append(c);
                     break;
             }
         }
-        return escaped.toString();
+        return sb;
     }
 
-    private static boolean isChapterTitle(String line) {
-        String title = line.trim();
-        return title.length() <= 80 && CHAPTER_PATTERN.matcher(title).matches();
-    }
-
-    private static void addChapterIfAbsent(List<Chapter> chapters, String title, int pageIndex, int lineNumber) {
-        if (!chapters.isEmpty()) {
-            Chapter last = chapters.get(chapters.size() - 1);
-            if (last.getLineNumber() == lineNumber || last.getTitle().equals(title)) {
-                return;
-            }
+    /**
+     * 判断一行是否为章节标题
+     * 先按首个非空白字符快速排除绝大多数正文行，只有可能是标题的行才创建字符串并做正则匹配
+     *
+     * @return 去除首尾空白后的标题；不是章节标题时返回 null
+     */
+    private static String chapterTitle(char[] line, int start, int end) {
+        while (start < end && line[start] <= ' ') {
+            start++;
+        }
+        while (end > start && line[end - 1] <= ' ') {
+            end--;
+        }
+        if (end - start > 80) {
+            return null;
+        }
+        char first = start < end ? line[start] : 0;
+        if (first != '第' && first != '卷' && first != 'c' && first != 'C') {
+            return null;
         }
-        chapters.add(new Chapter(title, pageIndex, lineNumber));
+        String title = new String(line, start, end - start);
+        return CHAPTER_PATTERN.matcher(title).matches() ? title : null;
     }
 }
@@ -0,0 +1,86 @@
+package com.falcon.reader.model;
+
+import java.util.Arrays;
+
+/**
+ * 紧凑的页索引，只保存每页第一个字符的偏移
+ * 页面内容不再预先生成，显示时由 {@link PageRenderer} 从文本来源按页起始偏移重新排版；
+ * 偏移与分页使用的偏移一致（每行长度加 1），按升序保存。
+ *
+ * @author zxy
+ * @date 2026/3/7 10:15
+ **/
+public class PageIndex {
+    private int[] starts;
+    private int size;
+
+    public PageIndex() {
+        this(256);
+    }
+
+    public PageIndex(int capacity) {
+        starts = new int[Math.max(16, capacity)];
+    }
+
+    public void add(int startOffset) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size + (size >> 1));
+        }
+        starts[size++] = startOffset;
+    }
+
+    public void addAll(PageIndex other) {
+        if (size + other.size > starts.length) {
+            starts = Arrays.copyOf(starts, Math.max(size + other.size, size + (size >> 1)));
+        }
+        System.arraycopy(other.starts, 0, starts, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * 复制从指定页开始的部分，用于分批报告分页进度
+     *
+     * @param fromPage 起始页（含）
+     * @return 新的页索引
+     */
+    public PageIndex copyFrom(int fromPage) {
+        PageIndex copy = new PageIndex(size - fromPage);
+        System.arraycopy(starts, fromPage, copy.starts, 0, size - fromPage);
+        copy.size = size - fromPage;
+        return copy;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param page 页码（从 0 开始）
+     * @return 该页第一个字符的偏移
+     */
+    public int start(int page) {
+        return starts[page];
+    }
+
+    /**
+     * @return 最后一页的起始偏移，没有页时返回 -1
+     */
+    public int lastStart() {
+        return size == 0 ? -1 : starts[size - 1];
+    }
+
+    /**
+     * 查找包含指定字符偏移的页
+     *
+     * @param offset 字符偏移
+     * @return 起始偏移不超过 offset 的最后一页；offset 在第一页之前时返回 0
+     */
+    public int findPage(int offset) {
+        int index = Arrays.binarySearch(starts, 0, size, offset);
+        return Math.max(0, index >= 0 ? index : -index - 2);
+    }
+}
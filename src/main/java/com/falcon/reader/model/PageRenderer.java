@@ -0,0 +1,101 @@
+package com.falcon.reader.model;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 页面渲染器，按页起始偏移从文本来源生成单页的 HTML 内容
+ * 从不超过页起始偏移的最近检查点开始读取，跳到页首后按与 {@link PageCalculator} 相同的规则切分显示行，
+ * 直到写满一页；最近渲染过的若干页保存在 LRU 缓存中，来回翻页时无需重新读取文件。
+ *
+ * @author zxy
+ * @date 2026/3/7 10:15
+ **/
+public class PageRenderer {
+    /** 缓存的最近渲染页数 */
+    private static final int CACHE_PAGES = 16;
+
+    private final String filePath;
+    private final Charset charset;
+    private final GlyphWidths widths;
+    private final int availableWidth;
+    private final int maxLines;
+    private final Map<Integer, String> cache = new LinkedHashMap<Integer, String>(CACHE_PAGES * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+            return size() > CACHE_PAGES;
+        }
+    };
+
+    /**
+     * @param filePath        小说文件路径
+     * @param encoding        文件编码
+     * @param fm              分页时使用的字体度量
+     * @param availableWidth  分页时使用的可用宽度
+     * @param availableHeight 分页时使用的可用高度
+     */
+    public PageRenderer(String filePath, String encoding, FontMetrics fm, int availableWidth, int availableHeight) {
+        this.filePath = filePath;
+        this.charset = Charset.forName(encoding);
+        this.widths = GlyphWidths.of(fm);
+        this.availableWidth = availableWidth;
+        this.maxLines = PageCalculator.maxLines(fm, availableHeight);
+    }
+
+    /**
+     * 渲染一页
+     *
+     * @param startOffset 页起始偏移
+     * @param checkpoints 覆盖该页的文本检查点，用于跳过页首之前的内容
+     * @return HTML 格式的页面内容
+     */
+    public String render(int startOffset, TextCheckpoints checkpoints) {
+        String page = cache.get(startOffset);
+        if (page == null) {
+            page = renderPage(startOffset, checkpoints);
+            cache.put(startOffset, page);
+        }
+        return page;
+    }
+
+    private String renderPage(int startOffset, TextCheckpoints checkpoints) {
+        int index = checkpoints.floor(startOffset);
+        boolean seekable = index >= 0 && MappedTextSource.isLineAligned(charset);
+        int lineOffset = seekable ? checkpoints.offset(index) : 0;
+        StringBuilder page = PageCalculator.newPage(maxLines);
+        int lines = 0;
+        try (TextSource source = new MappedTextSource(filePath, charset, seekable ? checkpoints.byteOffset(index) : 0)) {
+            while (lines < maxLines && source.nextLine()) {
+                char[] line = source.buffer();
+                int start = source.lineStart();
+                int end = source.lineEnd();
+                int length = end - start;
+                // 跳过页首之前的行
+                if (lineOffset + length < startOffset) {
+                    lineOffset += length + 1;
+                    continue;
+                }
+                if (length == 0) {
+                    page.append("<br/>"); // 空行仅输出换行
+                    lines++;
+                }
+                // 页首可能位于行中间，从该显示行开始切分（贪心换行从任一显示行起点开始结果相同）
+                int position = start + Math.max(0, startOffset - lineOffset);
+                while (position < end && lines < maxLines) {
+                    int next = PageCalculator.displayLineEnd(widths, availableWidth, line, position, end);
+                    PageCalculator.appendEscaped(page, line, position, next).append("<br/>");
+                    lines++;
+                    position = next;
+                }
+                lineOffset += length + 1;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return "<html>无法读取该页: " + e.getMessage() + "</html>";
+        }
+        return PageCalculator.finishPage(page);
+    }
+}
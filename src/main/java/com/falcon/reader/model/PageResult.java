@@ -5,26 +5,26 @@ import com.falcon.reader.entity.Chapter;
 import java.util.List;
 
 /**
- * Pages and chapter positions produced by one pagination pass.
+ * Page index and chapter positions produced by one pagination pass.
  */
 public class PageResult {
-    private final List<String> pages;
+    private final PageIndex pages;
     private final List<Chapter> chapters;
-    private final List<Integer> pageStartOffsets;
     private final int totalLength;
+    private final TextCheckpoints checkpoints;
 
-    public PageResult(List<String> pages, List<Chapter> chapters) {
-        this(pages, chapters, new java.util.ArrayList<>(), 0);
+    public PageResult(PageIndex pages, List<Chapter> chapters) {
+        this(pages, chapters, 0, new TextCheckpoints());
     }
 
-    public PageResult(List<String> pages, List<Chapter> chapters, List<Integer> pageStartOffsets, int totalLength) {
+    public PageResult(PageIndex pages, List<Chapter> chapters, int totalLength, TextCheckpoints checkpoints) {
         this.pages = pages;
         this.chapters = chapters;
-        this.pageStartOffsets = pageStartOffsets;
         this.totalLength = totalLength;
+        this.checkpoints = checkpoints;
     }
 
-    public List<String> getPages() {
+    public PageIndex getPages() {
         return pages;
     }
 
@@ -32,11 +32,11 @@ public class PageResult {
         return chapters;
     }
 
-    public List<Integer> getPageStartOffsets() {
-        return pageStartOffsets;
-    }
-
     public int getTotalLength() {
         return totalLength;
     }
+
+    public TextCheckpoints getCheckpoints() {
+        return checkpoints;
+    }
 }
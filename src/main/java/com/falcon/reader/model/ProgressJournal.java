@@ -0,0 +1,348 @@
+package com.falcon.reader.model;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONObject;
+import com.falcon.reader.entity.NovelRecord;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * 阅读进度日志
+ * 翻页时只把阅读进度以定长记录追加到日志文件末尾，不再读取和重写整个 bookmark.json，保存耗时与书架大小无关；
+ * bookmark.json 作为快照，加载时先读快照再按顺序重放日志，任何一次完整写入快照后清空日志，
+ * 日志记录数达到 {@link #COMPACT_RECORDS} 时由调用方完整写入一次快照进行压缩。
+ * <p>
+ * 日志记录按规范化路径的 64 位哈希对应快照中的小说，只能更新快照中已有的记录；
+ * 新增小说、编码变化或窗口配置变化仍需完整写入快照。
+ * 每条记录带有 CRC32，末尾不完整或校验失败的记录（写入时异常退出）在重放时丢弃。
+ * 追加时只写入文件不刷盘，由 {@link #sync()} 统一刷到磁盘，同一批提交的多次追加共用一次刷盘。
+ * 重放时只应用不早于同一本小说当前最后阅读时间的记录，快照写入后未及清空的旧日志、
+ * 以及其他进程追加的较早的进度都不会覆盖较新的进度。
+ *
+ * @author zxy
+ * @date 2026/3/12 10:05
+ **/
+public class ProgressJournal {
+    /** 进度日志文件名，与 bookmark.json 位于同一目录 */
+    private static final String JOURNAL_FILE = "bookmark.journal";
+    /** 每条记录的字节数 */
+    private static final int RECORD_SIZE = 64;
+    /** 日志达到该记录数时需要压缩 */
+    private static final int COMPACT_RECORDS = 1024;
+    /** 不写入的可选字段 */
+    private static final int NONE = -1;
+
+    /** 快照中已有记录的路径哈希及其编码；哈希冲突的路径不在其中，总是完整写入 */
+    private static final Map<Long, String> snapshotEncodings = new HashMap<>();
+    private static int records;
+    /** 追加写入的日志文件，清空日志时关闭 */
+    private static FileChannel channel;
+    private static boolean unsynced;
+
+    /**
+     * 追加一条阅读进度
+     *
+     * @param filePath      小说文件路径
+     * @param currentPage   当前页码
+     * @param totalPages    总页数，为空或不大于 0 时不更新
+     * @param currentOffset 当前页起始字符偏移，为空或小于 0 时不更新
+     * @param totalLength   小说总字符数，为空或不大于 0 时不更新
+     * @param encodingInfo  文件大小、修改时间和锚点，为空时不更新
+     * @param time          阅读时间，重放时早于已有进度的记录不生效
+     * @return 是否已写入日志；返回 false 时调用方需完整写入快照
+     */
+    public static synchronized boolean append(String filePath, int currentPage, Integer totalPages, Integer currentOffset,
+            Integer totalLength, NovelRecord encodingInfo, LocalDateTime time) {
+        long hash = hash(filePath);
+        if (!snapshotEncodings.containsKey(hash)) {
+            return false;
+        }
+        boolean hasEncodingInfo = encodingInfo != null && StrUtil.isNotBlank(encodingInfo.getEncoding());
+        if (hasEncodingInfo && (!encodingInfo.getEncoding().equals(snapshotEncodings.get(hash))
+                || encodingInfo.getFileSize() == null || encodingInfo.getFileModified() == null)) {
+            return false;
+        }
+        boolean hasAnchor = hasEncodingInfo && encodingInfo.getAnchorOffset() != null && encodingInfo.getAnchorByteOffset() != null;
+
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        buffer.putLong(hash);
+        buffer.putInt(currentPage);
+        buffer.putInt(totalPages != null && totalPages > 0 ? totalPages : NONE);
+        buffer.putInt(currentOffset != null && currentOffset >= 0 ? currentOffset : NONE);
+        buffer.putInt(totalLength != null && totalLength > 0 ? totalLength : NONE);
+        buffer.putLong(time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        buffer.putLong(hasEncodingInfo ? encodingInfo.getFileSize() : NONE);
+        buffer.putLong(hasEncodingInfo ? encodingInfo.getFileModified() : NONE);
+        buffer.putInt(hasAnchor ? encodingInfo.getAnchorOffset() : NONE);
+        buffer.putLong(hasAnchor ? encodingInfo.getAnchorByteOffset() : NONE);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, RECORD_SIZE - 4);
+        buffer.putInt((int) crc.getValue());
+
+        try {
+            if (channel == null) {
+                channel = FileChannel.open(Paths.get(JOURNAL_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+            ((Buffer) buffer).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            close();
+            return false;
+        }
+        records++;
+        unsynced = true;
+        return true;
+    }
+
+    /**
+     * 把之前追加的记录刷到磁盘
+     */
+    public static synchronized void sync() throws IOException {
+        if (channel != null && unsynced) {
+            channel.force(false);
+            unsynced = false;
+        }
+    }
+
+    /**
+     * @return 日志是否已足够长，需要完整写入一次快照
+     */
+    public static synchronized boolean needsCompaction() {
+        return records >= COMPACT_RECORDS;
+    }
+
+    /**
+     * 把日志中的进度应用到刚读取的快照上，并记录快照中已有的小说
+     *
+     * @param novels 快照中按路径索引的小说记录，会被直接修改
+     */
+    public static synchronized void replay(JSONObject novels) {
+        Map<Long, JSONObject> byHash = index(novels);
+        for (Entry entry : readEntries()) {
+            JSONObject novel = byHash.get(entry.hash);
+            LocalDateTime savedTime = novel == null ? null : novel.get("lastReadingTime", LocalDateTime.class);
+            if (novel != null && (savedTime == null || !entry.time.isBefore(savedTime))) {
+                entry.applyTo(novel);
+            }
+        }
+    }
+
+    /**
+     * 把日志中的进度应用到从 {@link RecordTable} 读出的记录上，并记录其中已有的小说
+     *
+     * @param novels 按规范化路径索引的小说记录，会被直接修改
+     */
+    public static synchronized void replay(Map<String, NovelRecord> novels) {
+        Map<Long, NovelRecord> byHash = index(novels.keySet(), novels::get, NovelRecord::getEncoding);
+        for (Entry entry : readEntries()) {
+            NovelRecord novel = byHash.get(entry.hash);
+            if (novel != null && (novel.getLastReadingTime() == null || !entry.time.isBefore(novel.getLastReadingTime()))) {
+                entry.applyTo(novel);
+            }
+        }
+    }
+
+    /**
+     * 读取日志中所有完整的记录，并重新计数
+     */
+    private static List<Entry> readEntries() {
+        List<Entry> entries = new ArrayList<>();
+        Path path = Paths.get(JOURNAL_FILE);
+        records = 0;
+        if (!Files.exists(path)) {
+            return entries;
+        }
+
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(path);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return entries;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= RECORD_SIZE) {
+            int start = buffer.position();
+            crc.reset();
+            crc.update(bytes, start, RECORD_SIZE - 4);
+            if (buffer.getInt(start + RECORD_SIZE - 4) != (int) crc.getValue()) {
+                break; // 写入中断留下的残缺记录，之后的内容都不可信
+            }
+            Entry entry = new Entry();
+            entry.hash = buffer.getLong();
+            entry.currentPage = buffer.getInt();
+            entry.totalPages = buffer.getInt();
+            entry.currentOffset = buffer.getInt();
+            entry.totalLength = buffer.getInt();
+            entry.time = LocalDateTime.ofInstant(Instant.ofEpochMilli(buffer.getLong()), ZoneId.systemDefault());
+            entry.fileSize = buffer.getLong();
+            entry.fileModified = buffer.getLong();
+            entry.anchorOffset = buffer.getInt();
+            entry.anchorByteOffset = buffer.getLong();
+            buffer.getInt();
+            entries.add(entry);
+            records++;
+        }
+        return entries;
+    }
+
+    /**
+     * 快照已完整写入，清空日志并记录快照中已有的小说
+     *
+     * @param novels 写入快照的按路径索引的小说记录
+     */
+    public static synchronized void reset(JSONObject novels) {
+        index(novels);
+        records = 0;
+        close();
+        try {
+            Files.deleteIfExists(Paths.get(JOURNAL_FILE));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 关闭日志文件，下次追加时重新打开；其他进程完整写入快照后会删除并重建日志文件，需要重新打开
+     */
+    public static synchronized void reopen() {
+        close();
+    }
+
+    private static void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            if (unsynced) {
+                channel.force(false);
+            }
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        channel = null;
+        unsynced = false;
+    }
+
+    private static Map<Long, JSONObject> index(JSONObject novels) {
+        if (novels == null) {
+            snapshotEncodings.clear();
+            return new HashMap<>();
+        }
+        return index(novels.keySet(), novels::getJSONObject, novel -> novel.getStr("encoding"));
+    }
+
+    private static <T> Map<Long, T> index(Set<String> filePaths, Function<String, T> novels, Function<T, String> encoding) {
+        Map<Long, T> byHash = new HashMap<>();
+        Set<Long> collisions = new HashSet<>();
+        snapshotEncodings.clear();
+        for (String filePath : filePaths) {
+            T novel = novels.apply(filePath);
+            long hash = hash(filePath);
+            if (collisions.contains(hash)) {
+                continue;
+            }
+            if (byHash.put(hash, novel) != null) {
+                // 快照中的路径各不相同，哈希相同即为冲突，无法通过日志区分，总是完整写入
+                byHash.remove(hash);
+                snapshotEncodings.remove(hash);
+                collisions.add(hash);
+                continue;
+            }
+            snapshotEncodings.put(hash, encoding.apply(novel));
+        }
+        return byHash;
+    }
+
+    /**
+     * 64 位 FNV-1a 哈希
+     */
+    private static long hash(String filePath) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < filePath.length(); i++) {
+            hash ^= filePath.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * 一条日志记录，未更新的字段为 {@link #NONE}
+     */
+    private static final class Entry {
+        private long hash;
+        private int currentPage;
+        private int totalPages;
+        private int currentOffset;
+        private int totalLength;
+        private LocalDateTime time;
+        private long fileSize;
+        private long fileModified;
+        private int anchorOffset;
+        private long anchorByteOffset;
+
+        private void applyTo(JSONObject novel) {
+            novel.set("currentPage", currentPage);
+            if (totalPages != NONE) {
+                novel.set("totalPages", totalPages);
+            }
+            if (currentOffset != NONE) {
+                novel.set("currentOffset", currentOffset);
+            }
+            if (totalLength != NONE) {
+                novel.set("totalLength", totalLength);
+            }
+            if (fileSize != NONE) {
+                novel.set("fileSize", fileSize);
+                novel.set("fileModified", fileModified);
+                if (anchorOffset != NONE) {
+                    novel.set("anchorOffset", anchorOffset);
+                    novel.set("anchorByteOffset", anchorByteOffset);
+                } else {
+                    novel.remove("anchorOffset");
+                    novel.remove("anchorByteOffset");
+                }
+            }
+            novel.set("lastReadingTime", time);
+        }
+
+        private void applyTo(NovelRecord novel) {
+            novel.setCurrentPage(currentPage);
+            if (totalPages != NONE) {
+                novel.setTotalPages(totalPages);
+            }
+            if (currentOffset != NONE) {
+                novel.setCurrentOffset(currentOffset);
+            }
+            if (totalLength != NONE) {
+                novel.setTotalLength(totalLength);
+            }
+            if (fileSize != NONE) {
+                novel.setFileSize(fileSize);
+                novel.setFileModified(fileModified);
+                novel.setAnchorOffset(anchorOffset != NONE ? anchorOffset : null);
+                novel.setAnchorByteOffset(anchorOffset != NONE ? anchorByteOffset : null);
+            }
+            novel.setLastReadingTime(time);
+        }
+    }
+}
@@ -3,18 +3,30 @@ package com.falcon.reader.model;
 import com.falcon.reader.entity.NovelConfig;
 import com.falcon.reader.entity.NovelRecord;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
- * Snapshot of reader settings and saved novel records.
+ * Reader settings and novel records, loaded once at startup and kept as the source of truth.
+ * Records are updated in memory first and marked dirty; {@link ReadingRecord} writes them behind
+ * and marks them clean once the version it wrote is still the latest.
+ * Every change is reported to the registered {@link RecordListener}s on the thread that made it.
  */
 public class ReadingData {
     private final NovelConfig config;
-    private final Map<String, NovelRecord> records;
+    private final ConcurrentMap<String, NovelRecord> records;
+    private final ConcurrentMap<String, Long> dirty = new ConcurrentHashMap<>();
+    private final List<RecordListener> listeners = new CopyOnWriteArrayList<>();
 
     public ReadingData(NovelConfig config, Map<String, NovelRecord> records) {
         this.config = config;
-        this.records = records;
+        this.records = new ConcurrentHashMap<>(records);
     }
 
     public NovelConfig getConfig() {
@@ -24,4 +36,88 @@ public class ReadingData {
     public Map<String, NovelRecord> getRecords() {
         return records;
     }
+
+    public void addRecordListener(RecordListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeRecordListener(RecordListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Applies an update to a record, creating it if needed, and marks it dirty.
+     *
+     * @return the updated record
+     */
+    public NovelRecord updateRecord(String filePath, Consumer<NovelRecord> update) {
+        boolean[] added = new boolean[1];
+        NovelRecord record = records.computeIfAbsent(filePath, path -> {
+            NovelRecord created = new NovelRecord();
+            created.setFilePath(path);
+            added[0] = true;
+            return created;
+        });
+        update.accept(record);
+        record.setLastReadingTime(LocalDateTime.now());
+        dirty.merge(filePath, 1L, Long::sum);
+        for (RecordListener listener : listeners) {
+            if (added[0]) {
+                listener.recordAdded(filePath, record);
+            } else {
+                listener.recordUpdated(filePath, record);
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Moves a record to a new path, keeping its progress and dirty state.
+     *
+     * @return false if there is no record for the old path
+     */
+    public boolean relocateRecord(String oldFilePath, String newFilePath) {
+        NovelRecord record = records.remove(oldFilePath);
+        if (record == null) {
+            return false;
+        }
+        record.setFilePath(newFilePath);
+        records.put(newFilePath, record);
+        Long version = dirty.remove(oldFilePath);
+        if (version != null) {
+            dirty.put(newFilePath, version);
+        }
+        for (RecordListener listener : listeners) {
+            listener.recordRelocated(oldFilePath, newFilePath, record);
+        }
+        return true;
+    }
+
+    public void removeRecord(String filePath) {
+        dirty.remove(filePath);
+        if (records.remove(filePath) == null) {
+            return;
+        }
+        for (RecordListener listener : listeners) {
+            listener.recordRemoved(filePath);
+        }
+    }
+
+    /**
+     * @return the current modification version of a record, 0 if it is clean
+     */
+    public long dirtyVersion(String filePath) {
+        return dirty.getOrDefault(filePath, 0L);
+    }
+
+    /**
+     * Marks a record clean if it has not been modified since the given version was written.
+     */
+    public void markClean(String filePath, long version) {
+        dirty.remove(filePath, version);
+    }
+
+    public Set<String> getDirtyPaths() {
+        return dirty.keySet();
+    }
 }
@@ -2,7 +2,6 @@ package com.falcon.reader.model;
 
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONArray;
 import cn.hutool.json.JSONObject;
 import com.falcon.reader.entity.NovelConfig;
 import com.falcon.reader.entity.NovelRecord;
@@ -10,27 +9,43 @@ import com.falcon.reader.entity.NovelRecord;
 import javax.swing.*;
 import java.awt.*;
 import java.io.*;
-import java.nio.charset.Charset;
-import java.nio.charset.CodingErrorAction;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.*;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 阅读记录处理类
  * 负责保存、删除和加载阅读器的配置（窗口大小、位置、字体、颜色）以及每本小说的阅读进度
+ * 实际的读写由 {@link RecordStore} 完成：默认保存在 bookmark.json（{@link JsonRecordStore}），
+ * 启动参数 -Dreader.store=h2 或已有 bookmark.mv.db 时保存在 H2 数据库（{@link H2RecordStore}），数据库还能按主页的排序和分组直接查询。
+ * 阅读记录只在启动时由 {@link #loadRecord(JFrame)} 读取一次，之后以内存中的 {@link ReadingData} 为准：
+ * 调用方先修改内存中的记录，再由这里把修改后的记录提交到 {@link RecordWriter} 的后台线程写入磁盘，
+ * 写入成功后标记为已保存。调用方线程只取出窗口和字体配置，失败时在事件分发线程上提示。
  *
  * @author zxy
  * @date 2024/10/21 14:13
  **/
 public class ReadingRecord {
 
-    /** 存储所有阅读记录及配置的JSON文件名 */
-    private static final String BOOKMARK_FILE = "bookmark.json";
+    /** 阅读记录的存储方式 */
+    private static final RecordStore store = createStore();
+
+    private static RecordStore createStore() {
+        if ("h2".equalsIgnoreCase(System.getProperty("reader.store"))
+                || Files.exists(Paths.get(H2RecordStore.DATABASE_FILE))) {
+            try {
+                return new H2RecordStore();
+            } catch (IOException | RuntimeException e) {
+                // 数据库无法打开或驱动无法加载时仍使用 bookmark.json
+                e.printStackTrace();
+            }
+        }
+        return new JsonRecordStore();
+    }
 
     /**
      * 保存当前阅读状态及小说进度
@@ -59,142 +74,80 @@ public class ReadingRecord {
 
     public static void saveRecord(JFrame frame, JLabel label, String filePath, int currentPage, Integer totalPages,
             Integer currentOffset, Integer totalLength) {
-        Path path = Paths.get(BOOKMARK_FILE);
+        saveRecord(frame, label, filePath, currentPage, totalPages, currentOffset, totalLength, null);
+    }
 
+    /**
+     * 保存当前阅读状态及小说进度，并缓存文件编码
+     *
+     * @param frame         主窗口，用于获取窗口大小和位置
+     * @param label         内容显示标签，用于获取字体和前景色
+     * @param filePath      当前阅读的小说文件路径，作为记录的唯一标识
+     * @param currentPage   当前阅读的页码
+     * @param totalPages    当前分页结果的总页数
+     * @param currentOffset 当前页起始字符偏移
+     * @param totalLength   小说总字符数
+     * @param encodingInfo  检测到的文件编码及对应的文件大小、修改时间，以及当前页之前最近的行首锚点，为空时不更新
+     */
+    public static void saveRecord(JFrame frame, JLabel label, String filePath, int currentPage, Integer totalPages,
+            Integer currentOffset, Integer totalLength, NovelRecord encodingInfo) {
         // 仅当文件路径不为空时才执行保存操作
-        if (StrUtil.isNotBlank(filePath)) {
-            JSONObject jsonObject;
-
-            // 如果记录文件不存在，则创建空文件并初始化一个空的JSON对象
-            if (!Files.exists(path)) {
-                try {
-                    Files.createFile(path);
-                    jsonObject = new JSONObject();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                    return;
-                }
-            } else {
-                // 文件已存在，读取现有内容
-                try {
-                    jsonObject = readJson(path);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                    return;
-                }
-            }
-
-            JSONArray novelArray = new JSONArray();
-            boolean flag = true; // 标记是否需要新增记录（true表示未找到相同文件路径的记录）
-
-            // 如果JSON中存在"novels"数组，则遍历查找是否已有当前文件路径的记录
-            if (jsonObject.containsKey("novels")) {
-                novelArray = jsonObject.getJSONArray("novels");
-                if (!novelArray.isEmpty()) {
-                    for (Object object : novelArray) {
-                        JSONObject novel = (JSONObject) object;
-                        if (novel.containsKey("filePath") && filePath.equals(novel.getStr("filePath"))) {
-                            // 找到已有记录，更新页码和最后阅读时间
-                            novel.set("currentPage", currentPage);
-                            if (totalPages != null && totalPages > 0) {
-                                novel.set("totalPages", totalPages);
-                            }
-                            if (currentOffset != null && currentOffset >= 0) {
-                                novel.set("currentOffset", currentOffset);
-                            }
-                            if (totalLength != null && totalLength > 0) {
-                                novel.set("totalLength", totalLength);
-                            }
-                            novel.set("lastReadingTime", LocalDateTime.now());
-                            flag = false; // 标记为已更新，无需新增
-                            break;
-                        }
-                    }
-                }
-            }
-
-            // 如果没有找到相同文件路径的记录，则新增一条记录
-            if (flag) {
-                JSONObject currentNovel = new JSONObject();
-                currentNovel.set("filePath", filePath);
-                currentNovel.set("currentPage", currentPage);
-                if (totalPages != null && totalPages > 0) {
-                    currentNovel.set("totalPages", totalPages);
-                }
-                if (currentOffset != null && currentOffset >= 0) {
-                    currentNovel.set("currentOffset", currentOffset);
-                }
-                if (totalLength != null && totalLength > 0) {
-                    currentNovel.set("totalLength", totalLength);
-                }
-                currentNovel.set("lastReadingTime", LocalDateTime.now());
-                novelArray.add(currentNovel);
-            }
-
-            // 保存窗口配置：大小、位置
-            jsonObject.set("width", frame.getSize().width);
-            jsonObject.set("height", frame.getSize().height);
-            jsonObject.set("locationX", frame.getLocation().x);
-            jsonObject.set("locationY", frame.getLocation().y);
-
-            // 保存文本显示配置：字体名称、大小、样式、前景色
-            jsonObject.set("font", label.getFont().getName());
-            jsonObject.set("fontSize", label.getFont().getSize());
-            jsonObject.set("fontStyle", label.getFont().getStyle());
-            jsonObject.set("labelForeground", label.getForeground().getRGB());
-
-            // 更新小说记录数组
-            jsonObject.set("novels", novelArray);
-
-            // 将JSON对象写入文件
-            try (Writer file = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
-                file.write(jsonObject.toString());
-            } catch (IOException ex) {
-                ex.printStackTrace();
-                JOptionPane.showMessageDialog(frame, "保存记录失败: " + ex.getMessage());
-            }
+        if (StrUtil.isBlank(filePath)) {
+            return;
         }
+        // 写入线程不访问界面组件，也不读取调用方之后还会修改的编码信息
+        String key = normalizePath(filePath);
+        WindowConfig config = new WindowConfig(frame, label);
+        NovelRecord fileInfo = encodingInfo == null ? null : BeanUtil.copyProperties(encodingInfo, NovelRecord.class);
+        LocalDateTime lastReadingTime = LocalDateTime.now();
+        RecordWriter.submit("record:" + key,
+                () -> store.saveRecord(config.toJson(), key, currentPage, totalPages, currentOffset, totalLength,
+                        fileInfo, lastReadingTime),
+                null, failure(frame, "保存记录失败"));
     }
 
-    public static void saveConfig(JFrame frame, JLabel label) {
-        Path path = Paths.get(BOOKMARK_FILE);
-        JSONObject jsonObject;
-
-        if (!Files.exists(path)) {
-            try {
-                Files.createFile(path);
-                jsonObject = new JSONObject();
-            } catch (IOException e) {
-                e.printStackTrace();
-                return;
-            }
-        } else {
-            try {
-                jsonObject = readJson(path);
-            } catch (IOException e) {
-                e.printStackTrace();
-                JOptionPane.showMessageDialog(frame, "保存设置失败: " + e.getMessage());
-                return;
-            }
+    /**
+     * 把内存中已修改的小说记录写入磁盘，写入成功且期间没有再次修改时标记为已保存
+     *
+     * @param frame    主窗口，用于获取窗口大小和位置
+     * @param label    内容显示标签，用于获取字体和前景色
+     * @param data     内存中的阅读记录
+     * @param filePath 小说文件路径
+     */
+    public static void saveRecord(JFrame frame, JLabel label, ReadingData data, String filePath) {
+        NovelRecord record = StrUtil.isBlank(filePath) ? null : data.getRecords().get(filePath);
+        if (record == null) {
+            return;
         }
+        WindowConfig config = new WindowConfig(frame, label);
+        NovelRecord saved = BeanUtil.copyProperties(record, NovelRecord.class);
+        long version = data.dirtyVersion(filePath);
+        int currentPage = saved.getCurrentPage() == null ? 0 : saved.getCurrentPage();
+        LocalDateTime lastReadingTime = saved.getLastReadingTime() == null ? LocalDateTime.now() : saved.getLastReadingTime();
+        RecordWriter.submit("record:" + filePath,
+                () -> store.saveRecord(config.toJson(), filePath, currentPage, saved.getTotalPages(),
+                        saved.getCurrentOffset(), saved.getTotalLength(), saved, lastReadingTime),
+                () -> data.markClean(filePath, version), failure(frame, "保存记录失败"));
+    }
 
-        jsonObject.set("width", frame.getSize().width);
-        jsonObject.set("height", frame.getSize().height);
-        jsonObject.set("locationX", frame.getLocation().x);
-        jsonObject.set("locationY", frame.getLocation().y);
-        jsonObject.set("font", label.getFont().getName());
-        jsonObject.set("fontSize", label.getFont().getSize());
-        jsonObject.set("fontStyle", label.getFont().getStyle());
-        jsonObject.set("labelForeground", label.getForeground().getRGB());
-
-        try (Writer file = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
-            file.write(jsonObject.toString());
-        } catch (IOException ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(frame, "保存设置失败: " + ex.getMessage());
+    /**
+     * 重新提交所有尚未保存的小说记录，用于退出前补写之前写入失败的记录
+     *
+     * @param frame 主窗口，用于获取窗口大小和位置
+     * @param label 内容显示标签，用于获取字体和前景色
+     * @param data  内存中的阅读记录
+     */
+    public static void saveDirtyRecords(JFrame frame, JLabel label, ReadingData data) {
+        for (String filePath : new ArrayList<>(data.getDirtyPaths())) {
+            saveRecord(frame, label, data, filePath);
         }
     }
 
+    public static void saveConfig(JFrame frame, JLabel label) {
+        WindowConfig config = new WindowConfig(frame, label);
+        RecordWriter.submit("config", () -> store.saveConfig(config.toJson()), null, failure(frame, "保存设置失败"));
+    }
+
     /**
      * 删除指定文件路径的小说阅读记录
      *
@@ -202,189 +155,156 @@ public class ReadingRecord {
      * @param filePath 要删除记录的小说文件路径
      */
     public static void deleteRecord(JFrame frame, String filePath) {
-        Path path = Paths.get(BOOKMARK_FILE);
-
         // 仅当文件路径不为空时才执行删除操作
         if (StrUtil.isNotBlank(filePath)) {
-            JSONObject jsonObject;
-
-            // 如果记录文件不存在，则创建空文件并初始化JSON对象（实际上不会包含任何记录）
-            if (!Files.exists(path)) {
-                try {
-                    Files.createFile(path);
-                    jsonObject = new JSONObject();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                    return;
-                }
-            } else {
-                try {
-                    jsonObject = readJson(path);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                    return;
-                }
-            }
-
-            JSONArray novelArray = new JSONArray();
-            // 从JSON中取出小说记录数组，并删除匹配的记录
-            if (jsonObject.containsKey("novels")) {
-                novelArray = jsonObject.getJSONArray("novels");
-                if (!novelArray.isEmpty()) {
-                    for (int i = 0; i < novelArray.size(); i++) {
-                        JSONObject novel = novelArray.getJSONObject(i);
-                        if (novel.containsKey("filePath") && filePath.equals(novel.getStr("filePath"))) {
-                            novelArray.remove(i); // 删除匹配的记录
-                            break;
-                        }
-                    }
-                }
-            }
-
-            // 更新后的记录数组写回JSON对象
-            jsonObject.set("novels", novelArray);
-
-            // 将更新后的JSON写回文件
-            try (Writer file = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
-                file.write(jsonObject.toString());
-            } catch (IOException ex) {
-                ex.printStackTrace();
-                JOptionPane.showMessageDialog(frame, "删除记录失败: " + ex.getMessage());
-            }
+            String key = normalizePath(filePath);
+            RecordWriter.submit("delete:" + key, () -> store.removeRecord(key), null, failure(frame, "删除记录失败"));
         }
     }
 
     /**
      * 重新定位指定小说记录的文件路径，保留页码、时间和分页信息等阅读进度。
+     * 调用方应先修改内存中的记录；磁盘上没有旧路径的记录时不做修改。
      *
      * @param frame       主窗口，用于显示错误提示
      * @param oldFilePath 原小说文件路径
      * @param newFilePath 新小说文件路径
-     * @return 是否成功更新记录
      */
-    public static boolean relocateRecord(JFrame frame, String oldFilePath, String newFilePath) {
+    public static void relocateRecord(JFrame frame, String oldFilePath, String newFilePath) {
         if (StrUtil.isBlank(oldFilePath) || StrUtil.isBlank(newFilePath)) {
-            return false;
-        }
-
-        Path path = Paths.get(BOOKMARK_FILE);
-        if (!Files.exists(path)) {
-            return false;
-        }
-
-        try {
-            JSONObject jsonObject = readJson(path);
-            JSONArray novelArray = jsonObject.containsKey("novels") ? jsonObject.getJSONArray("novels") : new JSONArray();
-            boolean updated = false;
-
-            for (int i = 0; i < novelArray.size(); i++) {
-                JSONObject novel = novelArray.getJSONObject(i);
-                if (oldFilePath.equals(novel.getStr("filePath"))) {
-                    novel.set("filePath", newFilePath);
-                    updated = true;
-                    break;
-                }
-            }
-
-            if (!updated) {
-                return false;
-            }
-
-            jsonObject.set("novels", novelArray);
-            try (Writer file = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
-                file.write(jsonObject.toString());
-            }
-            return true;
-        } catch (IOException ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(frame, "重新定位文件失败: " + ex.getMessage());
-            return false;
+            return;
         }
+        String oldKey = normalizePath(oldFilePath);
+        String newKey = normalizePath(newFilePath);
+        RecordWriter.submit(() -> store.moveRecord(oldKey, newKey), null, failure(frame, "重新定位文件失败"));
     }
 
     /**
-     * 加载所有保存的阅读记录和窗口配置
+     * 加载所有保存的阅读记录和窗口配置，在调用线程上直接读取文件，只在启动时调用一次
      *
      * @param frame 主窗口，加载后将应用保存的窗口大小和位置
-     * @return Pair对象，左值为NovelConfig（包含字体、颜色等配置），右值为Map<String, NovelRecord>（文件路径到小说记录的映射，按最后阅读时间降序排列）
+     * @return Pair对象，左值为NovelConfig（包含字体、颜色等配置），右值为Map<String, NovelRecord>（文件路径到小说记录的映射，显示顺序由主页排序决定）
      */
     public static ReadingData loadRecord(JFrame frame) {
-        Map<String, NovelRecord> novelRecordMap = new LinkedHashMap<>();
-        NovelConfig novelConfig = new NovelConfig();
-
-        // 仅当记录文件存在时才执行加载
-        if (Files.exists(Paths.get(BOOKMARK_FILE))) {
-            try {
-                JSONObject jsonObject = readJson(Paths.get(BOOKMARK_FILE));
+        try {
+            return readRecord(frame);
+        } catch (IOException | NullPointerException ex) {
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(frame, "加载记录失败: " + ex.getMessage());
+            return new ReadingData(new NovelConfig(), new HashMap<>());
+        }
+    }
 
-                // 加载窗口大小
-                if (jsonObject.containsKey("width") && jsonObject.containsKey("height")) {
-                    frame.setSize(jsonObject.getInt("width"), jsonObject.getInt("height"));
-                }
-                // 加载窗口位置
-                if (jsonObject.containsKey("locationX") && jsonObject.containsKey("locationY")) {
-                    frame.setLocation(jsonObject.getInt("locationX"), jsonObject.getInt("locationY"));
-                }
+    private static ReadingData readRecord(JFrame frame) throws IOException {
+        Map<String, NovelRecord> novelRecordMap = new HashMap<>();
+        JSONObject jsonObject = store.load(novelRecordMap);
+        return new ReadingData(readConfig(frame, jsonObject), novelRecordMap);
+    }
 
-                // 加载字体配置（名称、样式、大小）
-                if (jsonObject.containsKey("font") && jsonObject.containsKey("fontSize") && jsonObject.containsKey("fontStyle")) {
-                    novelConfig.setFont(
-                            new Font(jsonObject.getStr("font"), jsonObject.getInt("fontStyle"), jsonObject.getInt("fontSize")));
-                }
-                // 加载标签前景色
-                if (jsonObject.containsKey("labelForeground")) {
-                    novelConfig.setForeground(new Color(jsonObject.getInt("labelForeground")));
-                }
+    /**
+     * 读取窗口和文本显示配置，并把窗口大小和位置应用到主窗口
+     */
+    private static NovelConfig readConfig(JFrame frame, JSONObject jsonObject) {
+        NovelConfig novelConfig = new NovelConfig();
 
-                // 加载所有小说阅读记录
-                if (jsonObject.containsKey("novels")) {
-                    JSONArray novelArray = jsonObject.getJSONArray("novels");
-                    if (!novelArray.isEmpty()) {
-                        List<NovelRecord> novelRecords = new ArrayList<>();
-                        // 将JSON数组转换为NovelRecord对象列表
-                        for (Object object : novelArray) {
-                            JSONObject novel = (JSONObject) object;
-                            novelRecords.add(BeanUtil.toBean(novel, NovelRecord.class));
-                        }
-                        // 按最后阅读时间降序排序（最近阅读的排在最前）
-                        novelRecords.sort(Comparator.comparing(NovelRecord::getLastReadingTime).reversed());
-                        // 存入有序Map，保持排序后的顺序
-                        for (NovelRecord novelRecord : novelRecords) {
-                            novelRecordMap.put(novelRecord.getFilePath(), novelRecord);
-                        }
-                    }
-                }
-            } catch (IOException | NullPointerException ex) {
-                ex.printStackTrace();
-                JOptionPane.showMessageDialog(frame, "加载记录失败: " + ex.getMessage());
+        if (frame != null) {
+            // 加载窗口大小
+            if (jsonObject.containsKey("width") && jsonObject.containsKey("height")) {
+                frame.setSize(jsonObject.getInt("width"), jsonObject.getInt("height"));
+            }
+            // 加载窗口位置
+            if (jsonObject.containsKey("locationX") && jsonObject.containsKey("locationY")) {
+                frame.setLocation(jsonObject.getInt("locationX"), jsonObject.getInt("locationY"));
             }
         }
-        return new ReadingData(novelConfig, novelRecordMap);
+
+        // 加载字体配置（名称、样式、大小）
+        if (jsonObject.containsKey("font") && jsonObject.containsKey("fontSize") && jsonObject.containsKey("fontStyle")) {
+            novelConfig.setFont(
+                    new Font(jsonObject.getStr("font"), jsonObject.getInt("fontStyle"), jsonObject.getInt("fontSize")));
+        }
+        // 加载标签前景色
+        if (jsonObject.containsKey("labelForeground")) {
+            novelConfig.setForeground(new Color(jsonObject.getInt("labelForeground")));
+        }
+        return novelConfig;
     }
 
-    private static JSONObject readJson(Path path) throws IOException {
-        byte[] bytes = Files.readAllBytes(path);
-        if (bytes.length == 0) {
-            return new JSONObject();
+    /**
+     * 在写入线程上按主页的排序方式和分组查询小说路径，查询排在已提交的写入之后，结果包含尚未写完的修改
+     *
+     * @param frame     主窗口，用于显示错误提示
+     * @param sortMode  排序方式
+     * @param groupMode 阅读进度分组，文件是否存在由调用方判断
+     * @param callback  在事件分发线程上接收排好序的小说路径，存储不支持查询时接收 null
+     * @return 存储不支持查询时返回 false，调用方应自行遍历内存中的记录
+     */
+    public static boolean queryRecords(JFrame frame, HomeView.SortMode sortMode, HomeView.GroupMode groupMode,
+            Consumer<List<String>> callback) {
+        if (!store.supportsQuery()) {
+            return false;
         }
+        List<List<String>> result = new ArrayList<>(1);
+        RecordWriter.submit("query", () -> result.add(store.query(sortMode, groupMode)),
+                () -> callback.accept(result.get(0)), failure(frame, "查询记录失败"));
+        return true;
+    }
 
+    /**
+     * 规范化小说文件路径，作为阅读记录的键：转换为绝对路径并去掉 "."、".." 等多余部分
+     *
+     * @param filePath 小说文件路径
+     * @return 规范化后的路径；无法解析的路径原样返回
+     */
+    public static String normalizePath(String filePath) {
         try {
-            return parseJson(bytes, StandardCharsets.UTF_8, true);
-        } catch (IOException | RuntimeException utf8Ex) {
-            try {
-                return parseJson(bytes, Charset.defaultCharset(), false);
-            } catch (RuntimeException defaultCharsetEx) {
-                IOException ex = new IOException("阅读记录文件格式错误，请检查或删除 " + BOOKMARK_FILE, defaultCharsetEx);
-                ex.addSuppressed(utf8Ex);
-                throw ex;
-            }
+            return Paths.get(filePath).toAbsolutePath().normalize().toString();
+        } catch (InvalidPathException e) {
+            return filePath;
         }
     }
 
-    private static JSONObject parseJson(byte[] bytes, Charset charset, boolean reportMalformedInput) throws IOException {
-        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(bytes),
-                reportMalformedInput ? charset.newDecoder().onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT) : charset.newDecoder())) {
-            return new JSONObject(reader);
+    private static Consumer<Exception> failure(JFrame frame, String message) {
+        return e -> JOptionPane.showMessageDialog(frame, message + ": " + e.getMessage());
+    }
+
+    /**
+     * 保存时在调用线程上取出的窗口和文本显示配置
+     */
+    private static final class WindowConfig {
+        private final int width;
+        private final int height;
+        private final int locationX;
+        private final int locationY;
+        private final String font;
+        private final int fontSize;
+        private final int fontStyle;
+        private final int labelForeground;
+
+        private WindowConfig(JFrame frame, JLabel label) {
+            this.width = frame.getSize().width;
+            this.height = frame.getSize().height;
+            this.locationX = frame.getLocation().x;
+            this.locationY = frame.getLocation().y;
+            this.font = label.getFont().getName();
+            this.fontSize = label.getFont().getSize();
+            this.fontStyle = label.getFont().getStyle();
+            this.labelForeground = label.getForeground().getRGB();
+        }
+
+        private JSONObject toJson() {
+            JSONObject jsonObject = new JSONObject();
+            // 窗口配置：大小、位置
+            jsonObject.set("width", width);
+            jsonObject.set("height", height);
+            jsonObject.set("locationX", locationX);
+            jsonObject.set("locationY", locationY);
+            // 文本显示配置：字体名称、大小、样式、前景色
+            jsonObject.set("font", font);
+            jsonObject.set("fontSize", fontSize);
+            jsonObject.set("fontStyle", fontStyle);
+            jsonObject.set("labelForeground", labelForeground);
+            return jsonObject;
         }
     }
 }
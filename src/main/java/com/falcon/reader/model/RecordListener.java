@@ -0,0 +1,34 @@
+package com.falcon.reader.model;
+
+import com.falcon.reader.entity.NovelRecord;
+
+/**
+ * 阅读记录变化监听器
+ * {@link ReadingData} 修改内存中的记录后，在修改记录的线程上逐条通知，目前记录只在事件分发线程上修改。
+ * 主页按通知只更新受影响的一行，不再重建整个列表。
+ *
+ * @author zxy
+ * @date 2026/3/17 10:20
+ **/
+public interface RecordListener {
+
+    /**
+     * 新增了一条记录
+     */
+    void recordAdded(String filePath, NovelRecord record);
+
+    /**
+     * 已有记录的进度或编码信息发生变化
+     */
+    void recordUpdated(String filePath, NovelRecord record);
+
+    /**
+     * 删除了一条记录
+     */
+    void recordRemoved(String filePath);
+
+    /**
+     * 记录从旧路径移动到新路径，进度不变
+     */
+    void recordRelocated(String oldFilePath, String newFilePath, NovelRecord record);
+}
@@ -0,0 +1,178 @@
+package com.falcon.reader.model;
+
+import com.falcon.reader.entity.NovelRecord;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 主页记录的排序
+ * 每种排序方式各保存一份排好序的记录，记录增删或阅读时间变化时只移动这一条，切换排序方式或重新生成列表时直接按顺序遍历。
+ * 按名称排序时预先算好文件名的排序键（{@link CollationKey}），比较时按字节比较，不再每次解析路径和按中文规则比较，
+ * 顺序与 {@link Collator#compare} 一致；按时间排序时保存加入时的最后阅读时间，记录被修改后仍能找到原来的位置。
+ * 名称或时间相同时按路径排序。
+ * <p>
+ * 每种排序方式在第一次使用时才建立，没有使用过的排序方式不需要为它计算排序键。
+ *
+ * @author zxy
+ * @date 2026/3/20 16:30
+ **/
+class RecordOrder {
+    private final Collator collator = Collator.getInstance(Locale.CHINA);
+    private final Map<String, NovelRecord> records;
+    private final Map<HomeView.SortMode, Ordering> orderings = new EnumMap<>(HomeView.SortMode.class);
+
+    /**
+     * 一条记录在某种排序方式下的位置
+     */
+    private static class Key {
+        private final String path;
+        private final CollationKey name;
+        private final LocalDateTime lastReadingTime;
+
+        private Key(String path, CollationKey name, LocalDateTime lastReadingTime) {
+            this.path = path;
+            this.name = name;
+            this.lastReadingTime = lastReadingTime;
+        }
+    }
+
+    /**
+     * 一种排序方式下排好序的记录
+     */
+    private static class Ordering {
+        private final Comparator<Key> comparator;
+        private final TreeSet<Key> sorted;
+        private final Map<String, Key> keys = new HashMap<>();
+
+        private Ordering(Comparator<Key> comparator) {
+            this.comparator = comparator;
+            this.sorted = new TreeSet<>(comparator);
+        }
+
+        private void put(Key key) {
+            Key old = keys.put(key.path, key);
+            if (old != null) {
+                if (comparator.compare(old, key) == 0) {
+                    return;
+                }
+                sorted.remove(old);
+            }
+            sorted.add(key);
+        }
+
+        private void remove(String path) {
+            Key old = keys.remove(path);
+            if (old != null) {
+                sorted.remove(old);
+            }
+        }
+    }
+
+    /**
+     * @param records 阅读记录，排序方式第一次使用时从中建立；之后的变化需要通过 {@link #put} 和 {@link #remove} 告知
+     */
+    RecordOrder(Map<String, NovelRecord> records) {
+        this.records = records;
+    }
+
+    /**
+     * 加入一条记录，已有时按记录的当前状态移动到新位置
+     */
+    void put(String path, NovelRecord record) {
+        orderings.forEach((sortMode, ordering) -> {
+            // 文件名只与路径有关，保存进度时不需要重新计算排序键
+            if (sortMode != HomeView.SortMode.NAME || !ordering.keys.containsKey(path)) {
+                ordering.put(key(sortMode, path, record));
+            }
+        });
+    }
+
+    void remove(String path) {
+        for (Ordering ordering : orderings.values()) {
+            ordering.remove(path);
+        }
+    }
+
+    /**
+     * @return 按排序方式排好序的全部路径
+     */
+    List<String> paths(HomeView.SortMode sortMode) {
+        Ordering ordering = ordering(sortMode);
+        List<String> paths = new ArrayList<>(ordering.sorted.size());
+        for (Key key : ordering.sorted) {
+            paths.add(key.path);
+        }
+        return paths;
+    }
+
+    /**
+     * 按保存的排序键比较两个路径，与 {@link #paths} 的顺序一致
+     */
+    int compare(HomeView.SortMode sortMode, String first, String second) {
+        Ordering ordering = ordering(sortMode);
+        return ordering.comparator.compare(keyOf(ordering, sortMode, first), keyOf(ordering, sortMode, second));
+    }
+
+    private Key keyOf(Ordering ordering, HomeView.SortMode sortMode, String path) {
+        Key key = ordering.keys.get(path);
+        return key != null ? key : key(sortMode, path, records.get(path));
+    }
+
+    private Ordering ordering(HomeView.SortMode sortMode) {
+        Ordering ordering = orderings.get(sortMode);
+        if (ordering == null) {
+            ordering = new Ordering(sortMode == HomeView.SortMode.NAME
+                    ? Comparator.comparing((Key key) -> key.name).thenComparing(key -> key.path)
+                    : RecordOrder::compareLastReadingTime);
+            for (Map.Entry<String, NovelRecord> entry : records.entrySet()) {
+                ordering.put(key(sortMode, entry.getKey(), entry.getValue()));
+            }
+            orderings.put(sortMode, ordering);
+        }
+        return ordering;
+    }
+
+    private Key key(HomeView.SortMode sortMode, String path, NovelRecord record) {
+        if (sortMode == HomeView.SortMode.NAME) {
+            return new Key(path, collator.getCollationKey(getFileName(path)), null);
+        }
+        return new Key(path, null, record == null ? null : record.getLastReadingTime());
+    }
+
+    /**
+     * 最近阅读的在前，没有阅读时间的在最后
+     */
+    private static int compareLastReadingTime(Key first, Key second) {
+        LocalDateTime firstTime = first.lastReadingTime;
+        LocalDateTime secondTime = second.lastReadingTime;
+        int result;
+        if (firstTime == null || secondTime == null) {
+            result = firstTime == secondTime ? 0 : firstTime == null ? 1 : -1;
+        } else {
+            result = secondTime.compareTo(firstTime);
+        }
+        return result != 0 ? result : first.path.compareTo(second.path);
+    }
+
+    private static String getFileName(String filePath) {
+        try {
+            Path path = Paths.get(filePath);
+            return path.getFileName() == null ? filePath : path.getFileName().toString();
+        } catch (InvalidPathException e) {
+            return filePath;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.falcon.reader.model;
+
+import cn.hutool.json.JSONObject;
+import com.falcon.reader.entity.NovelRecord;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 阅读记录的存储方式
+ * {@link ReadingRecord} 在 {@link RecordWriter} 的写入线程上调用这些方法（启动时的 {@link #load(Map)} 除外），
+ * 实现类不需要处理界面线程，也不会被并发调用。
+ * 窗口和文本显示配置以 JSON 对象传递，键与 bookmark.json 顶层的配置字段相同；小说记录以规范化路径为键。
+ * 可能有多个阅读器进程同时使用同一份存储，实现类只修改被保存的那一本小说，不能覆盖其他进程保存的记录。
+ *
+ * @author zxy
+ * @date 2026/3/16 09:30
+ **/
+public interface RecordStore {
+
+    /**
+     * 读取全部阅读记录和配置
+     *
+     * @param records 读出的小说记录按规范化路径放入其中
+     * @return 窗口和文本显示配置，没有保存过时返回空对象
+     */
+    JSONObject load(Map<String, NovelRecord> records) throws IOException;
+
+    /**
+     * 保存一本小说的阅读进度，同时保存当前配置
+     *
+     * @param config          窗口和文本显示配置
+     * @param filePath        规范化后的小说文件路径
+     * @param currentPage     当前页码
+     * @param totalPages      总页数，为空或不大于 0 时不更新
+     * @param currentOffset   当前页起始字符偏移，为空或小于 0 时不更新
+     * @param totalLength     小说总字符数，为空或不大于 0 时不更新
+     * @param encodingInfo    文件编码、大小、修改时间和锚点，为空或编码为空时不更新
+     * @param lastReadingTime 阅读时间，早于已保存的时间时不更新进度，多个进程保存同一本小说时以较晚的阅读为准
+     */
+    void saveRecord(JSONObject config, String filePath, int currentPage, Integer totalPages, Integer currentOffset,
+            Integer totalLength, NovelRecord encodingInfo, LocalDateTime lastReadingTime) throws IOException;
+
+    void saveConfig(JSONObject config) throws IOException;
+
+    void removeRecord(String filePath) throws IOException;
+
+    /**
+     * @return 是否找到并移动了旧路径的记录
+     */
+    boolean moveRecord(String oldFilePath, String newFilePath) throws IOException;
+
+    /**
+     * @return 是否支持 {@link #query(HomeView.SortMode, HomeView.GroupMode)}
+     */
+    default boolean supportsQuery() {
+        return false;
+    }
+
+    /**
+     * 按主页的排序方式和阅读进度分组查询小说路径；文件是否存在不在存储中，由调用方判断
+     *
+     * @param sortMode  排序方式
+     * @param groupMode 分组，{@link HomeView.GroupMode#MISSING} 与全部相同
+     * @return 排好序的小说路径；不支持查询时返回 null，调用方应自行遍历内存中的记录
+     */
+    default List<String> query(HomeView.SortMode sortMode, HomeView.GroupMode groupMode) throws IOException {
+        return null;
+    }
+}
@@ -0,0 +1,241 @@
+package com.falcon.reader.model;
+
+import cn.hutool.json.JSONObject;
+import com.falcon.reader.entity.NovelRecord;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 阅读记录的二进制副本
+ * bookmark.json 每次完整写入后，在 cache/records.bin 中保存同样内容的二进制副本；启动时副本与快照一致就直接读取副本，
+ * 不再解析 JSON，也不再通过反射把每条记录转换为 {@link NovelRecord}。副本缺失、损坏或与快照不一致时按未命中处理，
+ * 仍读取 bookmark.json，并在写入线程上重新生成副本。
+ * <p>
+ * 文件头记录快照的大小、修改时间和校验和以及窗口和文本显示配置；小说所在目录和编码各保存一次，记录中只保存其序号，
+ * 文件名集中保存为一段 UTF-8 字节。每条记录为定长字段，数值直接按偏移读取，空值用各类型的最小值表示。
+ *
+ * @author zxy
+ * @date 2026/3/15 14:10
+ **/
+public class RecordTable {
+    private static final Path TABLE_FILE = Paths.get("cache", "records.bin");
+    private static final int MAGIC = 0x5254424C; // "RTBL"
+    private static final int VERSION = 1;
+    /** 每条记录的字节数：七个 int、最后阅读时间、编码序号、文件大小、修改时间和锚点 */
+    private static final int ROW_SIZE = 7 * 4 + 8 + 2 + 8 + 8 + 4 + 8;
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+
+    private final JSONObject config;
+    private final Map<String, NovelRecord> records;
+
+    private RecordTable(JSONObject config, Map<String, NovelRecord> records) {
+        this.config = config;
+        this.records = records;
+    }
+
+    /**
+     * @return 快照中除小说记录外的窗口和文本显示配置
+     */
+    public JSONObject getConfig() {
+        return config;
+    }
+
+    /**
+     * @return 按规范化路径索引的小说记录
+     */
+    public Map<String, NovelRecord> getRecords() {
+        return records;
+    }
+
+    /**
+     * 读取与快照一致的二进制副本
+     *
+     * @param snapshot bookmark.json 的路径
+     * @return 副本内容；未命中、损坏或读取失败时返回 null
+     */
+    public static RecordTable load(Path snapshot) {
+        try {
+            if (!Files.exists(snapshot) || !Files.exists(TABLE_FILE)) {
+                return null;
+            }
+            byte[] bytes = Files.readAllBytes(TABLE_FILE);
+            if (bytes.length < 8) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length - 8);
+            if (ByteBuffer.wrap(bytes, bytes.length - 8, 8).getLong() != crc.getValue()) {
+                return null;
+            }
+
+            ByteArrayInputStream stream = new ByteArrayInputStream(bytes, 0, bytes.length - 8);
+            DataInputStream in = new DataInputStream(stream);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION
+                    || in.readLong() != Files.size(snapshot)
+                    || in.readLong() != Files.getLastModifiedTime(snapshot).toMillis()
+                    || !in.readUTF().equals(fingerprint(snapshot))) {
+                return null;
+            }
+            JSONObject config = new JSONObject(in.readUTF());
+            String[] directories = new String[in.readInt()];
+            for (int i = 0; i < directories.length; i++) {
+                directories[i] = in.readUTF();
+            }
+            String[] encodings = new String[in.readInt()];
+            for (int i = 0; i < encodings.length; i++) {
+                encodings[i] = in.readUTF();
+            }
+            byte[] names = new byte[in.readInt()];
+            in.readFully(names);
+            int count = in.readInt();
+
+            // 之后都是定长记录，直接按偏移读取
+            ByteBuffer rows = ByteBuffer.wrap(bytes, bytes.length - 8 - stream.available(), stream.available());
+            if (rows.remaining() != count * ROW_SIZE) {
+                return null;
+            }
+            Map<String, NovelRecord> records = new HashMap<>(count * 4 / 3 + 1);
+            ZoneId zone = ZoneId.systemDefault();
+            for (int i = 0; i < count; i++) {
+                int directory = rows.getInt();
+                String name = new String(names, rows.getInt(), rows.getInt(), StandardCharsets.UTF_8);
+                NovelRecord record = new NovelRecord();
+                record.setFilePath(directory < 0 ? name : directories[directory] + File.separator + name);
+                record.setCurrentPage(toInteger(rows.getInt()));
+                record.setTotalPages(toInteger(rows.getInt()));
+                record.setCurrentOffset(toInteger(rows.getInt()));
+                record.setTotalLength(toInteger(rows.getInt()));
+                long time = rows.getLong();
+                record.setLastReadingTime(time == NULL_LONG ? null
+                        : LocalDateTime.ofInstant(Instant.ofEpochMilli(time), zone));
+                short encoding = rows.getShort();
+                record.setEncoding(encoding < 0 ? null : encodings[encoding]);
+                record.setFileSize(toLong(rows.getLong()));
+                record.setFileModified(toLong(rows.getLong()));
+                record.setAnchorOffset(toInteger(rows.getInt()));
+                record.setAnchorByteOffset(toLong(rows.getLong()));
+                records.put(record.getFilePath(), record);
+            }
+            return new RecordTable(config, records);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * 按刚写入的快照生成二进制副本，先写入临时文件再替换，写入失败时删除旧副本
+     *
+     * @param snapshot   bookmark.json 的路径
+     * @param jsonObject 快照内容
+     */
+    public static void save(Path snapshot, JSONObject jsonObject) {
+        Path temp = TABLE_FILE.resolveSibling(TABLE_FILE.getFileName() + ".tmp");
+        try {
+            JSONObject config = new JSONObject();
+            for (String key : jsonObject.keySet()) {
+                if (!"novels".equals(key)) {
+                    config.set(key, jsonObject.get(key));
+                }
+            }
+            JSONObject novels = jsonObject.getJSONObject("novels");
+            Set<String> filePaths = novels == null ? Collections.emptySet() : novels.keySet();
+
+            Map<String, Integer> directories = new LinkedHashMap<>();
+            Map<String, Integer> encodings = new LinkedHashMap<>();
+            ByteArrayOutputStream names = new ByteArrayOutputStream();
+            ByteBuffer rows = ByteBuffer.allocate(filePaths.size() * ROW_SIZE);
+            for (String filePath : filePaths) {
+                JSONObject novel = novels.getJSONObject(filePath);
+                int separator = filePath.lastIndexOf(File.separatorChar);
+                Integer directory = separator < 0 ? -1
+                        : directories.computeIfAbsent(filePath.substring(0, separator), key -> directories.size());
+                byte[] name = filePath.substring(separator + 1).getBytes(StandardCharsets.UTF_8);
+                rows.putInt(directory);
+                rows.putInt(names.size());
+                rows.putInt(name.length);
+                names.write(name);
+                rows.putInt(fromInteger(novel.getInt("currentPage")));
+                rows.putInt(fromInteger(novel.getInt("totalPages")));
+                rows.putInt(fromInteger(novel.getInt("currentOffset")));
+                rows.putInt(fromInteger(novel.getInt("totalLength")));
+                LocalDateTime time = novel.get("lastReadingTime", LocalDateTime.class);
+                rows.putLong(time == null ? NULL_LONG : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+                String encoding = novel.getStr("encoding");
+                rows.putShort(encoding == null ? -1 : encodings.computeIfAbsent(encoding, key -> encodings.size()).shortValue());
+                rows.putLong(fromLong(novel.getLong("fileSize")));
+                rows.putLong(fromLong(novel.getLong("fileModified")));
+                rows.putInt(fromInteger(novel.getInt("anchorOffset")));
+                rows.putLong(fromLong(novel.getLong("anchorByteOffset")));
+            }
+
+            Files.createDirectories(TABLE_FILE.getParent());
+            CRC32 crc = new CRC32();
+            try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)), crc))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(Files.size(snapshot));
+                out.writeLong(Files.getLastModifiedTime(snapshot).toMillis());
+                out.writeUTF(fingerprint(snapshot));
+                out.writeUTF(config.toString());
+                out.writeInt(directories.size());
+                for (String directory : directories.keySet()) {
+                    out.writeUTF(directory);
+                }
+                out.writeInt(encodings.size());
+                for (String encoding : encodings.keySet()) {
+                    out.writeUTF(encoding);
+                }
+                out.writeInt(names.size());
+                names.writeTo(out);
+                out.writeInt(filePaths.size());
+                out.write(rows.array());
+                out.writeLong(crc.getValue());
+            }
+            Files.move(temp, TABLE_FILE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            try {
+                // 留下的旧副本与快照不一致，下次启动也不会命中，删除只为节省一次读取
+                Files.deleteIfExists(temp);
+                Files.deleteIfExists(TABLE_FILE);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static String fingerprint(Path snapshot) {
+        String checksum = SnapshotFile.checksum(snapshot);
+        return checksum == null ? "" : checksum;
+    }
+
+    private static int fromInteger(Integer value) {
+        return value == null ? NULL_INT : value;
+    }
+
+    private static long fromLong(Long value) {
+        return value == null ? NULL_LONG : value;
+    }
+
+    private static Integer toInteger(int value) {
+        return value == NULL_INT ? null : value;
+    }
+
+    private static Long toLong(long value) {
+        return value == NULL_LONG ? null : value;
+    }
+}
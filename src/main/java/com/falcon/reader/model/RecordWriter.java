@@ -0,0 +1,130 @@
+package com.falcon.reader.model;
+
+import javax.swing.*;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 阅读记录写入线程
+ * 所有阅读记录文件的读写都在同一个后台线程上按提交顺序执行，界面线程只负责提交任务，不再等待磁盘；
+ * 同一个键的任务尚未开始执行时，新提交的任务会替换旧任务并排到队尾，连续翻页只写入最后一次的进度。
+ * 任务完成或失败的回调在事件分发线程上执行。退出前调用 {@link #flush(long)} 在限定时间内写完剩余任务。
+ *
+ * @author zxy
+ * @date 2026/3/13 15:30
+ **/
+public class RecordWriter {
+    private static final Object lock = new Object();
+    /** 等待执行的任务，按提交顺序排列 */
+    private static final Map<String, Runnable> pending = new LinkedHashMap<>();
+    private static Thread thread;
+    private static boolean running;
+    private static long sequence;
+
+    /**
+     * 阅读记录文件的读写操作
+     */
+    @FunctionalInterface
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    /**
+     * 提交一个不与其他任务合并的任务
+     *
+     * @see #submit(String, Task, Runnable, Consumer)
+     */
+    public static void submit(Task task, Runnable onSuccess, Consumer<Exception> onFailure) {
+        synchronized (lock) {
+            submit("#" + sequence++, task, onSuccess, onFailure);
+        }
+    }
+
+    /**
+     * 提交任务
+     *
+     * @param key       合并键，同一个键尚未执行的旧任务会被丢弃
+     * @param task      在写入线程上执行的任务
+     * @param onSuccess 任务成功后在事件分发线程上执行，可为空
+     * @param onFailure 任务失败后在事件分发线程上执行，可为空
+     */
+    public static void submit(String key, Task task, Runnable onSuccess, Consumer<Exception> onFailure) {
+        Runnable job = () -> {
+            try {
+                task.run();
+                if (onSuccess != null) {
+                    SwingUtilities.invokeLater(onSuccess);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                if (onFailure != null) {
+                    SwingUtilities.invokeLater(() -> onFailure.accept(e));
+                }
+            }
+        };
+        synchronized (lock) {
+            pending.remove(key);
+            pending.put(key, job);
+            if (thread == null) {
+                thread = new Thread(RecordWriter::runLoop, "record-writer");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * 等待已提交的任务全部执行完成
+     *
+     * @param timeoutMillis 最长等待时间（毫秒）
+     * @return 是否已全部完成；超时返回 false
+     */
+    public static boolean flush(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (lock) {
+            while (!pending.isEmpty() || running) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static void runLoop() {
+        while (true) {
+            Runnable job;
+            synchronized (lock) {
+                while (pending.isEmpty()) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                Iterator<Runnable> iterator = pending.values().iterator();
+                job = iterator.next();
+                iterator.remove();
+                running = true;
+            }
+            try {
+                job.run();
+            } finally {
+                synchronized (lock) {
+                    running = false;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+}
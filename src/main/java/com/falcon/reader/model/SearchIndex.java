@@ -0,0 +1,274 @@
+package com.falcon.reader.model;
+
+import com.falcon.reader.util.PinyinInitials;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 主页文件名搜索索引
+ * 每条记录预先保存小写的文件名、所在目录和书名的拼音首字母，搜索时不再逐条转换大小写和解析路径。
+ * 关键字出现在完整路径或拼音首字母中即为匹配，与之前按路径包含关键字的规则一致。
+ * <p>
+ * 文件名和拼音首字母按相邻两个字符（二元组）建立倒排表，查找时取关键字中记录最少的二元组作为候选再逐条核对；
+ * 目录只有少量不同的值，直接逐个比较。关键字包含路径分隔符时可能跨越目录和文件名，逐条核对全部记录。
+ * 新关键字包含上一次的关键字时（继续输入），结果只可能更少，上一次的结果比候选记录少时直接在上一次的结果中核对。
+ * 索引在第一次搜索时才建立，不搜索时启动不需要为它花时间。
+ *
+ * @author zxy
+ * @date 2026/3/19 16:40
+ **/
+class SearchIndex {
+    /** 没有拼音首字母的汉字在首字母中的占位符，关键字中不会出现 */
+    private static final char NO_INITIAL = '\u0000';
+    /** 已删除的记录超过一半时重新建立索引 */
+    private static final int MIN_REBUILD_SIZE = 1024;
+
+    /** 下标即记录编号，删除后置为 null */
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final Map<Integer, Postings> bigrams = new HashMap<>();
+    /** 小写的目录（以分隔符结尾）到其中记录编号的映射 */
+    private final Map<String, Postings> directories = new HashMap<>();
+    private int removed;
+    /** 尚未建立索引时的全部路径，建立后为 null */
+    private Set<String> unindexed;
+
+    private String keyword = "";
+    /** 当前关键字匹配的路径，没有关键字时为 null */
+    private Set<String> matches;
+
+    private static class Entry {
+        private final String path;
+        /** 小写的完整路径 */
+        private final String text;
+        /** 小写的文件名在完整路径中的起始位置 */
+        private final int nameStart;
+        /** 书名的拼音首字母，书名没有汉字时为空串 */
+        private final String initials;
+
+        private Entry(String path) {
+            this.path = path;
+            this.text = path.toLowerCase(Locale.ROOT);
+            this.nameStart = text.lastIndexOf(File.separatorChar) + 1;
+            String name = path.substring(nameStart);
+            this.initials = PinyinInitials.hasChinese(name) ? PinyinInitials.of(name, NO_INITIAL) : "";
+        }
+
+        private boolean matches(String keyword) {
+            return text.contains(keyword) || initials.contains(keyword);
+        }
+    }
+
+    /**
+     * 只增不减的记录编号列表，编号按加入顺序递增
+     */
+    private static class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        private void add(int id) {
+            // 同一条记录中重复的二元组只记一次
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    SearchIndex(Collection<String> paths) {
+        unindexed = new LinkedHashSet<>(paths);
+    }
+
+    /**
+     * 加入一条记录，符合当前关键字时同时加入当前结果
+     */
+    void add(String path) {
+        if (unindexed != null) {
+            unindexed.add(path);
+            return;
+        }
+        if (ids.containsKey(path)) {
+            return;
+        }
+        Entry entry = index(path);
+        if (matches != null && entry.matches(keyword)) {
+            matches.add(path);
+        }
+    }
+
+    void remove(String path) {
+        if (unindexed != null) {
+            unindexed.remove(path);
+            return;
+        }
+        Integer id = ids.remove(path);
+        if (id == null) {
+            return;
+        }
+        entries.set(id, null);
+        removed++;
+        if (matches != null) {
+            matches.remove(path);
+        }
+        if (removed >= MIN_REBUILD_SIZE && removed * 2 > entries.size()) {
+            rebuild();
+        }
+    }
+
+    String getKeyword() {
+        return keyword;
+    }
+
+    /**
+     * 设置搜索关键字并重新计算匹配的路径
+     *
+     * @param text 搜索框中的文字，去掉首尾空白并转为小写后使用
+     * @return 新结果是否一定是旧结果的子集，是时调用方只需从当前列表中删除不匹配的行
+     */
+    boolean setKeyword(String text) {
+        String newKeyword = text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+        if (newKeyword.equals(keyword)) {
+            return true;
+        }
+        boolean narrowed = newKeyword.contains(keyword);
+        if (unindexed != null) {
+            Set<String> paths = unindexed;
+            unindexed = null;
+            for (String path : paths) {
+                index(path);
+            }
+        }
+        matches = newKeyword.isEmpty() ? null : search(newKeyword, narrowed ? matches : null);
+        keyword = newKeyword;
+        return narrowed;
+    }
+
+    /**
+     * @return 路径是否匹配当前关键字，没有关键字时都匹配
+     */
+    boolean matches(String path) {
+        return matches == null || matches.contains(path);
+    }
+
+    /**
+     * @return 当前关键字匹配的路径，没有关键字时为 null
+     */
+    Set<String> getMatches() {
+        return matches;
+    }
+
+    /**
+     * @param previous 上一次的结果，新结果一定是它的子集；为 null 时只使用索引
+     */
+    private Set<String> search(String keyword, Set<String> previous) {
+        Set<String> result = new HashSet<>();
+        if (keyword.indexOf(File.separatorChar) >= 0 || keyword.length() < 2) {
+            if (previous != null) {
+                filter(previous, keyword, result);
+                return result;
+            }
+            for (Entry entry : entries) {
+                if (entry != null && entry.matches(keyword)) {
+                    result.add(entry.path);
+                }
+            }
+            return result;
+        }
+
+        // 关键字不含分隔符时只可能完整地出现在目录或文件名中
+        List<Postings> candidates = new ArrayList<>();
+        int count = 0;
+        for (Map.Entry<String, Postings> directory : directories.entrySet()) {
+            if (directory.getKey().contains(keyword)) {
+                candidates.add(directory.getValue());
+                count += directory.getValue().size;
+            }
+        }
+        Postings names = null;
+        for (int i = 0; i + 1 < keyword.length(); i++) {
+            Postings postings = bigrams.get(bigram(keyword.charAt(i), keyword.charAt(i + 1)));
+            if (postings == null) {
+                names = null;
+                break;
+            }
+            if (names == null || postings.size < names.size) {
+                names = postings;
+            }
+        }
+        if (names != null) {
+            candidates.add(names);
+            count += names.size;
+        }
+        if (previous != null && previous.size() < count) {
+            filter(previous, keyword, result);
+            return result;
+        }
+        for (Postings postings : candidates) {
+            collect(postings, keyword, result);
+        }
+        return result;
+    }
+
+    private void filter(Set<String> previous, String keyword, Set<String> result) {
+        for (String path : previous) {
+            if (entries.get(ids.get(path)).matches(keyword)) {
+                result.add(path);
+            }
+        }
+    }
+
+    private void collect(Postings postings, String keyword, Set<String> result) {
+        for (int i = 0; i < postings.size; i++) {
+            Entry entry = entries.get(postings.ids[i]);
+            if (entry != null && entry.matches(keyword)) {
+                result.add(entry.path);
+            }
+        }
+    }
+
+    private Entry index(String path) {
+        int id = entries.size();
+        Entry entry = new Entry(path);
+        entries.add(entry);
+        ids.put(path, id);
+        directories.computeIfAbsent(entry.text.substring(0, entry.nameStart), key -> new Postings()).add(id);
+        addBigrams(entry.text, entry.nameStart, id);
+        addBigrams(entry.initials, 0, id);
+        return entry;
+    }
+
+    private void addBigrams(String text, int start, int id) {
+        for (int i = start; i + 1 < text.length(); i++) {
+            bigrams.computeIfAbsent(bigram(text.charAt(i), text.charAt(i + 1)), key -> new Postings()).add(id);
+        }
+    }
+
+    private static int bigram(char first, char second) {
+        return (first << 16) | second;
+    }
+
+    private void rebuild() {
+        List<String> paths = new ArrayList<>(ids.keySet());
+        entries.clear();
+        ids.clear();
+        bigrams.clear();
+        directories.clear();
+        removed = 0;
+        for (String path : paths) {
+            index(path);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.falcon.reader.model;
+
+import cn.hutool.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * 阅读记录快照文件的读写
+ * 写入时先把完整内容写到同目录的临时文件并刷到磁盘，再把原文件改名为备份文件（.bak），最后把临时文件原子地改名为正式文件，
+ * 写入过程中异常退出不会破坏已有的快照。
+ * <p>
+ * 文件内容仍是 JSON，第一个字段为其余内容的 CRC32：{"checksum":"xxxxxxxx",...}。
+ * 读取时校验和不符、内容为空或无法解析的文件视为损坏，改为读取备份文件；没有校验和字段的旧文件只要能解析即可使用。
+ *
+ * @author zxy
+ * @date 2026/3/14 10:20
+ **/
+public class SnapshotFile {
+    private static final String CHECKSUM_PREFIX = "{\"checksum\":\"";
+    /** 校验和前缀、8 位十六进制校验和及其后的引号 */
+    private static final int CHECKSUM_END = CHECKSUM_PREFIX.length() + 9;
+
+    /** 读取时已损坏、改用了备份的文件，下次写入时不再把它改名为备份 */
+    private static final Set<Path> corrupted = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @return 快照文件或其备份是否存在
+     */
+    public static boolean exists(Path path) {
+        return Files.exists(path) || Files.exists(backupFile(path));
+    }
+
+    /**
+     * 只读取文件开头的校验和字段，不解析内容
+     *
+     * @return 快照文件中的校验和；文件不存在或没有校验和字段时返回 null
+     */
+    public static String checksum(Path path) {
+        byte[] head = new byte[CHECKSUM_END + 1];
+        try (InputStream in = Files.newInputStream(path)) {
+            int length = 0;
+            int read;
+            while (length < head.length && (read = in.read(head, length, head.length - length)) > 0) {
+                length += read;
+            }
+            if (length < head.length || !startsWith(head, CHECKSUM_PREFIX)) {
+                return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return new String(head, CHECKSUM_PREFIX.length(), 8, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 读取快照，快照损坏或缺失时读取上一次的备份
+     *
+     * @param path 快照文件
+     * @return 快照内容，不包含校验和字段；文件和备份都不存在时返回空对象
+     * @throws IOException 快照损坏且没有可用的备份，或读取失败
+     */
+    public static JSONObject read(Path path) throws IOException {
+        Path backup = backupFile(path);
+        IOException failure;
+        try {
+            if (Files.exists(path)) {
+                JSONObject jsonObject = parse(path);
+                corrupted.remove(path);
+                return jsonObject;
+            }
+            // 写入时在改名备份和替换正式文件之间退出，只留下备份
+            failure = new NoSuchFileException(path.toString());
+        } catch (IOException e) {
+            failure = e;
+        }
+        if (!Files.exists(backup)) {
+            // 没有备份时空文件按空快照处理
+            if (failure instanceof NoSuchFileException || Files.exists(path) && Files.size(path) == 0) {
+                return new JSONObject();
+            }
+            throw failure;
+        }
+        try {
+            JSONObject jsonObject = parse(backup);
+            if (!(failure instanceof NoSuchFileException)) {
+                failure.printStackTrace();
+                System.err.println(path + " 已损坏，改用上一次保存的 " + backup);
+                corrupted.add(path);
+            }
+            return jsonObject;
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+            throw failure;
+        }
+    }
+
+    /**
+     * 原子地写入快照，原文件保留为备份
+     *
+     * @param path       快照文件
+     * @param jsonObject 快照内容
+     */
+    public static void write(Path path, JSONObject jsonObject) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        byte[] bytes = withChecksum(jsonObject.toString()).getBytes(StandardCharsets.UTF_8);
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            // 损坏的文件不能覆盖备份，直接被新文件替换
+            if (Files.exists(path) && !corrupted.remove(path)) {
+                move(path, backupFile(path));
+            }
+            move(temp, path);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        syncDirectory(path);
+    }
+
+    private static Path backupFile(Path path) {
+        return path.resolveSibling(path.getFileName() + ".bak");
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 把改名操作刷到磁盘；不支持打开目录的平台（Windows）忽略
+     */
+    private static void syncDirectory(Path path) {
+        Path directory = path.toAbsolutePath().getParent();
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static String withChecksum(String json) {
+        String checksum = String.format("%08x", checksum(json.getBytes(StandardCharsets.UTF_8)));
+        // 空对象写成 {"checksum":"xxxxxxxx"}，其余在原内容的左花括号后插入校验和字段
+        return CHECKSUM_PREFIX + checksum + (json.length() > 2 ? "\"," + json.substring(1) : "\"}");
+    }
+
+    private static JSONObject parse(Path path) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        if (bytes.length == 0) {
+            throw new IOException("阅读记录文件为空: " + path);
+        }
+        if (startsWith(bytes, CHECKSUM_PREFIX) && bytes.length > CHECKSUM_END) {
+            verify(path, bytes);
+        }
+
+        JSONObject jsonObject;
+        try {
+            jsonObject = parseJson(bytes, StandardCharsets.UTF_8, true);
+        } catch (IOException | RuntimeException utf8Ex) {
+            try {
+                jsonObject = parseJson(bytes, Charset.defaultCharset(), false);
+            } catch (RuntimeException defaultCharsetEx) {
+                IOException ex = new IOException("阅读记录文件格式错误，请检查或删除 " + path, defaultCharsetEx);
+                ex.addSuppressed(utf8Ex);
+                throw ex;
+            }
+        }
+        jsonObject.remove("checksum");
+        return jsonObject;
+    }
+
+    /**
+     * 按写入时的格式还原出不含校验和字段的原内容，计算 CRC32 并与文件中的校验和比较
+     */
+    private static void verify(Path path, byte[] bytes) throws IOException {
+        String checksum = new String(bytes, CHECKSUM_PREFIX.length(), 8, StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update('{');
+        if (bytes[CHECKSUM_END] == ',') {
+            crc.update(bytes, CHECKSUM_END + 1, bytes.length - CHECKSUM_END - 1);
+        } else {
+            crc.update('}');
+        }
+        if (!checksum.equalsIgnoreCase(String.format("%08x", crc.getValue()))) {
+            throw new IOException("阅读记录文件校验失败: " + path);
+        }
+    }
+
+    private static long checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+
+    private static boolean startsWith(byte[] bytes, String prefix) {
+        if (bytes.length < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (bytes[i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static JSONObject parseJson(byte[] bytes, Charset charset, boolean reportMalformedInput) throws IOException {
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(bytes),
+                reportMalformedInput ? charset.newDecoder().onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT) : charset.newDecoder())) {
+            return new JSONObject(reader);
+        }
+    }
+}
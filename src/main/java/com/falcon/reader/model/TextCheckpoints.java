@@ -0,0 +1,82 @@
+package com.falcon.reader.model;
+
+import java.util.Arrays;
+
+/**
+ * 文本检查点，记录若干行首的字符偏移与对应的字节偏移
+ * 字符偏移与分页使用的偏移一致（每行长度加 1），按升序保存；
+ * 需要定位到某个字符偏移时，从不超过该偏移的最近检查点所在字节开始读取，无需从文件开头解码。
+ *
+ * @author zxy
+ * @date 2026/3/6 09:40
+ **/
+public class TextCheckpoints {
+    /** 相邻检查点之间的最小字符间隔 */
+    public static final int INTERVAL = 16 * 1024;
+
+    private int[] offsets = new int[64];
+    private long[] byteOffsets = new long[64];
+    private int size;
+
+    /**
+     * 添加一个检查点，与上一个检查点距离不足 {@link #INTERVAL} 时忽略
+     *
+     * @param offset     行首字符偏移
+     * @param byteOffset 行首字节偏移
+     */
+    public void add(int offset, long byteOffset) {
+        if (size > 0 && offset - offsets[size - 1] < INTERVAL) {
+            return;
+        }
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+            byteOffsets = Arrays.copyOf(byteOffsets, size * 2);
+        }
+        offsets[size] = offset;
+        byteOffsets[size] = byteOffset;
+        size++;
+    }
+
+    /**
+     * 复制从指定下标开始的检查点，用于分批报告分页进度
+     *
+     * @param fromIndex 起始下标（含）
+     * @return 新的检查点集合
+     */
+    public TextCheckpoints copyFrom(int fromIndex) {
+        TextCheckpoints copy = new TextCheckpoints();
+        for (int i = fromIndex; i < size; i++) {
+            copy.add(offsets[i], byteOffsets[i]);
+        }
+        return copy;
+    }
+
+    public void addAll(TextCheckpoints other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.offsets[i], other.byteOffsets[i]);
+        }
+    }
+
+    /**
+     * 查找不超过指定字符偏移的最近检查点
+     *
+     * @param offset 字符偏移
+     * @return 检查点下标，没有时返回 -1
+     */
+    public int floor(int offset) {
+        int index = Arrays.binarySearch(offsets, 0, size, offset);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int offset(int index) {
+        return offsets[index];
+    }
+
+    public long byteOffset(int index) {
+        return byteOffsets[index];
+    }
+}
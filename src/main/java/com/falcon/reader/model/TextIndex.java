@@ -0,0 +1,647 @@
+package com.falcon.reader.model;
+
+import cn.hutool.crypto.SecureUtil;
+import com.falcon.reader.entity.NovelRecord;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 小说全文索引
+ * 按相邻两个字符（二元组）建立倒排表，适合没有空格分词的中文。每个二元组记录它在全文中出现的全部字符偏移，
+ * 偏移与页起始偏移的计算方式相同（每行长度加 1），调用方按页起始偏移换算为页码。
+ * 关键字的第 i 个二元组都出现在命中位置加 i 处时即为命中，不需要再读原文核对；
+ * 单个字符的关键字取以该字符开头的全部二元组，行尾字符与换行符组成的二元组保证行尾的字符也能查到。
+ * 命中位置前后的摘要从不超过该位置的最近文本检查点开始解码原文得到。
+ * <p>
+ * 索引在后台由解码后的文本建立：第一遍统计每个二元组的偏移列表写成变长整数后的长度，第二遍直接写入各自的位置，
+ * 不需要为每个偏移单独保存和排序。索引与分页缓存保存在同一目录（文件名为路径的 SHA-1），
+ * 文件头记录文件大小、修改时间和编码，全部一致时才读取；索引与字体和显示区域无关，调整设置后不需要重建。
+ * 查找不区分大小写，关键字不跨行。
+ *
+ * @author zxy
+ * @date 2026/3/20 10:30
+ **/
+public class TextIndex {
+    private static final int MAGIC = 0x54584958; // "TXIX"
+    private static final int VERSION = 1;
+    /** 摘要中命中位置前后保留的字符数 */
+    private static final int SNIPPET_CONTEXT = 16;
+
+    private final String filePath;
+    private final Charset charset;
+    private final TextCheckpoints checkpoints;
+    /** 按有符号整数升序排列的二元组，前一个字符在高 16 位 */
+    private final int[] keys;
+    /** 第 i 个二元组的偏移列表位于 postings 的 [postingStarts[i], postingStarts[i + 1]) */
+    private final int[] postingStarts;
+    /** 偏移列表，按与前一个偏移的差值写成变长整数 */
+    private final byte[] postings;
+
+    /**
+     * 一处命中
+     */
+    public static class Hit {
+        private final int offset;
+        private final String snippet;
+
+        Hit(int offset, String snippet) {
+            this.offset = offset;
+            this.snippet = snippet;
+        }
+
+        /**
+         * @return 命中位置在全文中的字符偏移
+         */
+        public int getOffset() {
+            return offset;
+        }
+
+        /**
+         * @return 命中位置前后的一段原文
+         */
+        public String getSnippet() {
+            return snippet;
+        }
+    }
+
+    /**
+     * 建立索引时逐个接收二元组及其偏移
+     */
+    private interface BigramConsumer {
+        void accept(int key, int offset);
+    }
+
+    private TextIndex(String filePath, Charset charset, TextCheckpoints checkpoints, int[] keys, int[] postingStarts,
+            byte[] postings) {
+        this.filePath = filePath;
+        this.charset = charset;
+        this.checkpoints = checkpoints;
+        this.keys = keys;
+        this.postingStarts = postingStarts;
+        this.postings = postings;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    TextCheckpoints getCheckpoints() {
+        return checkpoints;
+    }
+
+    int[] getKeys() {
+        return keys;
+    }
+
+    int[] getPostingStarts() {
+        return postingStarts;
+    }
+
+    byte[] getPostings() {
+        return postings;
+    }
+
+    /**
+     * 从解码后的文本建立索引，需要读两遍文件，应在后台线程调用
+     *
+     * @param filePath 小说文件路径
+     * @param encoding 文件编码
+     * @return 建立的索引；线程被中断或读取失败时返回 null
+     */
+    public static TextIndex build(String filePath, String encoding) {
+        Charset charset = Charset.forName(encoding);
+        KeyTable table = new KeyTable();
+        TextCheckpoints checkpoints = new TextCheckpoints();
+        if (!scan(filePath, charset, checkpoints, table::count)) {
+            return null;
+        }
+
+        // 按二元组排序后依次分配各自偏移列表的位置
+        int[] keys = table.sortedKeys();
+        int[] postingStarts = new int[keys.length + 1];
+        for (int i = 0; i < keys.length; i++) {
+            postingStarts[i + 1] = postingStarts[i] + table.assign(keys[i], postingStarts[i]);
+        }
+        byte[] postings = new byte[postingStarts[keys.length]];
+        if (!scan(filePath, charset, null, (key, offset) -> table.write(key, offset, postings))) {
+            return null;
+        }
+        return new TextIndex(filePath, charset, checkpoints, keys, postingStarts, postings);
+    }
+
+    /**
+     * 按行读取全文，把每个字符与下一个字符组成的二元组交给 consumer，行尾字符与换行符组成二元组
+     *
+     * @param checkpoints 不为 null 时同时记录文本检查点
+     * @return 读完返回 true，线程被中断或读取失败时返回 false
+     */
+    private static boolean scan(String filePath, Charset charset, TextCheckpoints checkpoints, BigramConsumer consumer) {
+        try (TextSource source = new MappedTextSource(filePath, charset)) {
+            int offset = 0;
+            int lineNumber = 0;
+            while (source.nextLine()) {
+                lineNumber++;
+                if ((lineNumber & 0x3FF) == 0 && Thread.currentThread().isInterrupted()) {
+                    return false;
+                }
+                if (checkpoints != null && source.lineByteOffset() >= 0) {
+                    checkpoints.add(offset, source.lineByteOffset());
+                }
+                char[] line = source.buffer();
+                int start = source.lineStart();
+                int end = source.lineEnd();
+                for (int i = start; i < end; i++) {
+                    consumer.accept(bigram(line[i], i + 1 < end ? line[i + 1] : '\n'), offset + i - start);
+                }
+                offset += end - start + 1;
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // 两遍之间文件被修改时第二遍可能出现第一遍没有的二元组或超出分配的长度
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * 查找关键字在全文中出现的位置，相互重叠的命中只保留前一处
+     *
+     * @param keyword 关键字，不区分大小写
+     * @param maxHits 最多返回的命中数，按在文中的先后顺序
+     * @return 命中位置，按字符偏移升序
+     * @throws IOException 读取摘要所需的原文失败
+     */
+    public List<Hit> search(String keyword, int maxHits) throws IOException {
+        if (keyword == null || keyword.isEmpty() || maxHits <= 0 || keys.length == 0) {
+            return Collections.emptyList();
+        }
+        char[] needle = new char[keyword.length()];
+        for (int i = 0; i < needle.length; i++) {
+            needle[i] = Character.toLowerCase(keyword.charAt(i));
+        }
+        int[] offsets = needle.length == 1 ? findChar(needle[0], maxHits) : findPhrase(needle);
+        int count = removeOverlaps(offsets, offsets.length, needle.length, maxHits);
+        return snippets(filePath, charset, checkpoints, offsets, count, needle.length);
+    }
+
+    /**
+     * 去掉与前一处重叠的命中，最多保留 maxHits 个
+     *
+     * @return 保留的个数，保留的命中移到数组前部
+     */
+    static int removeOverlaps(int[] offsets, int count, int length, int maxHits) {
+        int kept = 0;
+        for (int i = 0; i < count && kept < maxHits; i++) {
+            if (kept == 0 || offsets[i] >= offsets[kept - 1] + length) {
+                offsets[kept++] = offsets[i];
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * @return 每个二元组都出现在对应位置的起始偏移，升序
+     */
+    private int[] findPhrase(char[] needle) {
+        int[] keyIndexes = new int[needle.length - 1];
+        int rarest = 0;
+        for (int i = 0; i < keyIndexes.length; i++) {
+            keyIndexes[i] = Arrays.binarySearch(keys, bigram(needle[i], needle[i + 1]));
+            if (keyIndexes[i] < 0) {
+                return new int[0];
+            }
+            if (postingLength(keyIndexes[i]) < postingLength(keyIndexes[rarest])) {
+                rarest = i;
+            }
+        }
+        // 从最少的列表得到候选起始位置，再逐个二元组保留其后相应位置也出现的候选
+        int[] candidates = decode(keyIndexes[rarest], Integer.MAX_VALUE);
+        int count = shift(candidates, candidates.length, rarest);
+        for (int i = 0; i < keyIndexes.length && count > 0; i++) {
+            if (i != rarest) {
+                count = retain(candidates, count, postings, postingStarts[keyIndexes[i]], postingStarts[keyIndexes[i] + 1], i);
+            }
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    /**
+     * @return 以该字符开头的全部二元组中最靠前的 maxHits 个偏移，升序
+     */
+    private int[] findChar(char c, int maxHits) {
+        int low = c << 16;
+        int from = Arrays.binarySearch(keys, low);
+        if (from < 0) {
+            from = -from - 1;
+        }
+        int[] offsets = new int[0];
+        for (int i = from; i < keys.length && keys[i] >>> 16 == c; i++) {
+            // 每个列表中只有前 maxHits 个偏移可能进入结果
+            int[] list = decode(i, maxHits);
+            int size = offsets.length;
+            offsets = Arrays.copyOf(offsets, size + list.length);
+            System.arraycopy(list, 0, offsets, size, list.length);
+        }
+        Arrays.sort(offsets);
+        return offsets.length > maxHits ? Arrays.copyOf(offsets, maxHits) : offsets;
+    }
+
+    private int postingLength(int keyIndex) {
+        return postingStarts[keyIndex + 1] - postingStarts[keyIndex];
+    }
+
+    private int[] decode(int keyIndex, int limit) {
+        return decode(postings, postingStarts[keyIndex], postingStarts[keyIndex + 1], limit);
+    }
+
+    /**
+     * 解码 [position, end) 中按差值写成变长整数的偏移列表
+     *
+     * @param limit 最多解码的个数
+     */
+    static int[] decode(byte[] postings, int position, int end, int limit) {
+        int[] offsets = new int[Math.min(limit, end - position)];
+        int count = 0;
+        int offset = 0;
+        while (position < end && count < offsets.length) {
+            int delta = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = postings[position++];
+                delta |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            offset += delta;
+            offsets[count++] = offset;
+        }
+        return count == offsets.length ? offsets : Arrays.copyOf(offsets, count);
+    }
+
+    /**
+     * 关键字第 shift 个二元组的偏移减去 shift 即为起始位置，去掉小于 0 的
+     *
+     * @return 保留的个数，保留的起始位置移到数组前部
+     */
+    static int shift(int[] offsets, int count, int shift) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (offsets[i] >= shift) {
+                offsets[kept++] = offsets[i] - shift;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * 保留候选中加上 shift 后出现在 [position, end) 偏移列表里的起始位置，边解码边比较
+     *
+     * @return 保留的个数，保留的候选移到数组前部
+     */
+    static int retain(int[] candidates, int count, byte[] postings, int position, int end, int shift) {
+        int offset = -1;
+        int offsetBase = 0;
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int target = candidates[i] + shift;
+            while (offset < target && position < end) {
+                int delta = 0;
+                for (int s = 0; ; s += 7) {
+                    byte b = postings[position++];
+                    delta |= (b & 0x7F) << s;
+                    if (b >= 0) {
+                        break;
+                    }
+                }
+                offsetBase += delta;
+                offset = offsetBase;
+            }
+            if (offset == target) {
+                candidates[kept++] = candidates[i];
+            } else if (offset < target) {
+                break;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * 读取各命中位置所在行，截取摘要。命中按偏移升序，与上一处在同一检查点区间内时沿用文本来源继续向后读
+     *
+     * @param checkpoints 建立索引时记录的文本检查点
+     * @param length      关键字长度
+     */
+    static List<Hit> snippets(String filePath, Charset charset, TextCheckpoints checkpoints, int[] offsets, int count,
+            int length) throws IOException {
+        List<Hit> hits = new ArrayList<>(count);
+        boolean seekable = MappedTextSource.isLineAligned(charset);
+        TextSource source = null;
+        int lineOffset = 0;     // 当前行的字符偏移，尚未读取任何行时为下一行的偏移
+        int lineLength = -1;    // 当前行的长度，-1 表示尚未读取
+        try {
+            for (int i = 0; i < count; i++) {
+                int offset = offsets[i];
+                int index = seekable ? checkpoints.floor(offset) : -1;
+                int checkpoint = index >= 0 ? checkpoints.offset(index) : 0;
+                int nextLineOffset = lineLength < 0 ? lineOffset : lineOffset + lineLength + 1;
+                if (source == null || checkpoint > nextLineOffset) {
+                    if (source != null) {
+                        source.close();
+                    }
+                    source = new MappedTextSource(filePath, charset, index >= 0 ? checkpoints.byteOffset(index) : 0);
+                    lineOffset = checkpoint;
+                    lineLength = -1;
+                }
+                while (lineLength < 0 || offset > lineOffset + lineLength) {
+                    if (lineLength >= 0) {
+                        lineOffset += lineLength + 1;
+                    }
+                    if (!source.nextLine()) {
+                        return hits; // 文件在建立索引后被修改
+                    }
+                    lineLength = source.lineEnd() - source.lineStart();
+                }
+                int start = source.lineStart();
+                hits.add(new Hit(offset, snippet(source.buffer(), start, source.lineEnd(), start + offset - lineOffset, length)));
+            }
+            return hits;
+        } finally {
+            if (source != null) {
+                source.close();
+            }
+        }
+    }
+
+    private static String snippet(char[] line, int start, int end, int position, int length) {
+        int from = Math.max(start, position - SNIPPET_CONTEXT);
+        int to = Math.min(end, position + length + SNIPPET_CONTEXT);
+        return new String(line, from, to - from).trim();
+    }
+
+    static int bigram(char first, char second) {
+        return (Character.toLowerCase(first) << 16) | Character.toLowerCase(second);
+    }
+
+    /**
+     * 读取索引缓存
+     *
+     * @param filePath 小说文件路径
+     * @param fileInfo 文件编码、大小和修改时间
+     * @return 缓存的索引；未命中、缓存损坏或读取失败时返回 null
+     */
+    public static TextIndex load(String filePath, NovelRecord fileInfo) {
+        if (fileInfo == null || fileInfo.getEncoding() == null) {
+            return null;
+        }
+        Path path = cacheFile(filePath);
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(path)), crc))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION
+                    || !Objects.equals(fileInfo.getFileSize(), in.readLong())
+                    || !Objects.equals(fileInfo.getFileModified(), in.readLong())
+                    || !Objects.equals(fileInfo.getEncoding(), in.readUTF())) {
+                return null;
+            }
+
+            int checkpointCount = in.readInt();
+            TextCheckpoints checkpoints = new TextCheckpoints();
+            int offset = 0;
+            long byteOffset = 0;
+            for (int i = 0; i < checkpointCount; i++) {
+                offset += PageCache.readVarInt(in);
+                byteOffset += PageCache.readVarLong(in);
+                checkpoints.add(offset, byteOffset);
+            }
+
+            int keyCount = in.readInt();
+            int[] keys = new int[keyCount];
+            int[] postingStarts = new int[keyCount + 1];
+            for (int i = 0; i < keyCount; i++) {
+                keys[i] = in.readInt();
+                postingStarts[i + 1] = postingStarts[i] + PageCache.readVarInt(in);
+            }
+            byte[] postings = new byte[postingStarts[keyCount]];
+            in.readFully(postings);
+
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                return null;
+            }
+            return new TextIndex(filePath, Charset.forName(fileInfo.getEncoding()), checkpoints, keys, postingStarts,
+                    postings);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * 保存索引缓存，先写入临时文件再替换，写入失败时不影响已有缓存
+     *
+     * @param fileInfo 建立索引时的文件编码、大小和修改时间
+     */
+    public void save(NovelRecord fileInfo) {
+        if (fileInfo.getEncoding() == null || fileInfo.getFileSize() == null || fileInfo.getFileModified() == null) {
+            return;
+        }
+        Path path = cacheFile(filePath);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(PageCache.CACHE_DIR);
+            CRC32 crc = new CRC32();
+            try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)), crc))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(fileInfo.getFileSize());
+                out.writeLong(fileInfo.getFileModified());
+                out.writeUTF(fileInfo.getEncoding());
+
+                out.writeInt(checkpoints.size());
+                int previous = 0;
+                long previousByte = 0;
+                for (int i = 0; i < checkpoints.size(); i++) {
+                    PageCache.writeVarLong(out, checkpoints.offset(i) - previous);
+                    PageCache.writeVarLong(out, checkpoints.byteOffset(i) - previousByte);
+                    previous = checkpoints.offset(i);
+                    previousByte = checkpoints.byteOffset(i);
+                }
+
+                out.writeInt(keys.length);
+                for (int i = 0; i < keys.length; i++) {
+                    out.writeInt(keys[i]);
+                    PageCache.writeVarLong(out, postingLength(i));
+                }
+                out.write(postings);
+
+                out.writeLong(crc.getValue());
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            e.printStackTrace();
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // 临时文件留待下次覆盖
+            }
+        }
+    }
+
+    /**
+     * 删除小说的索引缓存
+     *
+     * @param filePath 小说文件路径
+     */
+    public static void delete(String filePath) {
+        try {
+            Files.deleteIfExists(cacheFile(filePath));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 小说文件重新定位后移动索引缓存，文件内容未变时新路径仍可命中
+     *
+     * @param oldFilePath 原小说文件路径
+     * @param newFilePath 新小说文件路径
+     */
+    public static void relocate(String oldFilePath, String newFilePath) {
+        try {
+            Path oldPath = cacheFile(oldFilePath);
+            if (Files.exists(oldPath)) {
+                Files.move(oldPath, cacheFile(newFilePath), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static Path cacheFile(String filePath) {
+        return PageCache.CACHE_DIR.resolve(SecureUtil.sha1(filePath) + ".index");
+    }
+
+    /**
+     * 二元组到其偏移列表写入状态的开放寻址散列表
+     * 第一遍累计每个二元组偏移列表的字节数，第二遍从分配的位置开始写入
+     */
+    private static class KeyTable {
+        private int[] slots = new int[1 << 16];
+        /** 槽中二元组的编号加 1，0 表示空槽 */
+        private int[] slotIds = new int[1 << 16];
+        private int[] idKeys = new int[1 << 14];
+        /** 上一个偏移，用于计算差值 */
+        private int[] lastOffsets = new int[1 << 14];
+        /** 第一遍为累计的字节数，第二遍为下一个写入位置 */
+        private int[] positions = new int[1 << 14];
+        private int size;
+
+        private void count(int key, int offset) {
+            int id = idOf(key, true);
+            positions[id] += varIntSize(offset - lastOffsets[id]);
+            lastOffsets[id] = offset;
+        }
+
+        private int[] sortedKeys() {
+            int[] keys = Arrays.copyOf(idKeys, size);
+            Arrays.sort(keys);
+            return keys;
+        }
+
+        /**
+         * 为二元组分配写入位置，并重置差值的起点
+         *
+         * @return 该二元组偏移列表的字节数
+         */
+        private int assign(int key, int start) {
+            int id = idOf(key, false);
+            int length = positions[id];
+            positions[id] = start;
+            lastOffsets[id] = 0;
+            return length;
+        }
+
+        private void write(int key, int offset, byte[] postings) {
+            int id = idOf(key, false);
+            int value = offset - lastOffsets[id];
+            lastOffsets[id] = offset;
+            int position = positions[id];
+            while ((value & ~0x7F) != 0) {
+                postings[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            postings[position++] = (byte) value;
+            positions[id] = position;
+        }
+
+        private int idOf(int key, boolean create) {
+            int mask = slots.length - 1;
+            int slot = hash(key) & mask;
+            while (slotIds[slot] != 0) {
+                if (slots[slot] == key) {
+                    return slotIds[slot] - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (!create) {
+                throw new IllegalStateException("二元组不在索引中，文件可能在建立索引时被修改");
+            }
+            if (size == idKeys.length) {
+                idKeys = Arrays.copyOf(idKeys, size * 2);
+                lastOffsets = Arrays.copyOf(lastOffsets, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            idKeys[size] = key;
+            slots[slot] = key;
+            slotIds[slot] = ++size;
+            if (size * 2 > slots.length) {
+                rehash();
+            }
+            return size - 1;
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            slotIds = new int[slotIds.length * 2];
+            int mask = slots.length - 1;
+            for (int id = 0; id < size; id++) {
+                int slot = hash(idKeys[id]) & mask;
+                while (slotIds[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = idKeys[id];
+                slotIds[slot] = id + 1;
+            }
+        }
+
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        private static int varIntSize(int value) {
+            int size = 1;
+            while ((value & ~0x7F) != 0) {
+                size++;
+                value >>>= 7;
+            }
+            return size;
+        }
+    }
+}
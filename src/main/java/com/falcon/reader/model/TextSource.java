@@ -0,0 +1,44 @@
+package com.falcon.reader.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 小说文本来源，按行顺序读取已解码的字符
+ * 行的划分与 {@link java.io.BufferedReader#readLine()} 一致（\n、\r、\r\n 均视为换行，换行符不属于行内容），
+ * 当前行的字符直接暴露为内部缓冲区中的一段区间，调用方无需为每行创建 String。
+ * 缓冲区在下一次调用 {@link #nextLine()} 后可能被覆盖或替换。
+ *
+ * @author zxy
+ * @date 2026/3/5 10:20
+ **/
+public interface TextSource extends Closeable {
+
+    /**
+     * 读取下一行
+     *
+     * @return 读到新行返回 true，已到文件末尾返回 false
+     * @throws IOException 读取或解码失败
+     */
+    boolean nextLine() throws IOException;
+
+    /**
+     * @return 保存当前行字符的缓冲区
+     */
+    char[] buffer();
+
+    /**
+     * @return 当前行在缓冲区中的起始下标
+     */
+    int lineStart();
+
+    /**
+     * @return 当前行在缓冲区中的结束下标（不含）
+     */
+    int lineEnd();
+
+    /**
+     * @return 当前行行首在文件中的字节偏移；无法精确确定时返回 -1
+     */
+    long lineByteOffset();
+}
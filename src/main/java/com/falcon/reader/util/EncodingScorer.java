@@ -0,0 +1,450 @@
+package com.falcon.reader.util;
+
+import static com.falcon.reader.util.Encoding.*;
+import static com.falcon.reader.util.FrequencyTables.*;
+
+/**
+ * 单趟融合编码评分器
+ * 在一次从左到右的字节扫描中同时推进所有候选编码的计数器，结果与 BytesEncodingDetect 中逐个编码的
+ * *_probability 方法一致（参考实现保留在 BytesEncodingDetect.scoreEncodingsReference 中，可用 -c 参数对比）。
+ * <p>
+ * 每种编码在原实现中有自己的步进方式（双字节、四字节、HZ/ISO-2022 转义区间等），这里为每一组编码维护一个
+ * “下一个决策位置”游标：扫描到该位置时才由对应的状态机处理当前字节并给出下一个位置。GB2312、GBK、GB18030、
+ * Big5、EUC-KR、CP949、EUC-JP 的步进规则完全相同，因此共用一个游标和同一个 dbchars 计数。
+ * <p>
+ * 可以多次调用 {@link #update(byte[], int, int)} 累积多个互不相邻的采样窗口，每个窗口独立处理跨字节的前瞻，
+ * 计数器在窗口之间累加，随时可以通过 {@link #scores()} 读取当前评分。
+ *
+ * @author zxy
+ * @date 2026/3/2 10:12
+ **/
+class EncodingScorer {
+    private static final int ISO_ASCII = 0;
+    private static final int ISO_GB = 1;
+    private static final int ISO_CNS = 2;
+
+    private boolean firstSegment = true;
+    private long totalBytes = 0;
+
+    // 共用步进的双字节编码：GB2312、GBK、GB18030、Big5、EUC-KR、CP949、EUC-JP
+    private int dbchars = 1;
+    private int gbchars = 1, gbkchars = 1, gb18030chars = 1, big5chars = 1, krchars = 1, cp949chars = 1, eucjpchars = 1;
+    private long gbfreq = 0, gbkfreq = 0, gb18030freq = 0, big5freq = 0, krfreq = 0, cp949freq = 0, eucjpfreq = 0;
+    private long gbtotal = 1, gbktotal = 1, gb18030total = 1, big5total = 1, krtotal = 1, cp949total = 1, eucjptotal = 1;
+
+    // EUC-TW
+    private int twdbchars = 1, cnschars = 1;
+    private long cnsfreq = 0, cnstotal = 1;
+
+    // Shift-JIS
+    private int sjisdbchars = 1, sjischars = 1;
+    private long sjisfreq = 0, sjistotal = 1;
+
+    // UTF-8
+    private long utf8good = 0, utf8ascii = 0;
+
+    // ASCII：非 ASCII 字节与 ESC 的个数
+    private long asciiPenalty = 0;
+
+    // HZ
+    private boolean hzInside;
+    private int hzstart = 0;
+    private long hzfreq = 0, hztotal = 1;
+
+    // ISO-2022-CN
+    private int isoMode;
+    private int isodbchars = 1, isochars = 1;
+    private long isofreq = 0, isototal = 1;
+
+    private boolean utf16Bom, iso2022kr, iso2022jp;
+
+    /**
+     * 扫描一段字节并累加各编码的计数器
+     *
+     * @param rawtext 字节数组
+     * @param offset  起始位置
+     * @param length  字节数
+     */
+    void update(byte[] rawtext, int offset, int length) {
+        int end = offset + length;
+        if (firstSegment) {
+            utf16Bom = length > 1 && ((rawtext[offset] == (byte) 0xFE && rawtext[offset + 1] == (byte) 0xFF)
+                    || (rawtext[offset] == (byte) 0xFF && rawtext[offset + 1] == (byte) 0xFE));
+            firstSegment = false;
+        }
+        totalBytes += length;
+        hzInside = false;
+        isoMode = ISO_ASCII;
+
+        int dbNext = offset, twNext = offset, sjisNext = offset, utf8Next = offset, hzNext = offset, isoNext = offset;
+        for (int i = offset; i < end; i++) {
+            byte b = rawtext[i];
+            if (b < 0 || b == 0x1B) {
+                asciiPenalty++;
+                if (b == 0x1B) {
+                    if (i + 3 < end && rawtext[i + 1] == '$' && rawtext[i + 2] == ')' && rawtext[i + 3] == 'C') {
+                        iso2022kr = true;
+                    }
+                    if (i + 2 < end && rawtext[i + 1] == '$' && rawtext[i + 2] == 'B') {
+                        iso2022jp = true;
+                    }
+                }
+            }
+            if (i == dbNext) {
+                dbNext = scoreDoubleByte(rawtext, i, end);
+            }
+            if (i == twNext) {
+                twNext = scoreEucTw(rawtext, i, end);
+            }
+            if (i == sjisNext) {
+                sjisNext = scoreSjis(rawtext, i, end);
+            }
+            if (i == utf8Next) {
+                utf8Next = scoreUtf8(rawtext, i, end);
+            }
+            if (i == hzNext) {
+                hzNext = scoreHz(rawtext, i, end);
+            }
+            if (i == isoNext) {
+                isoNext = scoreIso2022Cn(rawtext, i, end);
+            }
+        }
+    }
+
+    /**
+     * 根据当前累加的计数器计算每种编码的评分（0 - 100）
+     *
+     * @return 以 Encoding 常量为下标的评分数组
+     */
+    int[] scores() {
+        int[] scores = new int[TOTALTYPES];
+        scores[GB2312] = probability(gbchars, dbchars, gbfreq, gbtotal);
+        // For regular GB files, GBK and GB18030 would give the same score, so they are handicapped slightly
+        scores[GBK] = probability(gbkchars, dbchars, gbkfreq, gbktotal) - 1;
+        scores[GB18030] = probability(gb18030chars, dbchars, gb18030freq, gb18030total) - 1;
+        scores[HZ] = hzProbability();
+        scores[BIG5] = probability(big5chars, dbchars, big5freq, big5total);
+        scores[CNS11643] = probability(cnschars, twdbchars, cnsfreq, cnstotal);
+        scores[ISO2022CN] = probability(isochars, isodbchars, isofreq, isototal);
+        scores[UTF8] = utf8Probability();
+        scores[UNICODE] = utf16Bom ? 100 : 0;
+        scores[EUC_KR] = probability(krchars, dbchars, krfreq, krtotal);
+        scores[CP949] = probability(cp949chars, dbchars, cp949freq, cp949total);
+        scores[ISO2022KR] = iso2022kr ? 100 : 0;
+        scores[ASCII] = (int) Math.max(0, 75 - 5 * asciiPenalty);
+        scores[SJIS] = probability(sjischars, sjisdbchars, sjisfreq, sjistotal) - 1;
+        scores[EUC_JP] = probability(eucjpchars, dbchars, eucjpfreq, eucjptotal);
+        scores[ISO2022JP] = iso2022jp ? 100 : 0;
+        return scores;
+    }
+
+    private static int probability(int chars, int dbchars, long freq, long totalfreq) {
+        float rangeval = 50 * ((float) chars / (float) dbchars);
+        float freqval = 50 * ((float) freq / (float) totalfreq);
+        return (int) (rangeval + freqval);
+    }
+
+    private int hzProbability() {
+        float rangeval;
+        if (hzstart > 4) {
+            rangeval = 50;
+        } else if (hzstart > 1) {
+            rangeval = 41;
+        } else if (hzstart > 0) {
+            rangeval = 39;
+        } else {
+            rangeval = 0;
+        }
+        float freqval = 50 * ((float) hzfreq / (float) hztotal);
+        return (int) (rangeval + freqval);
+    }
+
+    private int utf8Probability() {
+        if (utf8ascii == totalBytes) {
+            return 0;
+        }
+        int score = (int) (100 * ((float) utf8good / (float) (totalBytes - utf8ascii)));
+        if (score > 98) {
+            return score;
+        } else if (score > 95 && utf8good > 30) {
+            return score;
+        }
+        return 0;
+    }
+
+    /*
+     * GB2312 / GBK / GB18030 / Big5 / EUC-KR / CP949 / EUC-JP: every byte with the high bit set starts a two byte unit
+     */
+    private int scoreDoubleByte(byte[] rawtext, int i, int end) {
+        if (i >= end - 1) {
+            return end;
+        }
+        int lead = rawtext[i] & 0xFF;
+        if (lead < 0x80) {
+            return i + 1;
+        }
+        dbchars++;
+        int trail = rawtext[i + 1] & 0xFF;
+
+        if (0xA1 <= lead && lead <= 0xF7 && 0xA1 <= trail && trail <= 0xFE) {
+            // Original GB range
+            int row = lead - 0xA1;
+            int column = trail - 0xA1;
+            long weight = GB_FREQ[row * GB_COLUMNS + column];
+            if (weight == 0 && 15 <= row && row < 55) {
+                weight = 200;
+            }
+            gbchars++;
+            gbtotal += 500;
+            gbfreq += weight;
+            gbkchars++;
+            gbktotal += 500;
+            gbkfreq += weight;
+            gb18030chars++;
+            gb18030total += 500;
+            gb18030freq += weight;
+        } else if (0x81 <= lead && lead <= 0xFE && (0x80 <= trail && trail <= 0xFE || 0x40 <= trail && trail <= 0x7E)) {
+            // Extended GB range
+            long weight = GBK_FREQ[(lead - 0x81) * GBK_COLUMNS + trail - 0x40];
+            gbkchars++;
+            gbktotal += 500;
+            gbkfreq += weight;
+            gb18030chars++;
+            gb18030total += 500;
+            gb18030freq += weight;
+        } else if (0x81 <= lead && lead <= 0xFE && i + 3 < end && 0x30 <= trail && trail <= 0x39
+                && 0x81 <= (rawtext[i + 2] & 0xFF) && (rawtext[i + 2] & 0xFF) <= 0xFE
+                && 0x30 <= rawtext[i + 3] && rawtext[i + 3] <= 0x39) {
+            // GB18030 four byte sequence
+            gb18030chars++;
+        }
+
+        if (0xA1 <= lead && lead <= 0xF9 && (0x40 <= trail && trail <= 0x7E || 0xA1 <= trail && trail <= 0xFE)) {
+            big5chars++;
+            big5total += 500;
+            int row = lead - 0xA1;
+            int column = trail <= 0x7E ? trail - 0x40 : trail - 0x61;
+            if (BIG5_FREQ[row * BIG5_COLUMNS + column] != 0) {
+                big5freq += BIG5_FREQ[row * BIG5_COLUMNS + column];
+            } else if (3 <= row && row <= 37) {
+                big5freq += 200;
+            }
+        }
+
+        if (0xA1 <= lead && lead <= 0xFE && 0xA1 <= trail && trail <= 0xFE) {
+            int row = lead - 0xA1;
+            int column = trail - 0xA1;
+            krchars++;
+            krtotal += 500;
+            krfreq += KR_FREQ[row * KR_COLUMNS + column];
+            eucjpchars++;
+            eucjptotal += 500;
+            eucjpfreq += JP_FREQ[row * JP_COLUMNS + column];
+        }
+
+        if (0x81 <= lead && lead <= 0xFE
+                && (0x41 <= trail && trail <= 0x5A || 0x61 <= trail && trail <= 0x7A || 0x81 <= trail && trail <= 0xFE)) {
+            cp949chars++;
+            cp949total += 500;
+            if (0xA1 <= lead && 0xA1 <= trail && trail <= 0xFE) {
+                cp949freq += KR_FREQ[(lead - 0xA1) * KR_COLUMNS + trail - 0xA1];
+            }
+        }
+        return i + 2;
+    }
+
+    /*
+     * EUC-TW: four byte units for CNS planes 1 - 16, two byte units for plane 1, single bytes otherwise
+     */
+    private int scoreEucTw(byte[] rawtext, int i, int end) {
+        if (i >= end - 1) {
+            return end;
+        }
+        int lead = rawtext[i] & 0xFF;
+        if (lead < 0x80) {
+            return i + 1;
+        }
+        twdbchars++;
+        int trail = rawtext[i + 1] & 0xFF;
+        if (i + 3 < end && lead == 0x8E && 0xA1 <= trail && trail <= 0xB0
+                && 0xA1 <= (rawtext[i + 2] & 0xFF) && (rawtext[i + 2] & 0xFF) <= 0xFE
+                && 0xA1 <= (rawtext[i + 3] & 0xFF) && (rawtext[i + 3] & 0xFF) <= 0xFE) {
+            // These are all less frequent chars so just ignore freq
+            cnschars++;
+            return i + 4;
+        }
+        if (0xA1 <= lead && lead <= 0xFE && 0xA1 <= trail && trail <= 0xFE) {
+            cnschars++;
+            cnstotal += 500;
+            int row = lead - 0xA1;
+            int column = trail - 0xA1;
+            if (EUC_TW_FREQ[row * EUC_TW_COLUMNS + column] != 0) {
+                cnsfreq += EUC_TW_FREQ[row * EUC_TW_COLUMNS + column];
+            } else if (35 <= row && row <= 92) {
+                cnsfreq += 150;
+            }
+            return i + 2;
+        }
+        return i + 1;
+    }
+
+    /*
+     * Shift-JIS: two byte units only when the lead/trail pair is valid
+     */
+    private int scoreSjis(byte[] rawtext, int i, int end) {
+        if (i >= end - 1) {
+            return end;
+        }
+        int lead = rawtext[i] & 0xFF;
+        if (lead < 0x80) {
+            return i + 1;
+        }
+        sjisdbchars++;
+        int trail = rawtext[i + 1] & 0xFF;
+        if ((0x81 <= lead && lead <= 0x9F || 0xE0 <= lead && lead <= 0xEF)
+                && (0x40 <= trail && trail <= 0x7E || 0x80 <= trail && trail <= 0xFC)) {
+            sjischars++;
+            sjistotal += 500;
+            // The reference implementation adds 256 to the signed trail byte, so ASCII trails never take the adjust branch
+            int adjust = 0x80 <= trail && trail < 0x9F ? 1 : 0;
+            int row = lead < 0xA0 ? ((lead - 0x70) << 1) - adjust : ((lead - 0xB0) << 1) - adjust;
+            row -= 0x20;
+            // The reference implementation always looks up column 0x20, kept for identical scores
+            int column = 0x20;
+            if (row < JP_ROWS && column < JP_COLUMNS && JP_FREQ[row * JP_COLUMNS + column] != 0) {
+                sjisfreq += JP_FREQ[row * JP_COLUMNS + column];
+            }
+            return i + 2;
+        }
+        return i + 1;
+    }
+
+    private int scoreUtf8(byte[] rawtext, int i, int end) {
+        int lead = rawtext[i] & 0xFF;
+        if (lead < 0x80) {
+            utf8ascii++;
+            return i + 1;
+        }
+        if (0xC0 <= lead && lead <= 0xDF && i + 1 < end && isUtf8Continuation(rawtext[i + 1])) {
+            utf8good += 2;
+            return i + 2;
+        }
+        if (0xE0 <= lead && lead <= 0xEF && i + 2 < end && isUtf8Continuation(rawtext[i + 1])
+                && isUtf8Continuation(rawtext[i + 2])) {
+            utf8good += 3;
+            return i + 3;
+        }
+        return i + 1;
+    }
+
+    private static boolean isUtf8Continuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    /*
+     * HZ: GB characters written as 7 bit pairs between ~{ and ~}, a line break also ends the GB section
+     */
+    private int scoreHz(byte[] rawtext, int i, int end) {
+        if (hzInside) {
+            if (i >= end - 1) {
+                hzInside = false;
+                return i + 1;
+            }
+            byte b = rawtext[i];
+            byte next = rawtext[i + 1];
+            if (b == 0x0A || b == 0x0D) {
+                hzInside = false;
+                return i + 1;
+            }
+            if (b == '~' && next == '}') {
+                hzInside = false;
+                return i + 2;
+            }
+            if (0x21 <= b && b <= 0x77 && 0x21 <= next && next <= 0x77) {
+                int row = b - 0x21;
+                int column = next - 0x21;
+                hztotal += 500;
+                if (GB_FREQ[row * GB_COLUMNS + column] != 0) {
+                    hzfreq += GB_FREQ[row * GB_COLUMNS + column];
+                } else if (15 <= row && row < 55) {
+                    hzfreq += 200;
+                }
+            }
+            return i + 2;
+        }
+        if (rawtext[i] == '~' && i + 1 < end) {
+            byte next = rawtext[i + 1];
+            if (next == '{') {
+                hzstart++;
+                hzInside = true;
+                return i + 2;
+            }
+            if (next == '}' || next == '~') {
+                return i + 2;
+            }
+        }
+        return i + 1;
+    }
+
+    /*
+     * ISO-2022-CN: ESC $ ) A switches to GB, ESC $ ) G to CNS, the section runs until the next ESC
+     */
+    private int scoreIso2022Cn(byte[] rawtext, int i, int end) {
+        if (isoMode == ISO_ASCII) {
+            if (i >= end - 1) {
+                return end;
+            }
+            if (rawtext[i] == 0x1B && i + 3 < end) {
+                if (rawtext[i + 1] == 0x24 && rawtext[i + 2] == 0x29 && (rawtext[i + 3] == 0x41 || rawtext[i + 3] == 0x47)) {
+                    isoMode = rawtext[i + 3] == 0x41 ? ISO_GB : ISO_CNS;
+                    return i + 4;
+                }
+                return skipAsciiDesignation(rawtext, i, end);
+            }
+            return i + 1;
+        }
+
+        if (rawtext[i] == 0x1B) {
+            isoMode = ISO_ASCII;
+            return skipAsciiDesignation(rawtext, i, end);
+        }
+        isodbchars++;
+        if (i + 1 < end) {
+            byte b = rawtext[i];
+            byte next = rawtext[i + 1];
+            if (isoMode == ISO_GB && 0x21 <= b && b <= 0x77 && 0x21 <= next && next <= 0x77) {
+                int row = b - 0x21;
+                int column = next - 0x21;
+                isochars++;
+                isototal += 500;
+                if (GB_FREQ[row * GB_COLUMNS + column] != 0) {
+                    isofreq += GB_FREQ[row * GB_COLUMNS + column];
+                } else if (15 <= row && row < 55) {
+                    isofreq += 200;
+                }
+                return i + 2;
+            }
+            if (isoMode == ISO_CNS && 0x21 <= b && b <= 0x7E && 0x21 <= next && next <= 0x7E) {
+                int row = b - 0x21;
+                int column = next - 0x21;
+                isochars++;
+                isototal += 500;
+                if (EUC_TW_FREQ[row * EUC_TW_COLUMNS + column] != 0) {
+                    isofreq += EUC_TW_FREQ[row * EUC_TW_COLUMNS + column];
+                } else if (35 <= row && row <= 92) {
+                    isofreq += 150;
+                }
+                return i + 2;
+            }
+        }
+        return i + 1;
+    }
+
+    // ESC ( B switches back to ASCII
+    private static int skipAsciiDesignation(byte[] rawtext, int i, int end) {
+        if (i + 2 < end && rawtext[i + 1] == 0x28 && rawtext[i + 2] == 0x42) {
+            return i + 3;
+        }
+        return i + 1;
+    }
+}
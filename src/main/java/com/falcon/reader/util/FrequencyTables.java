@@ -0,0 +1,107 @@
+package com.falcon.reader.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 编码检测使用的字符频率表（GB、GBK、Big5、Big5+、EUC-TW、KR、JP）
+ * 在类加载时从 /encoding/frequencies.txt 读取一次，之后所有检测共享同一份只读的扁平数组，
+ * 不再为每次检测分配并逐项填充二维数组。下标为 {@code row * 列数 + column}。
+ * <p>
+ * 资源文件是可直接阅读和比较的文本：每行一项 {@code 表名[行][列] = 频率;}，与原来 initialize_frequencies()
+ * 中的赋值语句相同，按顺序赋值；以 # 开头的行和空行忽略，未列出的项为 0。
+ *
+ * @author zxy
+ * @date 2026/3/3 14:40
+ **/
+final class FrequencyTables {
+    private static final String RESOURCE = "/encoding/frequencies.txt";
+
+    static final int GB_ROWS = 94, GB_COLUMNS = 94;
+    static final int GBK_ROWS = 126, GBK_COLUMNS = 191;
+    static final int BIG5_ROWS = 94, BIG5_COLUMNS = 158;
+    static final int BIG5P_ROWS = 126, BIG5P_COLUMNS = 191;
+    static final int EUC_TW_ROWS = 94, EUC_TW_COLUMNS = 94;
+    static final int KR_ROWS = 94, KR_COLUMNS = 94;
+    static final int JP_ROWS = 94, JP_COLUMNS = 94;
+
+    static final short[] GB_FREQ = new short[GB_ROWS * GB_COLUMNS];
+    static final short[] GBK_FREQ = new short[GBK_ROWS * GBK_COLUMNS];
+    static final short[] BIG5_FREQ = new short[BIG5_ROWS * BIG5_COLUMNS];
+    static final short[] BIG5P_FREQ = new short[BIG5P_ROWS * BIG5P_COLUMNS];
+    static final short[] EUC_TW_FREQ = new short[EUC_TW_ROWS * EUC_TW_COLUMNS];
+    static final short[] KR_FREQ = new short[KR_ROWS * KR_COLUMNS];
+    static final short[] JP_FREQ = new short[JP_ROWS * JP_COLUMNS];
+
+    /**
+     * 资源文件中的一张表
+     */
+    private static class Table {
+        private final short[] values;
+        private final int rows;
+        private final int columns;
+
+        private Table(short[] values, int rows, int columns) {
+            this.values = values;
+            this.rows = rows;
+            this.columns = columns;
+        }
+    }
+
+    static {
+        Map<String, Table> tables = new HashMap<>();
+        tables.put("GBFreq", new Table(GB_FREQ, GB_ROWS, GB_COLUMNS));
+        tables.put("GBKFreq", new Table(GBK_FREQ, GBK_ROWS, GBK_COLUMNS));
+        tables.put("Big5Freq", new Table(BIG5_FREQ, BIG5_ROWS, BIG5_COLUMNS));
+        tables.put("Big5PFreq", new Table(BIG5P_FREQ, BIG5P_ROWS, BIG5P_COLUMNS));
+        tables.put("EUC_TWFreq", new Table(EUC_TW_FREQ, EUC_TW_ROWS, EUC_TW_COLUMNS));
+        tables.put("KRFreq", new Table(KR_FREQ, KR_ROWS, KR_COLUMNS));
+        tables.put("JPFreq", new Table(JP_FREQ, JP_ROWS, JP_COLUMNS));
+        try (InputStream resource = FrequencyTables.class.getResourceAsStream(RESOURCE)) {
+            if (resource == null) {
+                throw new IOException("缺少编码频率表资源 " + RESOURCE);
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8));
+            int lineNumber = 0;
+            for (String line; (line = reader.readLine()) != null; ) {
+                lineNumber++;
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    assign(tables, line, lineNumber);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private FrequencyTables() {
+    }
+
+    /**
+     * 解析并执行一行 {@code 表名[行][列] = 频率;}
+     */
+    private static void assign(Map<String, Table> tables, String line, int lineNumber) throws IOException {
+        int rowStart = line.indexOf('[');
+        int rowEnd = line.indexOf("][", rowStart);
+        int columnEnd = line.indexOf(']', rowEnd + 2);
+        int equals = line.indexOf('=', columnEnd);
+        if (rowStart < 0 || rowEnd < 0 || columnEnd < 0 || equals < 0 || !line.endsWith(";")) {
+            throw new IOException("编码频率表第 " + lineNumber + " 行格式错误: " + line);
+        }
+        Table table = tables.get(line.substring(0, rowStart).trim());
+        int row = Integer.parseInt(line.substring(rowStart + 1, rowEnd).trim());
+        int column = Integer.parseInt(line.substring(rowEnd + 2, columnEnd).trim());
+        int value = Integer.parseInt(line.substring(equals + 1, line.length() - 1).trim());
+        if (table == null || row < 0 || row >= table.rows || column < 0 || column >= table.columns
+                || value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+            throw new IOException("编码频率表第 " + lineNumber + " 行超出范围: " + line);
+        }
+        table.values[row * table.columns + column] = (short) value;
+    }
+}
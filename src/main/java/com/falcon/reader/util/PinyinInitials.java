@@ -0,0 +1,85 @@
+package com.falcon.reader.util;
+
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+
+/**
+ * 汉字拼音首字母
+ * GB2312 一级汉字按拼音排序，每个声母对应一段连续的区位码，按区间即可查出首字母，不需要拼音库。
+ * 二级汉字按部首排序、繁体字不在 GB2312 中，这些字没有首字母。多音字取 GB2312 排序所用的读音。
+ * <p>
+ * 类加载时把 CJK 基本区（U+4E00 到 U+9FA5）每个字的首字母算好放在表中，之后查询只是数组访问。
+ *
+ * @author zxy
+ * @date 2026/3/19 16:10
+ **/
+public final class PinyinInitials {
+    private static final char FIRST = '一';
+    private static final char LAST = '龥';
+    /** 各声母在 GB2312 中第一个字的编码，一级汉字到 0xD7F9 结束 */
+    private static final int[] BOUNDARIES = {
+            0xB0A1, 0xB0C5, 0xB2C1, 0xB4EE, 0xB6EA, 0xB7A2, 0xB8C1, 0xB9FE, 0xBBF7, 0xBFA6, 0xC0AC, 0xC2E8,
+            0xC4C3, 0xC5B6, 0xC5BE, 0xC6DA, 0xC8BB, 0xC8F6, 0xCBFA, 0xCDDA, 0xCEF4, 0xD1B9, 0xD4D1};
+    private static final String LETTERS = "abcdefghjklmnopqrstwxyz";
+    private static final int LEVEL_ONE_END = 0xD7F9;
+    /** 下标为 {@code c - FIRST}，没有首字母时为 0 */
+    private static final char[] TABLE = new char[LAST - FIRST + 1];
+
+    static {
+        Charset gb2312 = Charset.forName("GB2312");
+        CharsetEncoder encoder = gb2312.newEncoder();
+        for (char c = FIRST; c <= LAST; c++) {
+            if (encoder.canEncode(c)) {
+                byte[] bytes = String.valueOf(c).getBytes(gb2312);
+                TABLE[c - FIRST] = initialOf(((bytes[0] & 0xFF) << 8) | (bytes[1] & 0xFF));
+            }
+        }
+    }
+
+    private PinyinInitials() {
+    }
+
+    /**
+     * @return 文本中是否有汉字
+     */
+    public static boolean hasChinese(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= FIRST && c <= LAST) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 把文本中的汉字换成拼音首字母，其他字符转为小写后保留，例如 “三体2” 得到 “st2”
+     *
+     * @param placeholder 没有首字母的汉字替换成这个字符，选一个搜索关键字中不会出现的字符
+     */
+    public static String of(String text, char placeholder) {
+        StringBuilder builder = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= FIRST && c <= LAST) {
+                char initial = TABLE[c - FIRST];
+                builder.append(initial == 0 ? placeholder : initial);
+            } else {
+                builder.append(Character.toLowerCase(c));
+            }
+        }
+        return builder.toString();
+    }
+
+    private static char initialOf(int code) {
+        if (code < BOUNDARIES[0] || code > LEVEL_ONE_END) {
+            return 0;
+        }
+        for (int i = BOUNDARIES.length - 1; i >= 0; i--) {
+            if (code >= BOUNDARIES[i]) {
+                return LETTERS.charAt(i);
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,218 @@
+package com.falcon.reader.model;
+
+import cn.hutool.json.JSONObject;
+import com.falcon.reader.entity.NovelRecord;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 多个阅读器进程、每个进程多个线程同时保存阅读记录时，{@link JsonRecordStore} 不丢失也不回退任何一本小说的进度
+ * <p>
+ * 每个子进程以临时目录为工作目录运行 {@link #main}，每个线程反复保存自己的几本小说和所有线程共用的一本小说，
+ * 偶尔改变窗口配置使保存在追加日志和完整写入快照之间切换。全部结束后再启动一个子进程读取记录：
+ * 每本自己的小说都停在最后一次保存的页，共用的小说是阅读时间最晚的一次保存。
+ * 进程数、线程数和每个线程的保存次数可以用系统属性 stress.processes、stress.threads、stress.saves 调整。
+ *
+ * @author zxy
+ * @date 2026/3/21 15:30
+ **/
+public class JsonRecordStoreStressTest {
+    private static final int PROCESSES = Integer.getInteger("stress.processes", 3);
+    private static final int THREADS = Integer.getInteger("stress.threads", 3);
+    private static final int SAVES = Integer.getInteger("stress.saves", 30);
+    /** 每个线程自己保存的小说数 */
+    private static final int OWN_BOOKS = 4;
+    private static final String SHARED_BOOK = "shared.txt";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void concurrentProcessesKeepEveryBook() throws Exception {
+        File directory = folder.getRoot();
+        List<Process> processes = new ArrayList<>();
+        for (int process = 0; process < PROCESSES; process++) {
+            processes.add(start(directory, "save", String.valueOf(process)));
+        }
+        // 共用的小说在阅读时间最晚的那些保存中取一个
+        long latestTime = Long.MIN_VALUE;
+        Set<Integer> latestPages = new HashSet<>();
+        for (Process process : processes) {
+            for (String line : output(process)) {
+                String[] fields = line.split(" ");
+                if ("S".equals(fields[0])) {
+                    long time = Long.parseLong(fields[1]);
+                    if (time > latestTime) {
+                        latestTime = time;
+                        latestPages.clear();
+                    }
+                    if (time == latestTime) {
+                        latestPages.add(Integer.parseInt(fields[2]));
+                    }
+                } else if ("E".equals(fields[0])) {
+                    assertEquals("保存失败的次数", 0, Integer.parseInt(fields[1]));
+                }
+            }
+        }
+
+        Map<String, Integer> pages = new HashMap<>();
+        for (String line : output(start(directory, "dump"))) {
+            int space = line.lastIndexOf(' ');
+            pages.put(line.substring(0, space), Integer.parseInt(line.substring(space + 1)));
+        }
+        for (int process = 0; process < PROCESSES; process++) {
+            for (int thread = 0; thread < THREADS; thread++) {
+                for (int book = 0; book < OWN_BOOKS; book++) {
+                    String name = ownBook(process, thread, book);
+                    Integer page = pages.get(name);
+                    assertNotNull(name + " 丢失", page);
+                    assertEquals(name + " 不是最后保存的进度", SAVES - 1, page.intValue());
+                }
+            }
+        }
+        Integer shared = pages.get(SHARED_BOOK);
+        assertNotNull(SHARED_BOOK + " 丢失", shared);
+        assertTrue(SHARED_BOOK + " 的进度 " + shared + " 不是最后一次阅读 " + latestPages, latestPages.contains(shared));
+    }
+
+    private static Process start(File directory, String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Dfile.encoding=UTF-8");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(JsonRecordStoreStressTest.class.getName());
+        for (String arg : args) {
+            command.add(arg);
+        }
+        return new ProcessBuilder(command).directory(directory).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    }
+
+    private static List<String> output(Process process) throws IOException, InterruptedException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.UTF_8))) {
+            for (String line; (line = reader.readLine()) != null; ) {
+                lines.add(line);
+            }
+        }
+        assertTrue("子进程超时", process.waitFor(5, TimeUnit.MINUTES));
+        assertEquals("子进程退出码", 0, process.exitValue());
+        return lines;
+    }
+
+    private static String ownBook(int process, int thread, int book) {
+        return "own-" + process + "-" + thread + "-" + book + ".txt";
+    }
+
+    /**
+     * 子进程入口，工作目录即记录所在的目录
+     * <ul>
+     *     <li>{@code save <进程编号>}：多个线程同时保存，输出共用小说每次保存的 {@code S <阅读时间毫秒> <页码>}
+     *     和失败次数 {@code E <次数>}</li>
+     *     <li>{@code dump}：读取全部记录，每行输出 {@code <文件名> <页码>}</li>
+     * </ul>
+     */
+    public static void main(String[] args) throws Exception {
+        PrintStream out = new PrintStream(System.out, true, "UTF-8");
+        int status = 0;
+        try {
+            if ("save".equals(args[0])) {
+                save(Integer.parseInt(args[1]), out);
+            } else {
+                Map<String, NovelRecord> records = new HashMap<>();
+                new JsonRecordStore().load(records);
+                for (Map.Entry<String, NovelRecord> entry : records.entrySet()) {
+                    out.println(Paths.get(entry.getKey()).getFileName() + " " + entry.getValue().getCurrentPage());
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            status = 1;
+        }
+        out.flush();
+        // 写入线程不是守护线程，直接退出
+        System.exit(status);
+    }
+
+    private static void save(int process, PrintStream out) throws Exception {
+        JsonRecordStore store = new JsonRecordStore();
+        store.load(new HashMap<>());
+        String shared = ReadingRecord.normalizePath(SHARED_BOOK);
+        AtomicInteger failures = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int current = thread;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(process * 31L + current);
+                for (int save = 0; save < SAVES; save++) {
+                    for (int book = 0; book < OWN_BOOKS; book++) {
+                        String filePath = ReadingRecord.normalizePath(ownBook(process, current, book));
+                        saveRecord(store, config(random), filePath, save, LocalDateTime.now(), failures);
+                    }
+                    LocalDateTime time = LocalDateTime.now();
+                    int page = process * 1_000_000 + current * 10_000 + save;
+                    saveRecord(store, config(random), shared, page, time, failures);
+                    synchronized (out) {
+                        out.println("S " + time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() + " " + page);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        ProgressJournal.sync();
+        out.println("E " + failures.get());
+    }
+
+    /**
+     * 大多数保存使用相同的窗口配置，只追加日志；偶尔改变配置，完整写入快照
+     */
+    private static JSONObject config(Random random) {
+        JSONObject config = new JSONObject();
+        config.set("width", random.nextInt(20) == 0 ? 801 : 800);
+        return config;
+    }
+
+    private static void saveRecord(JsonRecordStore store, JSONObject config, String filePath, int page,
+            LocalDateTime time, AtomicInteger failures) {
+        try {
+            store.saveRecord(config, filePath, page, 1000, page, 1_000_000, null, time);
+        } catch (IOException | RuntimeException e) {
+            if (failures.incrementAndGet() <= 2) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.falcon.reader.model;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * MappedTextSource 的行切分与 BufferedReader 一致，包括超过一个解码块（32KB）的超长行
+ *
+ * @author zxy
+ * @date 2026/3/21 10:00
+ **/
+public class MappedTextSourceTest {
+    private static final int SHORT_LINES = 200_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void longFirstLineUtf8() throws IOException {
+        assertSameLines(StandardCharsets.UTF_8, repeat('中', 12_000));
+    }
+
+    @Test
+    public void longFirstLineGbk() throws IOException {
+        assertSameLines(Charset.forName("GBK"), repeat('中', 20_000));
+    }
+
+    @Test
+    public void longFirstLineUtf16() throws IOException {
+        assertSameLines(StandardCharsets.UTF_16, repeat('中', 20_000));
+    }
+
+    @Test
+    public void longFirstLineUtf16le() throws IOException {
+        assertSameLines(StandardCharsets.UTF_16LE, repeat('中', 20_000));
+    }
+
+    @Test
+    public void longLineOfSupplementaryCharacters() throws IOException {
+        // 增补字符占两个 char，缓冲区只剩一格时不能原地空转
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 40_001; i++) {
+            line.appendCodePoint(0x20000 + i % 100);
+        }
+        assertSameLines(StandardCharsets.UTF_8, line.toString());
+        assertSameLines(StandardCharsets.UTF_16, line.toString());
+    }
+
+    private void assertSameLines(Charset charset, String longLine) throws IOException {
+        File file = folder.newFile();
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), charset)) {
+            writer.write(longLine);
+            writer.write('\n');
+            for (int i = 0; i < SHORT_LINES; i++) {
+                writer.write("第" + i + "行 line\n");
+                if (i == SHORT_LINES / 2) {
+                    writer.write(longLine);
+                    writer.write("\r\n");
+                }
+            }
+        }
+
+        List<String> expected = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(file.toPath()), charset))) {
+            for (String line; (line = reader.readLine()) != null; ) {
+                expected.add(line);
+            }
+        }
+        int checked = 0;
+        try (MappedTextSource source = new MappedTextSource(file.getPath(), charset)) {
+            while (source.nextLine()) {
+                String line = new String(source.buffer(), source.lineStart(), source.lineEnd() - source.lineStart());
+                assertEquals("line " + checked + " (" + charset + ")", expected.get(checked), line);
+                checked++;
+            }
+        }
+        assertEquals(expected.size(), checked);
+        assertTrue(checked > SHORT_LINES);
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        java.util.Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
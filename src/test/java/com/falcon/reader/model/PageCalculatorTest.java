@@ -0,0 +1,155 @@
+package com.falcon.reader.model;
+
+import com.falcon.reader.entity.Chapter;
+import org.junit.AfterClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 并行分页与顺序分页的页起始偏移、章节、总长度和检查点完全相同；窗口分页得到的页是全书分页中连续的若干页
+ * 测试文本包含章节标题、空行和超过一个解码块（32KB）的超长行，长度跨越多个并行分段。
+ *
+ * @author zxy
+ * @date 2026/3/21 16:30
+ **/
+public class PageCalculatorTest {
+    private static final int WIDTH = 600;
+    private static final int HEIGHT = 800;
+    private static final FontMetrics METRICS = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics()
+            .getFontMetrics(new Font(Font.DIALOG, Font.PLAIN, 18));
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @AfterClass
+    public static void shutdown() {
+        POOL.shutdown();
+    }
+
+    @Test
+    public void parallelMatchesSequentialUtf8() throws IOException {
+        assertParallelMatchesSequential(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void parallelMatchesSequentialGbk() throws IOException {
+        assertParallelMatchesSequential(Charset.forName("GBK"));
+    }
+
+    @Test
+    public void windowPagesMatchFullPaginationUtf8() throws IOException {
+        assertWindowsMatchFullPagination(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void windowPagesMatchFullPaginationGbk() throws IOException {
+        assertWindowsMatchFullPagination(Charset.forName("GBK"));
+    }
+
+    private void assertParallelMatchesSequential(Charset charset) throws IOException {
+        String filePath = novel(charset);
+        PageResult sequential = PageCalculator.calculate(filePath, charset.name(), METRICS, WIDTH, HEIGHT);
+        PageResult parallel = PageCalculator.calculateParallel(filePath, charset.name(), METRICS, WIDTH, HEIGHT, null, POOL);
+
+        assertFalse(sequential.getPages().isEmpty());
+        assertEquals(sequential.getTotalLength(), parallel.getTotalLength());
+        assertEquals(sequential.getPages().size(), parallel.getPages().size());
+        for (int page = 0; page < sequential.getPages().size(); page++) {
+            assertEquals("第 " + page + " 页", sequential.getPages().start(page), parallel.getPages().start(page));
+        }
+        assertEquals(sequential.getChapters().size(), parallel.getChapters().size());
+        for (int index = 0; index < sequential.getChapters().size(); index++) {
+            Chapter expected = sequential.getChapters().get(index);
+            Chapter actual = parallel.getChapters().get(index);
+            assertEquals(expected.getTitle(), actual.getTitle());
+            assertEquals(expected.getPageIndex(), actual.getPageIndex());
+            assertEquals(expected.getLineNumber(), actual.getLineNumber());
+        }
+        TextCheckpoints expected = sequential.getCheckpoints();
+        TextCheckpoints actual = parallel.getCheckpoints();
+        assertEquals(expected.size(), actual.size());
+        for (int index = 0; index < expected.size(); index++) {
+            assertEquals(expected.offset(index), actual.offset(index));
+            assertEquals(expected.byteOffset(index), actual.byteOffset(index));
+        }
+    }
+
+    private void assertWindowsMatchFullPagination(Charset charset) throws IOException {
+        String filePath = novel(charset);
+        PageResult full = PageCalculator.calculate(filePath, charset.name(), METRICS, WIDTH, HEIGHT);
+        PageIndex pages = full.getPages();
+        TextCheckpoints checkpoints = full.getCheckpoints();
+        int[] targets = {0, 1, pages.size() / 3, pages.size() / 2, pages.size() - 2, pages.size() - 1};
+        for (int target : targets) {
+            int targetOffset = pages.start(target);
+            int anchor = checkpoints.floor(targetOffset);
+            assertWindow(pages, target, PageCalculator.calculateWindow(filePath, charset.name(), checkpoints.offset(anchor),
+                    checkpoints.byteOffset(anchor), targetOffset, METRICS, WIDTH, HEIGHT, 3));
+            // 没有锚点时从文件开头查找，结果相同
+            assertWindow(pages, target, PageCalculator.calculateWindow(filePath, charset.name(), 0, 0, targetOffset,
+                    METRICS, WIDTH, HEIGHT, 3));
+        }
+    }
+
+    /**
+     * 窗口中的页与全书分页中同一位置开始的页逐页相同，并且包含目标页
+     */
+    private static void assertWindow(PageIndex pages, int target, PageResult window) {
+        PageIndex windowPages = window.getPages();
+        assertFalse("第 " + target + " 页的窗口为空", windowPages.isEmpty());
+        int first = pages.findPage(windowPages.start(0));
+        assertEquals(pages.start(first), windowPages.start(0));
+        assertTrue(first <= target && target < first + windowPages.size());
+        for (int index = 0; index < windowPages.size(); index++) {
+            assertEquals("第 " + target + " 页的窗口第 " + index + " 页", pages.start(first + index), windowPages.start(index));
+        }
+    }
+
+    /**
+     * 约 120 万字符的小说：章节标题、空行和普通段落交替，其中几段超过一个解码块
+     */
+    private String novel(Charset charset) throws IOException {
+        File file = folder.newFile();
+        StringBuilder longLine = new StringBuilder();
+        while (longLine.length() < 40_000) {
+            longLine.append("很长的一段没有换行的文字，").append(longLine.length()).append(" words in one line. ");
+        }
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), charset)) {
+            for (int chapter = 1; chapter <= 60; chapter++) {
+                writer.write("第" + chapter + "章 测试章节\r\n\r\n");
+                for (int paragraph = 0; paragraph < 200; paragraph++) {
+                    writer.write("　　这是第" + chapter + "章的第" + paragraph + "段，用来测试分页结果是否一致。");
+                    for (int repeat = 0; repeat < paragraph % 7; repeat++) {
+                        writer.write("句子的长度各不相同，折行的位置也就各不相同。");
+                    }
+                    writer.write('\n');
+                    if (paragraph % 13 == 0) {
+                        writer.write('\n');
+                    }
+                }
+                if (chapter % 20 == 0) {
+                    writer.write(longLine.toString());
+                    writer.write('\n');
+                }
+            }
+        }
+        return file.getPath();
+    }
+}
@@ -0,0 +1,190 @@
+package com.falcon.reader.model;
+
+import com.falcon.reader.util.EncodingDetect;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * 大文件的读取和分页耗时，对比按 BufferedReader 逐行生成字符串和 HTML 页的旧分页方式
+ * 只在系统属性 benchmark.file 指向一个文件时运行，例如：
+ * <pre>
+ * mvn -B test -Dtest=PaginationBenchmarkTest -Dbenchmark.file=/path/to/novel.txt [-Dbenchmark.encoding=GBK] [-Dbenchmark.rounds=3]
+ * </pre>
+ * 每轮分别输出逐行读取（BufferedReader / MappedTextSource）和全书分页（旧方式 / 顺序 / 并行）的耗时，
+ * 并检查新旧分页的页起始偏移和总长度相同。
+ *
+ * @author zxy
+ * @date 2026/3/21 17:30
+ **/
+public class PaginationBenchmarkTest {
+    private static final String FILE = System.getProperty("benchmark.file");
+    private static final int ROUNDS = Integer.getInteger("benchmark.rounds", 3);
+    private static final int WIDTH = 600;
+    private static final int HEIGHT = 800;
+
+    private static String encoding;
+    private static FontMetrics metrics;
+    private static ForkJoinPool pool;
+
+    @BeforeClass
+    public static void setUp() {
+        assumeTrue("未设置 benchmark.file，跳过", FILE != null);
+        encoding = System.getProperty("benchmark.encoding", EncodingDetect.getJavaEncode(FILE));
+        metrics = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics()
+                .getFontMetrics(new Font(Font.DIALOG, Font.PLAIN, 18));
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        System.out.println(FILE + " " + encoding + "，并行度 " + pool.getParallelism());
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void readLines() throws IOException {
+        for (int round = 1; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            long lines = 0;
+            long chars = 0;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(FILE), encoding))) {
+                for (String line; (line = reader.readLine()) != null; ) {
+                    lines++;
+                    chars += line.length();
+                }
+            }
+            long buffered = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long mappedLines = 0;
+            long mappedChars = 0;
+            try (TextSource source = new MappedTextSource(FILE, encoding)) {
+                while (source.nextLine()) {
+                    mappedLines++;
+                    mappedChars += source.lineEnd() - source.lineStart();
+                }
+            }
+            long mapped = System.nanoTime() - start;
+
+            assertEquals(lines, mappedLines);
+            assertEquals(chars, mappedChars);
+            System.out.printf("第 %d 轮 逐行读取 %d 行 %d 字符：BufferedReader %d ms，MappedTextSource %d ms%n",
+                    round, lines, chars, buffered / 1_000_000, mapped / 1_000_000);
+        }
+    }
+
+    @Test
+    public void paginate() throws IOException {
+        for (int round = 1; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            List<Integer> oldStarts = new ArrayList<>();
+            int oldLength = paginateByLines(oldStarts);
+            long old = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            PageResult sequential = PageCalculator.calculate(FILE, encoding, metrics, WIDTH, HEIGHT);
+            long calculate = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            PageResult parallel = PageCalculator.calculateParallel(FILE, encoding, metrics, WIDTH, HEIGHT, null, pool);
+            long calculateParallel = System.nanoTime() - start;
+
+            assertEquals(oldLength, sequential.getTotalLength());
+            assertEquals(oldStarts.size(), sequential.getPages().size());
+            for (int page = 0; page < oldStarts.size(); page++) {
+                assertEquals(oldStarts.get(page).intValue(), sequential.getPages().start(page));
+            }
+            assertEquals(sequential.getPages().size(), parallel.getPages().size());
+            System.out.printf("第 %d 轮 全书分页 %d 页：旧方式 %d ms，顺序 %d ms，并行 %d ms%n", round, oldStarts.size(),
+                    old / 1_000_000, calculate / 1_000_000, calculateParallel / 1_000_000);
+        }
+    }
+
+    /**
+     * 旧的分页方式：BufferedReader 逐行读出字符串，按字符宽度切出显示行的子串，每页拼成一个 HTML 字符串并全部保留
+     *
+     * @param pageStarts 收集每页的起始偏移
+     * @return 全书字符数（每行之后计 1 个换行符）
+     */
+    private static int paginateByLines(List<Integer> pageStarts) throws IOException {
+        int maxLines = PageCalculator.maxLines(metrics, HEIGHT);
+        List<String> pages = new ArrayList<>();
+        List<String> pageLines = new ArrayList<>(maxLines + 2);
+        int totalLength = 0;
+        int pageStart = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(FILE), encoding))) {
+            for (String line; (line = reader.readLine()) != null; ) {
+                int index = 0;
+                do {
+                    if (pageLines.size() >= maxLines) {
+                        pages.add(buildPage(pageLines));
+                        pageStarts.add(pageStart);
+                        pageLines.clear();
+                    }
+                    if (pageLines.isEmpty()) {
+                        pageStart = totalLength + index;
+                    }
+                    int end = index;
+                    int width = 0;
+                    while (end < line.length() && width + metrics.charWidth(line.charAt(end)) <= WIDTH) {
+                        width += metrics.charWidth(line.charAt(end));
+                        end++;
+                    }
+                    if (end == index && end < line.length()) {
+                        end++;
+                    }
+                    pageLines.add(line.substring(index, end));
+                    index = end;
+                } while (index < line.length());
+                totalLength += line.length() + 1;
+            }
+        }
+        if (!pageLines.isEmpty()) {
+            pages.add(buildPage(pageLines));
+            pageStarts.add(pageStart);
+        }
+        return totalLength;
+    }
+
+    private static String buildPage(List<String> lines) {
+        StringBuilder page = new StringBuilder(1024 + lines.size() * 40).append("<html>");
+        for (String line : lines) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                switch (c) {
+                    case '&':
+                        page.append("&amp;");
+                        break;
+                    case '<':
+                        page.append("&lt;");
+                        break;
+                    case '>':
+                        page.append("&gt;");
+                        break;
+                    default:
+                        page.append(c);
+                        break;
+                }
+            }
+            page.append("<br/>");
+        }
+        return page.append("</html>").toString();
+    }
+}
@@ -0,0 +1,143 @@
+package com.falcon.reader.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 编码检测：一次遍历的评分与逐个编码的参考实现完全相同；流式检测时 GB 系列的样本在文件头部即可确定，不再读取内部窗口
+ *
+ * @author zxy
+ * @date 2026/3/21 14:00
+ **/
+public class BytesEncodingDetectTest {
+    static final String CHINESE = "天色已经晚了，他从城里回来，沿着河边的小路慢慢地走着。路两旁的树叶在风中轻轻摇动，"
+            + "远处的村子里亮起了灯，偶尔传来几声狗叫。他想起母亲说过的话，心里有些说不出的滋味。"
+            + "这些年他一直在外面读书、工作，很少回家，家里的事情都是父亲和哥哥在操心。"
+            + "今年春天，父亲的身体不如从前了，哥哥写信来说，希望他能早点回去看看。"
+            + "他走到桥头，停下来望着水面，月亮已经升起来了，河水在月光下闪着银白的光。";
+    static final String TRADITIONAL = "天色已經晚了，他從城裡回來，沿著河邊的小路慢慢地走著。路兩旁的樹葉在風中輕輕搖動，"
+            + "遠處的村子裡亮起了燈，偶爾傳來幾聲狗叫。他想起母親說過的話，心裡有些說不出的滋味。";
+    static final String KOREAN = "날이 이미 저물었다. 그는 도시에서 돌아와 강가의 작은 길을 따라 천천히 걸었다.";
+    static final String JAPANESE = "日はもう暮れていた。彼は町から戻り、川沿いの小道をゆっくりと歩いていた。";
+    /** 参与比较的编码和样本文字，当前 JDK 不支持的编码跳过 */
+    private static final String[][] SAMPLES = {
+            {"GB2312", CHINESE}, {"GBK", TRADITIONAL}, {"GB18030", CHINESE + TRADITIONAL}, {"Big5", TRADITIONAL},
+            {"x-EUC-TW", TRADITIONAL}, {"UTF-8", CHINESE + KOREAN + JAPANESE}, {"UTF-16", CHINESE},
+            {"UTF-16LE", CHINESE}, {"EUC-KR", KOREAN}, {"x-windows-949", KOREAN}, {"ISO-2022-KR", KOREAN},
+            {"Shift_JIS", JAPANESE}, {"EUC-JP", JAPANESE}, {"ISO-2022-JP", JAPANESE}, {"US-ASCII", "plain text"}};
+    /** 随机字节中混入的转义序列、BOM 和 HZ 标记，使各编码的特殊分支都被覆盖 */
+    private static final byte[][] FRAGMENTS = {
+            {0x1B, '$', ')', 'A'}, {0x1B, '$', ')', 'G'}, {0x1B, '$', '+', 'I'}, {0x1B, '$', ')', 'C'},
+            {0x1B, '$', 'B'}, {0x1B, '(', 'B'}, {0x0E}, {0x0F}, {'~', '{'}, {'~', '}'}, {(byte) 0xFE, (byte) 0xFF},
+            {(byte) 0xFF, (byte) 0xFE}, {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF}, {'\r', '\n'}};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final BytesEncodingDetect detector = new BytesEncodingDetect();
+
+    @Test
+    public void fusedScorerMatchesReferenceOnSamples() {
+        for (String[] sample : SAMPLES) {
+            if (!Charset.isSupported(sample[0])) {
+                continue;
+            }
+            for (int length : new int[]{0, 1, 2, 3, 17, 1000, 20_000}) {
+                byte[] bytes = text(sample[1], sample[0], length);
+                assertSameScores(sample[0] + " " + length, Arrays.copyOf(bytes, length));
+            }
+        }
+    }
+
+    @Test
+    public void fusedScorerMatchesReferenceOnRandomBytes() {
+        Random random = new Random(20260321L);
+        for (int round = 0; round < 2000; round++) {
+            byte[] bytes = new byte[random.nextInt(round < 1000 ? 16 : 4096)];
+            int position = 0;
+            while (position < bytes.length) {
+                int choice = random.nextInt(10);
+                if (choice == 0) {
+                    byte[] fragment = FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+                    int length = Math.min(fragment.length, bytes.length - position);
+                    System.arraycopy(fragment, 0, bytes, position, length);
+                    position += length;
+                } else if (choice < 4) {
+                    bytes[position++] = (byte) random.nextInt(0x80);
+                } else {
+                    bytes[position++] = (byte) (0x80 + random.nextInt(0x80));
+                }
+            }
+            assertSameScores("round " + round, bytes);
+        }
+    }
+
+    private void assertSameScores(String message, byte[] bytes) {
+        int[] reference = detector.scoreEncodingsReference(bytes);
+        int[] fused = detector.scoreEncodings(bytes);
+        assertArrayEquals(message + " " + Arrays.toString(reference) + " " + Arrays.toString(fused), reference, fused);
+    }
+
+    @Test
+    public void gbFamilySamplesAreDecisive() {
+        for (String charset : new String[]{"GB2312", "GBK", "GB18030"}) {
+            byte[] sample = text(CHINESE, charset, EncodingDetect.DEFAULT_SAMPLE_PREFIX);
+            int[] scores = detector.scoreEncodings(sample);
+            assertTrue(charset + " " + Arrays.toString(scores), detector.isDecisive(scores));
+        }
+    }
+
+    @Test
+    public void gbkSampleStopsAfterPrefix() throws IOException {
+        int prefix = EncodingDetect.DEFAULT_SAMPLE_PREFIX;
+        // 头部只有 GB2312 中的字符，后面是只在 GBK 中才有的繁体字，读到内部窗口时结果会变成 GBK
+        byte[] head = text(CHINESE, "GBK", prefix + 4096);
+        byte[] tail = text(TRADITIONAL, "GBK", prefix * 4);
+        File file = folder.newFile();
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(head);
+        content.write(tail);
+        Files.write(file.toPath(), content.toByteArray());
+
+        byte[] sample = Arrays.copyOf(head, lastLineEnd(head, prefix));
+        ByteArrayOutputStream withWindows = new ByteArrayOutputStream();
+        withWindows.write(sample);
+        withWindows.write(tail, 0, lastLineEnd(tail, BytesEncodingDetect.INTERIOR_WINDOWS * prefix / 4));
+        assertEquals(Encoding.GB2312, detector.detectEncoding(sample));
+        assertEquals(Encoding.GBK, detector.detectEncoding(withWindows.toByteArray()));
+        assertEquals(Encoding.GB2312, detector.detectEncoding(file, prefix));
+    }
+
+    /**
+     * 按行重复的中文样本，至少 length 字节，每行以 LF 结尾
+     */
+    static byte[] text(String text, String charset, int length) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] line = (text + "\n").getBytes(Charset.forName(charset));
+        while (out.size() < length) {
+            out.write(line, 0, line.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static int lastLineEnd(byte[] bytes, int limit) {
+        int end = limit;
+        while (bytes[end - 1] != '\n') {
+            end--;
+        }
+        return end;
+    }
+}